@@ -1,6 +1,7 @@
 import java.util.Scanner;
 
 import hash.ExtendibleHash;
+import metrics.ConsoleListener;
 
 /*
  * Classe principal interativa para testar o Hash Extensível.
@@ -24,6 +25,7 @@ public class Main {
 
         //Cria a Hash
         ExtendibleHash hash = new ExtendibleHash(tamanhoBucket);
+        hash.setListener(new ConsoleListener());
         System.out.println("Hash Extensível criado com buckets de tamanho " + tamanhoBucket);
         hash.exibe();
 
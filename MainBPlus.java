@@ -1,6 +1,7 @@
 import java.util.Scanner;
 
 import bplus.BPlusTree;
+import metrics.ConsoleListener;
 
 public class MainBPlus {
 
@@ -21,6 +22,7 @@ public class MainBPlus {
         }
 
         BPlusTree<Integer, String> arvore = new BPlusTree<>(ordem);
+        arvore.setListener(new ConsoleListener());
         System.out.println("Árvore B+ de ordem " + ordem + " criada.");
         System.out.println(arvore.toString());
 
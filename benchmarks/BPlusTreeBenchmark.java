@@ -0,0 +1,75 @@
+package benchmarks;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bplus.BPlusTree;
+
+/**
+ * Buscas pontuais e por intervalo em uma BPlusTree já carregada com 'size' chaves distintas.
+ * As chaves buscadas seguem 'distribution' sobre o dobro do universo carregado
+ * (com UNIFORM, metade das buscas não encontra a chave).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BPlusTreeBenchmark {
+    private static final int PROBES = 1 << 16;
+    private static final int RANGE_WIDTH = 100;
+
+    @Param({ "8", "64", "256" })
+    public int order;
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    @Param({ "SEQUENTIAL", "UNIFORM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    private BPlusTree<Integer, Integer> tree;
+    // Probes e fins de intervalo já em Integer: o método medido não faz autoboxing (e não aloca)
+    private Integer[] probes;
+    private Integer[] rangeEnds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new BPlusTree<>(order);
+        for (int key : distribution.distinct(size, 42)) {
+            tree.insert(key, key);
+        }
+        int[] generated = distribution.generate(PROBES, size * BenchmarkSupport.UNIVERSE_FACTOR, 7);
+        probes = new Integer[PROBES];
+        rangeEnds = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = generated[i];
+            rangeEnds[i] = generated[i] + RANGE_WIDTH - 1;
+        }
+    }
+
+    @Benchmark
+    public Integer search() {
+        return tree.search(probes[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public List<Integer> searchRange() {
+        int probe = next++ & (PROBES - 1);
+        return tree.searchRange(probes[probe], rangeEnds[probe]);
+    }
+}
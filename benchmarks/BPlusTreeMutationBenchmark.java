@@ -0,0 +1,83 @@
+package benchmarks;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import bplus.BPlusTree;
+
+/**
+ * Tempo para inserir ou remover 'size' chaves, o que exercita os caminhos de split e fusão.
+ * Cada medição é uma rodada completa (SingleShotTime): o score é o tempo do lote inteiro.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BPlusTreeMutationBenchmark {
+
+    @Param({ "8", "64", "256" })
+    public int order;
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    @Param({ "SEQUENTIAL", "UNIFORM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    private int[] operationKeys;
+
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        operationKeys = distribution.generate(size, size, 7);
+    }
+
+    @Benchmark
+    public BPlusTree<Integer, Integer> insert() {
+        BPlusTree<Integer, Integer> tree = new BPlusTree<>(order);
+        for (int key : operationKeys) {
+            tree.insert(key, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public BPlusTree<Integer, Integer> delete(Loaded loaded) {
+        for (int key : operationKeys) {
+            loaded.tree.delete(key);
+        }
+        return loaded.tree;
+    }
+
+    /**
+     * Estrutura cheia e nova para cada rodada de delete; só é montada para o benchmark que a usa,
+     * e fora da medição.
+     */
+    @State(Scope.Thread)
+    public static class Loaded {
+        BPlusTree<Integer, Integer> tree;
+
+        @Setup(Level.Invocation)
+        public void setUp(BenchmarkParams params) {
+            int[] keys = KeyDistribution.valueOf(params.getParam("distribution"))
+                    .distinct(Integer.parseInt(params.getParam("size")), 42);
+            tree = new BPlusTree<>(Integer.parseInt(params.getParam("order")));
+            for (int key : keys) {
+                tree.insert(key, key);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Roda os benchmarks com o profiler de alocação (-prof gc) ligado e grava os resultados em
+ * JSON (por padrão em benchmarks/resultados.json), para comparar execuções de builds diferentes.
+ * Aceita as mesmas opções de linha de comando do JMH, por exemplo:
+ *   java benchmarks.BenchmarkRunner BPlusTree -p order=64 -rff base.json
+ */
+public class BenchmarkRunner {
+    private static final String DEFAULT_RESULT_FILE = "benchmarks/resultados.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include("benchmarks\\..*");
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,9 @@
+package benchmarks;
+
+final class BenchmarkSupport {
+    // Universo das chaves de busca: metade delas não está no índice
+    static final int UNIVERSE_FACTOR = 2;
+
+    private BenchmarkSupport() {
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hash.ExtendibleHash;
+
+/**
+ * Buscas em um ExtendibleHash já carregado com 'size' chaves distintas, com as chaves
+ * buscadas seguindo 'distribution' sobre o dobro do universo carregado.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtendibleHashBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({ "4", "16", "64" })
+    public int bucketSize;
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    @Param({ "SEQUENTIAL", "UNIFORM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    private ExtendibleHash hash;
+    private int[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hash = new ExtendibleHash(bucketSize);
+        for (int key : distribution.distinct(size, 42)) {
+            hash.insere(key);
+        }
+        probes = distribution.generate(PROBES, size * BenchmarkSupport.UNIVERSE_FACTOR, 7);
+    }
+
+    @Benchmark
+    public boolean busca() {
+        return hash.busca(probes[next++ & (PROBES - 1)]);
+    }
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import hash.ExtendibleHash;
+import hash.HashLinear;
+
+/**
+ * Tempo para inserir ou remover 'size' chaves, o que exercita split de bucket, duplicação
+ * do diretório, fusão e encolhimento. O score é o tempo do lote inteiro (SingleShotTime).
+ * insereLinear faz o mesmo lote no HashLinear, para comparar o custo de crescer sem diretório.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ExtendibleHashMutationBenchmark {
+
+    @Param({ "4", "16", "64" })
+    public int bucketSize;
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    @Param({ "SEQUENTIAL", "UNIFORM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    private int[] operationKeys;
+
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        operationKeys = distribution.generate(size, size, 7);
+    }
+
+    @Benchmark
+    public ExtendibleHash insere() {
+        ExtendibleHash hash = new ExtendibleHash(bucketSize);
+        for (int key : operationKeys) {
+            hash.insere(key);
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public HashLinear insereLinear() {
+        HashLinear hash = new HashLinear(bucketSize);
+        for (int key : operationKeys) {
+            hash.insere(key);
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public ExtendibleHash remove(Loaded loaded) {
+        for (int key : operationKeys) {
+            loaded.hash.remove(key);
+        }
+        return loaded.hash;
+    }
+
+    /**
+     * Estrutura cheia e nova para cada rodada de remove; só é montada para o benchmark que a usa,
+     * e fora da medição.
+     */
+    @State(Scope.Thread)
+    public static class Loaded {
+        ExtendibleHash hash;
+
+        @Setup(Level.Invocation)
+        public void setUp(BenchmarkParams params) {
+            int[] keys = KeyDistribution.valueOf(params.getParam("distribution"))
+                    .distinct(Integer.parseInt(params.getParam("size")), 42);
+            hash = new ExtendibleHash(Integer.parseInt(params.getParam("bucketSize")));
+            for (int key : keys) {
+                hash.insere(key);
+            }
+        }
+    }
+}
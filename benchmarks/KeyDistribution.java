@@ -0,0 +1,113 @@
+package benchmarks;
+import java.util.Random;
+
+/**
+ * Distribuições de chaves usadas pelos benchmarks.
+ * As chaves caem em [0, universo); SEQUENTIAL percorre o universo em ordem, UNIFORM sorteia
+ * com probabilidade igual e ZIPFIAN concentra os acessos em poucas chaves quentes (theta = 0.99,
+ * como no YCSB), espalhadas pelo universo para não ficarem todas na mesma folha/bucket.
+ */
+public enum KeyDistribution {
+    SEQUENTIAL,
+    UNIFORM,
+    ZIPFIAN;
+
+    private static final double ZIPF_THETA = 0.99;
+
+    public int[] generate(int count, int universe, long seed) {
+        int[] keys = new int[count];
+        Random random = new Random(seed);
+        switch (this) {
+            case SEQUENTIAL:
+                for (int i = 0; i < count; i++) {
+                    keys[i] = i % universe;
+                }
+                break;
+            case UNIFORM:
+                for (int i = 0; i < count; i++) {
+                    keys[i] = random.nextInt(universe);
+                }
+                break;
+            case ZIPFIAN:
+                Zipf zipf = new Zipf(universe, ZIPF_THETA);
+                for (int i = 0; i < count; i++) {
+                    keys[i] = scramble(zipf.next(random), universe);
+                }
+                break;
+        }
+        return keys;
+    }
+
+    /**
+     * Chaves distintas [0, count) na ordem de inserção da distribuição: em ordem para SEQUENTIAL,
+     * embaralhadas para as demais (com chaves distintas não há "quentes" na carga inicial).
+     */
+    public int[] distinct(int count, long seed) {
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = i;
+        }
+        if (this != SEQUENTIAL) {
+            Random random = new Random(seed);
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = keys[i];
+                keys[i] = keys[j];
+                keys[j] = tmp;
+            }
+        }
+        return keys;
+    }
+
+    // Permuta o rank (mistura de bits do murmur3) para as chaves quentes não serem vizinhas
+    private static int scramble(int rank, int universe) {
+        int h = rank;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, universe);
+    }
+
+    /**
+     * Gerador Zipfiano de Gray et al. ("Quickly generating billion-record synthetic databases"),
+     * o mesmo do YCSB: O(n) para calcular zeta(n) e O(1) por amostra.
+     */
+    private static final class Zipf {
+        private final int items;
+        private final double theta;
+        private final double alpha;
+        private final double zetan;
+        private final double eta;
+
+        Zipf(int items, double theta) {
+            this.items = items;
+            this.theta = theta;
+            double zeta2 = zeta(2, theta);
+            this.zetan = zeta(items, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+        }
+
+        int next(Random random) {
+            double u = random.nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return 1;
+            }
+            return Math.min(items - 1, (int) (items * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+}
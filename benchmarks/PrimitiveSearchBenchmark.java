@@ -0,0 +1,95 @@
+package benchmarks;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bplus.BPlusTree;
+import bplus.KeySearch;
+import bplus.LongLongBPlusTree;
+
+/**
+ * Buscas pontuais em uma árvore já carregada com 'size' chaves long distintas: a BPlusTree
+ * genérica (chaves Long em ArrayList, compareTo) contra a LongLongBPlusTree com cada
+ * {@link KeySearch}. 'cacheLines' fixa o tamanho dos nós em linhas de cache de chaves
+ * (order = cacheLines * 8) para as duas árvores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveSearchBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({ "2", "8", "16" })
+    public int cacheLines;
+
+    @Param({ "1000000" })
+    public int size;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    private BPlusTree<Long, Long> boxed;
+    private LongLongBPlusTree binary;
+    private LongLongBPlusTree branchless;
+    private LongLongBPlusTree eytzinger;
+    private long[] probes;
+    // Os mesmos probes já em Long: a busca na árvore genérica não mede o autoboxing
+    private Long[] boxedProbes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int order = cacheLines * LongLongBPlusTree.KEYS_PER_CACHE_LINE;
+        boxed = new BPlusTree<>(order);
+        binary = new LongLongBPlusTree(order, KeySearch.BINARY);
+        branchless = new LongLongBPlusTree(order, KeySearch.BRANCHLESS);
+        eytzinger = new LongLongBPlusTree(order, KeySearch.EYTZINGER);
+        for (int key : distribution.distinct(size, 42)) {
+            boxed.insert((long) key, (long) key);
+            binary.insert(key, key);
+            branchless.insert(key, key);
+            eytzinger.insert(key, key);
+        }
+        int[] generated = distribution.generate(PROBES, size * BenchmarkSupport.UNIVERSE_FACTOR, 7);
+        probes = new long[PROBES];
+        boxedProbes = new Long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = generated[i];
+            boxedProbes[i] = probes[i];
+        }
+    }
+
+    @Benchmark
+    public Long boxed() {
+        return boxed.search(boxedProbes[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public long binary() {
+        return binary.search(probes[next++ & (PROBES - 1)]).orElse(-1);
+    }
+
+    @Benchmark
+    public long branchless() {
+        return branchless.search(probes[next++ & (PROBES - 1)]).orElse(-1);
+    }
+
+    @Benchmark
+    public long eytzinger() {
+        return eytzinger.search(probes[next++ & (PROBES - 1)]).orElse(-1);
+    }
+}
@@ -0,0 +1,356 @@
+package bplus;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Árvore B-link (Lehman-Yao) thread-safe, com a mesma semântica de insert/search/searchRange
+ * da BPlusTree.
+ *
+ * Todo nó, interno ou folha, tem um link para o irmão da direita e uma high key (limite
+ * superior exclusivo das chaves que ele cobre; nula no nó mais à direita do nível). Quem chega
+ * a um nó procurando uma chave >= high key sabe que o nó acabou de dividir e segue o link,
+ * em vez de recomeçar da raiz.
+ *
+ * O conteúdo de cada nó é um estado imutável publicado por um campo volatile: leitores leem um
+ * estado por nó, sem latch nenhum. Escritores travam um nó por vez na descida; no split, o novo
+ * irmão é montado por inteiro antes de o nó passar a apontar para ele, e só então o escritor
+ * trava o pai para inserir o separador (soltando o filho em seguida). Nunca há mais de dois nós
+ * travados, e nunca o caminho inteiro.
+ *
+ * Como no algoritmo original, delete não faz fusão: remove a chave da folha e deixa o nó
+ * abaixo do mínimo, o que continua correto para buscas e varreduras.
+ */
+public class BLinkTree<K extends Comparable<K>, V> {
+
+    private static final class State {
+        final Object[] keys;
+        final Object[] values;
+        final Node[] children;
+        // Limite superior exclusivo do nó; null = +infinito
+        final Object highKey;
+        final Node right;
+
+        State(Object[] keys, Object[] values, Node[] children, Object highKey, Node right) {
+            this.keys = keys;
+            this.values = values;
+            this.children = children;
+            this.highKey = highKey;
+            this.right = right;
+        }
+    }
+
+    private static final class Node {
+        final ReentrantLock lock = new ReentrantLock();
+        // 0 = folha
+        final int level;
+        volatile State state;
+
+        Node(int level, State state) {
+            this.level = level;
+            this.state = state;
+        }
+
+        boolean isLeaf() {
+            return level == 0;
+        }
+    }
+
+    private final int order;
+    private final int maxKeys;
+    private final ReentrantLock rootLock = new ReentrantLock();
+    private volatile Node root;
+
+    public BLinkTree(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("order must be >= 3");
+        }
+        this.order = order;
+        this.maxKeys = order - 1;
+        this.root = new Node(0, new State(new Object[0], new Object[0], null, null, null));
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public V search(K key) {
+        if (key == null) {
+            return null;
+        }
+        Node node = root;
+        while (true) {
+            State state = node.state;
+            if (beyondHighKey(state, key)) {
+                node = state.right;
+                continue;
+            }
+            if (node.isLeaf()) {
+                int index = binarySearch(state.keys, key);
+                return index >= 0 ? cast(state.values[index]) : null;
+            }
+            node = state.children[upperBound(state.keys, key)];
+        }
+    }
+
+    public List<V> searchRange(K startKey, K endKey) {
+        List<V> result = new ArrayList<>();
+        if (startKey == null || endKey == null || startKey.compareTo(endKey) > 0) {
+            return result;
+        }
+        Node node = findLeaf(startKey);
+        K lastKey = null;
+        while (node != null) {
+            State state = node.state;
+            for (int i = 0; i < state.keys.length; i++) {
+                K key = cast(state.keys[i]);
+                if (key.compareTo(startKey) < 0 || (lastKey != null && key.compareTo(lastKey) <= 0)) {
+                    continue;
+                }
+                if (key.compareTo(endKey) > 0) {
+                    return result;
+                }
+                result.add(cast(state.values[i]));
+                lastKey = key;
+            }
+            if (state.highKey != null && endKey.compareTo(cast(state.highKey)) < 0) {
+                return result;
+            }
+            node = state.right;
+        }
+        return result;
+    }
+
+    public void insert(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        List<Node> ancestors = new ArrayList<>();
+        Node node = root;
+        while (!node.isLeaf()) {
+            State state = node.state;
+            if (beyondHighKey(state, key)) {
+                node = state.right;
+                continue;
+            }
+            ancestors.add(node);
+            node = state.children[upperBound(state.keys, key)];
+        }
+
+        node = lockAndMoveRight(node, key);
+        State state = node.state;
+        int index = binarySearch(state.keys, key);
+        if (index >= 0) {
+            Object[] values = state.values.clone();
+            values[index] = value;
+            node.state = new State(state.keys, values, null, state.highKey, state.right);
+            node.lock.unlock();
+            return;
+        }
+        int position = -(index + 1);
+        Object[] keys = insertAt(state.keys, position, key);
+        Object[] values = insertAt(state.values, position, value);
+        if (keys.length <= maxKeys) {
+            node.state = new State(keys, values, null, state.highKey, state.right);
+            node.lock.unlock();
+            return;
+        }
+
+        // Split da folha: a irmã fica pronta antes de ser ligada ao nó
+        int mid = keys.length / 2;
+        Object separator = keys[mid];
+        Node sibling = new Node(0, new State(Arrays.copyOfRange(keys, mid, keys.length),
+                Arrays.copyOfRange(values, mid, values.length), null, state.highKey, state.right));
+        node.state = new State(Arrays.copyOf(keys, mid), Arrays.copyOf(values, mid), null, separator, sibling);
+        insertIntoParent(ancestors, node, separator, sibling);
+    }
+
+    /**
+     * Remove a chave da folha, sem fusão nem redistribuição.
+     */
+    public void delete(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        Node node = lockAndMoveRight(findLeaf(key), key);
+        try {
+            State state = node.state;
+            int index = binarySearch(state.keys, key);
+            if (index >= 0) {
+                node.state = new State(removeAt(state.keys, index), removeAt(state.values, index), null,
+                        state.highKey, state.right);
+            }
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    public int height() {
+        return root.level + 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        Node levelStart = root;
+        while (levelStart != null) {
+            String indent = "  ".repeat(root.level - levelStart.level);
+            Node node = levelStart;
+            while (node != null) {
+                State state = node.state;
+                sb.append(indent).append(node.isLeaf() ? "Folha: " : "Interno: ").append(Arrays.toString(state.keys));
+                if (node.isLeaf()) {
+                    sb.append(" (Valores: ").append(Arrays.toString(state.values)).append(")");
+                }
+                sb.append(" highKey=").append(state.highKey).append("\n");
+                node = state.right;
+            }
+            levelStart = levelStart.isLeaf() ? null : levelStart.state.children[0];
+        }
+        return sb.toString();
+    }
+
+    // --- SPLIT ---
+
+    /*
+     * Chamado com 'node' travado e já dividido (seu estado aponta para 'sibling').
+     * Trava o pai (seguindo links à direita), solta o filho e insere o separador;
+     * se o pai também estourar, repete um nível acima.
+     */
+    private void insertIntoParent(List<Node> ancestors, Node node, Object separator, Node sibling) {
+        while (true) {
+            Node parent = ancestors.isEmpty() ? null : ancestors.remove(ancestors.size() - 1);
+            if (parent == null) {
+                rootLock.lock();
+                try {
+                    if (root == node) {
+                        Node newRoot = new Node(node.level + 1,
+                                new State(new Object[] { separator }, null, new Node[] { node, sibling }, null, null));
+                        root = newRoot;
+                        node.lock.unlock();
+                        return;
+                    }
+                } finally {
+                    rootLock.unlock();
+                }
+                // A árvore cresceu depois da descida: procura o pai a partir da nova raiz
+                parent = findNodeAtLevel(cast(separator), node.level + 1);
+            }
+
+            parent = lockAndMoveRight(parent, cast(separator));
+            node.lock.unlock();
+
+            State state = parent.state;
+            int position = upperBound(state.keys, cast(separator));
+            Object[] keys = insertAt(state.keys, position, separator);
+            Node[] children = insertAt(state.children, position + 1, sibling);
+            if (keys.length <= maxKeys) {
+                parent.state = new State(keys, null, children, state.highKey, state.right);
+                parent.lock.unlock();
+                return;
+            }
+
+            int mid = keys.length / 2;
+            Object promoted = keys[mid];
+            Node parentSibling = new Node(parent.level, new State(Arrays.copyOfRange(keys, mid + 1, keys.length), null,
+                    Arrays.copyOfRange(children, mid + 1, children.length), state.highKey, state.right));
+            parent.state = new State(Arrays.copyOf(keys, mid), null, Arrays.copyOf(children, mid + 1), promoted,
+                    parentSibling);
+            node = parent;
+            separator = promoted;
+            sibling = parentSibling;
+        }
+    }
+
+    // --- NAVEGAÇÃO ---
+
+    private Node findLeaf(K key) {
+        return findNodeAtLevel(key, 0);
+    }
+
+    private Node findNodeAtLevel(K key, int level) {
+        Node node = root;
+        while (true) {
+            State state = node.state;
+            if (beyondHighKey(state, key)) {
+                node = state.right;
+            } else if (node.level == level) {
+                return node;
+            } else {
+                node = state.children[upperBound(state.keys, key)];
+            }
+        }
+    }
+
+    // Trava o nó e segue os links à direita (travando um por vez) até o nó que cobre a chave
+    private Node lockAndMoveRight(Node node, K key) {
+        node.lock.lock();
+        while (true) {
+            State state = node.state;
+            if (!beyondHighKey(state, key)) {
+                return node;
+            }
+            Node right = state.right;
+            right.lock.lock();
+            node.lock.unlock();
+            node = right;
+        }
+    }
+
+    private boolean beyondHighKey(State state, K key) {
+        return state.highKey != null && key.compareTo(cast(state.highKey)) >= 0;
+    }
+
+    // --- AUXILIARES ---
+
+    private int upperBound(Object[] keys, K key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key.compareTo(cast(keys[mid])) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int binarySearch(Object[] keys, K key) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = key.compareTo(cast(keys[mid]));
+            if (cmp > 0) {
+                low = mid + 1;
+            } else if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static <T> T[] insertAt(T[] array, int index, T element) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        result[index] = element;
+        return result;
+    }
+
+    private static Object[] removeAt(Object[] array, int index) {
+        Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object object) {
+        return (T) object;
+    }
+}
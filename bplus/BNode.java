@@ -5,13 +5,14 @@ import java.util.List;
 abstract class BNode<K, V> {
     protected List<K> keys;
     protected final int order;
-    protected BNode<K, V> parent;
+    protected final TreeEvents events;
 
-    public BNode(int order) {
+    public BNode(int order, TreeEvents events) {
         if(order < 2){
             throw new IllegalArgumentException("order must be >= 2");
         }
         this.order = order;
+        this.events = events;
         this.keys = new ArrayList<>();
     }
 
@@ -23,11 +24,10 @@ abstract class BNode<K, V> {
         return this.getKeyCount() == this.order;
     }
 
+    // Abaixo disso o nó (se não for a raiz) precisa de redistribuição ou fusão
+    public abstract int minKeys();
+
     public abstract boolean isLeaf();
-    public abstract V search(K key);
-    public abstract SplitResult<K, V> insert(K key, V value);
-    public abstract void delete(K key);
-    public abstract K getFirstLeafKey();
-    
+
     public abstract String toString(String indent);
-}
\ No newline at end of file
+}
@@ -1,107 +1,848 @@
 package bplus;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import metrics.IndexEvent;
+import metrics.IndexListener;
+import metrics.IndexMetrics;
+import metrics.IndexOperation;
 
 public class BPlusTree<K extends Comparable<K>, V> {
+    public static final double DEFAULT_FILL_FACTOR = 0.9;
+    public static final int DEFAULT_RUN_SIZE = 1_000_000;
+
     private BNode<K,V> root;
+    private int height = 1;
     private final int order;
+    private final TreeEvents events = new TreeEvents();
+    // Deletes não rebalanceiam: ver setDeferredRebalance
+    private boolean deferredRebalance;
+    // Incrementado a cada alteração; os cursores de RangeScan usam para detectar alteração concorrente
+    private int modCount;
 
     public BPlusTree(int order) {
         this.order = order;
-        this.root = new LeafBNode<>(order);
+        this.root = new LeafBNode<>(order, events);
+    }
+
+    /**
+     * Árvore que promove, nos splits de folha, o separador escolhido por 'separators' em vez da
+     * primeira chave da nova folha (ex.: {@link SeparatorPolicy#SHORTEST_STRING} para chaves String).
+     */
+    public BPlusTree(int order, SeparatorPolicy<K> separators) {
+        this(order);
+        this.events.separators = separators;
+    }
+
+    /**
+     * Instala o listener dos eventos estruturais (e, se ele pedir, da latência das operações).
+     * Sem listener a árvore não imprime nada; os drivers interativos usam o ConsoleListener.
+     */
+    public void setListener(IndexListener listener) {
+        this.events.listener = listener == null ? IndexListener.NOOP : listener;
+        this.events.timed = this.events.listener.recordsLatency();
+    }
+
+    /**
+     * Registra em 'metrics' os gauges da árvore: altura, número de nós, de folhas e de chaves
+     * e a ocupação média das folhas.
+     */
+    public void registerGauges(IndexMetrics metrics) {
+        metrics.gauge("height", this::height);
+        metrics.gauge("nodes", () -> statistics()[0]);
+        metrics.gauge("leaves", () -> statistics()[1]);
+        metrics.gauge("keys", () -> statistics()[2]);
+        metrics.gauge("fillFactor", () -> {
+            long[] statistics = statistics();
+            return (double) statistics[2] / (statistics[1] * (this.order - 1));
+        });
+    }
+
+    public int height() {
+        return this.height;
+    }
+
+    public int getOrder() {
+        return this.order;
     }
 
     public void insert(K key, V value) {
+        if (!events.timed) {
+            insertUntimed(key, value);
+            return;
+        }
+        long start = System.nanoTime();
+        insertUntimed(key, value);
+        events.listener.onOperation(IndexOperation.INSERT, System.nanoTime() - start);
+    }
+
+    /**
+     * Desce uma vez guardando o caminho (nó interno + filho seguido em cada nível) e sobe por ele
+     * enquanto houver split: sem recursão e sem ponteiros para o pai.
+     */
+    private void insertUntimed(K key, V value) {
         if (key == null) {
             throw new IllegalArgumentException("Chave não pode ser nula.");
         }
-        
-        SplitResult<K, V> splitResult = this.root.insert(key, value);
+        modCount++;
 
-        if (splitResult == null) {
+        List<InternalBNode<K, V>> path = new ArrayList<>(this.height - 1);
+        int[] indexes = new int[this.height - 1];
+        LeafBNode<K, V> leaf = descend(key, path, indexes);
+        leaf.insert(key, value);
+        if (!leaf.isFull()) {
             return;
         }
 
-        System.out.println("### AUMENTANDO ALTURA DA ÁRVORE (RAIZ DIVIDIU) ###");
-        InternalBNode<K, V> newRoot = new InternalBNode<>(this.order);
-        
-        K promotedKey = splitResult.promotedKey();
-        BNode<K, V> newSibling = splitResult.newSiblingNode();
+        SplitResult<K, V> splitResult = leaf.split();
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            InternalBNode<K, V> parent = path.get(depth);
+            parent.insertChild(indexes[depth], splitResult);
+            if (!parent.isFull()) {
+                return;
+            }
+            splitResult = parent.split();
+        }
 
-        newRoot.keys.add(promotedKey);
+        events.emit(IndexEvent.ROOT_SPLIT);
+        InternalBNode<K, V> newRoot = new InternalBNode<>(this.order, events);
+        newRoot.keys.add(splitResult.promotedKey());
         newRoot.children.add(this.root);
-        newRoot.children.add(newSibling);
-        
-        this.root.parent = newRoot;
-        newSibling.parent = newRoot;
-
+        newRoot.children.add(splitResult.newSiblingNode());
+        newRoot.compactionPending = InternalBNode.compactionPending(this.root);
         this.root = newRoot;
+        this.height++;
     }
     
     public V search(K key) {
+        if (!events.timed) {
+            return searchUntimed(key);
+        }
+        long start = System.nanoTime();
+        V value = searchUntimed(key);
+        events.listener.onOperation(IndexOperation.SEARCH, System.nanoTime() - start);
+        return value;
+    }
+
+    private V searchUntimed(K key) {
         if (key == null){
             return null;
         }
-        return this.root.search(key);
+        return findLeafNode(key).search(key);
     }
 
     public void delete(K key) {
+        if (!events.timed) {
+            deleteUntimed(key);
+            return;
+        }
+        long start = System.nanoTime();
+        deleteUntimed(key);
+        events.listener.onOperation(IndexOperation.DELETE, System.nanoTime() - start);
+    }
+
+    // Como o insert: o underflow sobe pelo caminho guardado na descida
+    private void deleteUntimed(K key) {
         if (key == null){
             throw new IllegalArgumentException("Chave não pode ser nula.");
         }
+        modCount++;
 
-        this.root.delete(key);
+        List<InternalBNode<K, V>> path = new ArrayList<>(this.height - 1);
+        int[] indexes = new int[this.height - 1];
+        LeafBNode<K, V> leaf = descend(key, path, indexes);
+        if (!leaf.delete(key)) {
+            return;
+        }
+        if (this.deferredRebalance) {
+            // A folha fica como está; o caminho é marcado para o compact achar a subocupação sem varrer a árvore
+            if (leaf.getKeyCount() < leaf.minKeys()) {
+                for (InternalBNode<K, V> internalNode : path) {
+                    internalNode.compactionPending = true;
+                }
+            }
+            return;
+        }
+
+        BNode<K, V> node = leaf;
+        for (int depth = path.size() - 1; depth >= 0 && node.getKeyCount() < node.minKeys(); depth--) {
+            InternalBNode<K, V> parent = path.get(depth);
+            parent.handleChildUnderflow(indexes[depth]);
+            node = parent;
+        }
 
         if (!this.root.isLeaf() && this.root.getKeyCount() == 0) {
-            System.out.println("### DIMINUINDO ALTURA DA ÁRVORE (RAIZ ENCOLHEU) ###");
-            BNode<K, V> oldRoot = this.root;
-            this.root = ((InternalBNode<K, V>) oldRoot).children.get(0);
-            this.root.parent = null;
+            events.emit(IndexEvent.ROOT_SHRINK);
+            this.root = ((InternalBNode<K, V>) this.root).children.get(0);
+            this.height--;
         }
     }
-    
-    private LeafBNode<K, V> findLeafNode(K key) {
-        if (key == null) { return null; }
+
+    // Desce até a folha da chave, anotando em 'path'/'indexes' os nós internos e o filho seguido em cada um
+    private LeafBNode<K, V> descend(K key, List<InternalBNode<K, V>> path, int[] indexes) {
         BNode<K, V> currentNode = this.root;
         while (!currentNode.isLeaf()) {
             InternalBNode<K, V> internalNode = (InternalBNode<K, V>) currentNode;
-            int index = Collections.binarySearch(internalNode.keys, key);
-            int childIndex;
-            if (index >= 0) {
-                childIndex = index + 1;
+            int childIndex = internalNode.childIndex(key);
+            indexes[path.size()] = childIndex;
+            path.add(internalNode);
+            currentNode = internalNode.children.get(childIndex);
+        }
+        return (LeafBNode<K, V>) currentNode;
+    }
+    
+    // --- REMOÇÃO ADIADA ---
+
+    /**
+     * Com 'deferred', delete só tira a chave da folha: folhas abaixo do mínimo (até vazias)
+     * são toleradas e o rebalanceamento fica para {@link #compact(double)}, chamado à mão ou por
+     * um {@link BackgroundCompactor}. Em rajadas de deletes (expiração de chaves) isso evita
+     * fundir nós que seriam preenchidos de novo logo depois. search, searchRange e scan
+     * continuam corretos com nós subocupados.
+     */
+    public void setDeferredRebalance(boolean deferred) {
+        this.deferredRebalance = deferred;
+    }
+
+    public boolean isDeferredRebalance() {
+        return this.deferredRebalance;
+    }
+
+    // Algum delete adiado deixou uma folha abaixo do mínimo desde o último compact
+    public boolean isCompactionPending() {
+        return InternalBNode.compactionPending(this.root);
+    }
+
+    public void compact() {
+        compact(0.5);
+    }
+
+    /**
+     * Rebalanceia as subárvores marcadas por deletes adiados, com os mesmos empréstimos e fusões
+     * do delete normal. Um nó é corrigido quando tem menos que 'fillThreshold' da capacidade
+     * (limitado ao mínimo da árvore, para que toda fusão caiba em um nó); com 0.5 a árvore volta
+     * a ter a ocupação mínima em todos os nós, com valores menores só os nós quase vazios são
+     * corrigidos. Só visita o caminho das folhas afetadas.
+     */
+    public void compact(double fillThreshold) {
+        if (fillThreshold <= 0 || fillThreshold > 1) {
+            throw new IllegalArgumentException("Fator de preenchimento deve estar em (0, 1].");
+        }
+        if (!isCompactionPending()) {
+            return;
+        }
+        modCount++;
+        int thresholdKeys = Math.max(1, (int) Math.ceil(fillThreshold * (this.order - 1)));
+        while (isCompactionPending()) {
+            compactSubtree((InternalBNode<K, V>) this.root, thresholdKeys);
+            while (!this.root.isLeaf() && this.root.getKeyCount() == 0) {
+                events.emit(IndexEvent.ROOT_SHRINK);
+                this.root = ((InternalBNode<K, V>) this.root).children.get(0);
+                this.height--;
+            }
+        }
+    }
+
+    /**
+     * Corrige os filhos abaixo do limite, da esquerda para a direita, depois de compactar cada filho
+     * marcado. Se sobrar um filho só (as fusões de baixo esvaziaram este nó), ele não tem irmão com
+     * quem fundir aqui: o nó continua marcado e o pai volta a ele depois de corrigi-lo.
+     */
+    private void compactSubtree(InternalBNode<K, V> node, int thresholdKeys) {
+        node.compactionPending = false;
+        int i = 0;
+        while (i < node.children.size()) {
+            BNode<K, V> child = node.children.get(i);
+            if (InternalBNode.compactionPending(child)) {
+                compactSubtree((InternalBNode<K, V>) child, thresholdKeys);
+            }
+            if (node.children.size() > 1 && belowThreshold(child, thresholdKeys)) {
+                int before = node.children.size();
+                node.handleChildUnderflow(i);
+                // Fundido com o irmão da esquerda: o nó resultante está em i - 1 e pode continuar abaixo do limite
+                if (node.children.size() < before && i > 0) {
+                    i--;
+                }
             } else {
-                childIndex = -(index + 1);
+                i++;
             }
-            currentNode = internalNode.children.get(childIndex);
+        }
+        BNode<K, V> onlyChild = node.children.get(0);
+        if (node.children.size() == 1 && (InternalBNode.compactionPending(onlyChild) || belowThreshold(onlyChild, thresholdKeys))) {
+            node.compactionPending = true;
+        }
+    }
+
+    // Limitado ao mínimo do nó: acima dele a fusão com um irmão poderia não caber em um nó
+    private static boolean belowThreshold(BNode<?, ?> node, int thresholdKeys) {
+        return node.getKeyCount() < Math.min(node.minKeys(), thresholdKeys);
+    }
+
+    // --- OPERAÇÕES EM LOTE ---
+
+    public void insertAll(Map<? extends K, ? extends V> entries) {
+        insertAll(entries.entrySet());
+    }
+
+    /**
+     * Insere um lote de pares com o mesmo efeito de inserts sucessivos (chaves repetidas ficam
+     * com o último valor do lote), mas ordenando o lote uma vez e descendo a árvore uma vez só:
+     * cada nó interno reparte entre os filhos a fatia do lote que lhe cabe, cada folha recebe
+     * todas as suas chaves em uma única intercalação, e um nó que estoura é dividido uma vez,
+     * em quantas partes forem necessárias, em vez de um split por chave.
+     */
+    public void insertAll(Collection<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        List<Map.Entry<? extends K, ? extends V>> batch = new ArrayList<>(entries);
+        for (Map.Entry<? extends K, ? extends V> entry : batch) {
+            if (entry.getKey() == null) {
+                throw new IllegalArgumentException("Chave não pode ser nula.");
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        modCount++;
+        // Ordenação estável: entre chaves iguais, a última do lote fica por último
+        batch.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+        List<K> keys = new ArrayList<>(batch.size());
+        List<V> values = new ArrayList<>(batch.size());
+        for (Map.Entry<? extends K, ? extends V> entry : batch) {
+            if (!keys.isEmpty() && keys.get(keys.size() - 1).compareTo(entry.getKey()) == 0) {
+                values.set(values.size() - 1, entry.getValue());
+            } else {
+                keys.add(entry.getKey());
+                values.add(entry.getValue());
+            }
+        }
+
+        List<SplitResult<K, V>> splits = insertBatch(this.root, keys, values, 0, keys.size());
+        while (!splits.isEmpty()) {
+            events.emit(IndexEvent.ROOT_SPLIT);
+            InternalBNode<K, V> newRoot = new InternalBNode<>(this.order, events);
+            newRoot.children.add(this.root);
+            newRoot.compactionPending = InternalBNode.compactionPending(this.root);
+            for (SplitResult<K, V> split : splits) {
+                newRoot.keys.add(split.promotedKey());
+                newRoot.children.add(split.newSiblingNode());
+            }
+            this.root = newRoot;
+            this.height++;
+            splits = splitInternal(newRoot);
+        }
+    }
+
+    /**
+     * Busca um lote de chaves e devolve os valores na ordem da entrada (null para as ausentes).
+     * As chaves são ordenadas uma vez e a descida pelos nós internos é compartilhada entre
+     * chaves vizinhas; cada folha é visitada uma vez só, com uma intercalação.
+     */
+    public List<V> searchAll(List<? extends K> keys) {
+        List<V> result = new ArrayList<>(Collections.nCopies(keys.size(), (V) null));
+        Integer[] order = new Integer[keys.size()];
+        int count = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i) != null) {
+                order[count++] = i;
+            }
+        }
+        Integer[] positions = Arrays.copyOf(order, count);
+        Arrays.sort(positions, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+        List<K> sortedKeys = new ArrayList<>(count);
+        for (Integer position : positions) {
+            sortedKeys.add(keys.get(position));
+        }
+        searchBatch(this.root, sortedKeys, positions, 0, count, result);
+        return result;
+    }
+
+    // Aplica as chaves [from, to) do lote (ordenadas e sem repetição) à subárvore de 'node'
+    private List<SplitResult<K, V>> insertBatch(BNode<K, V> node, List<K> keys, List<V> values, int from, int to) {
+        if (node.isLeaf()) {
+            LeafBNode<K, V> leaf = (LeafBNode<K, V>) node;
+            List<K> mergedKeys = new ArrayList<>(leaf.getKeyCount() + to - from);
+            List<V> mergedValues = new ArrayList<>(leaf.getKeyCount() + to - from);
+            int i = 0;
+            int j = from;
+            while (i < leaf.getKeyCount() || j < to) {
+                int cmp = i == leaf.getKeyCount() ? 1 : j == to ? -1 : leaf.keys.get(i).compareTo(keys.get(j));
+                if (cmp < 0) {
+                    mergedKeys.add(leaf.keys.get(i));
+                    mergedValues.add(leaf.values.get(i++));
+                } else {
+                    mergedKeys.add(keys.get(j));
+                    mergedValues.add(values.get(j++));
+                    if (cmp == 0) {
+                        i++;
+                    }
+                }
+            }
+            leaf.keys = mergedKeys;
+            leaf.values = mergedValues;
+            return splitLeaf(leaf);
+        }
+
+        InternalBNode<K, V> inner = (InternalBNode<K, V>) node;
+        List<K> newKeys = new ArrayList<>();
+        List<BNode<K, V>> newChildren = new ArrayList<>();
+        int start = from;
+        for (int c = 0; c < inner.children.size(); c++) {
+            int end = start;
+            if (c < inner.getKeyCount()) {
+                K separator = inner.keys.get(c);
+                while (end < to && keys.get(end).compareTo(separator) < 0) {
+                    end++;
+                }
+            } else {
+                end = to;
+            }
+            BNode<K, V> child = inner.children.get(c);
+            newChildren.add(child);
+            if (end > start) {
+                for (SplitResult<K, V> split : insertBatch(child, keys, values, start, end)) {
+                    newKeys.add(split.promotedKey());
+                    newChildren.add(split.newSiblingNode());
+                }
+            }
+            if (c < inner.getKeyCount()) {
+                newKeys.add(inner.keys.get(c));
+            }
+            start = end;
+        }
+        inner.keys = newKeys;
+        inner.children = newChildren;
+        return splitInternal(inner);
+    }
+
+    // Divide uma folha que estourou em partes iguais de no máximo order - 1 chaves
+    private List<SplitResult<K, V>> splitLeaf(LeafBNode<K, V> leaf) {
+        List<SplitResult<K, V>> splits = new ArrayList<>();
+        int size = leaf.getKeyCount();
+        if (size < this.order) {
+            return splits;
+        }
+        int pieces = (size + this.order - 2) / (this.order - 1);
+        int firstSize = size / pieces + (size % pieces > 0 ? 1 : 0);
+        int start = firstSize;
+        LeafBNode<K, V> previous = leaf;
+        for (int piece = 1; piece < pieces; piece++) {
+            int pieceSize = size / pieces + (piece < size % pieces ? 1 : 0);
+            events.emit(IndexEvent.LEAF_SPLIT);
+            LeafBNode<K, V> sibling = new LeafBNode<>(this.order, events);
+            sibling.keys.addAll(leaf.keys.subList(start, start + pieceSize));
+            sibling.values.addAll(leaf.values.subList(start, start + pieceSize));
+            sibling.next = previous.next;
+            if (previous.next != null) {
+                previous.next.previous = sibling;
+            }
+            previous.next = sibling;
+            sibling.previous = previous;
+            K last = previous.keys.get(previous == leaf ? firstSize - 1 : previous.getKeyCount() - 1);
+            splits.add(new SplitResult<>(events.separator(last, sibling.keys.get(0)), sibling));
+            previous = sibling;
+            start += pieceSize;
+        }
+        leaf.keys.subList(firstSize, size).clear();
+        leaf.values.subList(firstSize, size).clear();
+        return splits;
+    }
+
+    // Divide um nó interno que estourou em partes iguais de no máximo 'order' filhos; as chaves entre as partes sobem
+    private List<SplitResult<K, V>> splitInternal(InternalBNode<K, V> inner) {
+        List<SplitResult<K, V>> splits = new ArrayList<>();
+        if (inner.getKeyCount() < this.order) {
+            return splits;
+        }
+        int childCount = inner.children.size();
+        int pieces = (childCount + this.order - 1) / this.order;
+        int firstSize = childCount / pieces + (childCount % pieces > 0 ? 1 : 0);
+        int start = firstSize;
+        for (int piece = 1; piece < pieces; piece++) {
+            int pieceSize = childCount / pieces + (piece < childCount % pieces ? 1 : 0);
+            events.emit(IndexEvent.INTERNAL_SPLIT);
+            InternalBNode<K, V> sibling = new InternalBNode<>(this.order, events);
+            sibling.keys.addAll(inner.keys.subList(start, start + pieceSize - 1));
+            sibling.children.addAll(inner.children.subList(start, start + pieceSize));
+            sibling.compactionPending = inner.compactionPending;
+            splits.add(new SplitResult<>(inner.keys.get(start - 1), sibling));
+            start += pieceSize;
+        }
+        inner.keys.subList(firstSize - 1, inner.getKeyCount()).clear();
+        inner.children.subList(firstSize, childCount).clear();
+        return splits;
+    }
+
+    // Preenche em 'result' os valores das chaves [from, to) do lote ordenado, compartilhando a descida
+    private void searchBatch(BNode<K, V> node, List<K> keys, Integer[] positions, int from, int to, List<V> result) {
+        if (node.isLeaf()) {
+            LeafBNode<K, V> leaf = (LeafBNode<K, V>) node;
+            int i = 0;
+            for (int j = from; j < to; j++) {
+                K key = keys.get(j);
+                while (i < leaf.getKeyCount() && leaf.keys.get(i).compareTo(key) < 0) {
+                    i++;
+                }
+                if (i < leaf.getKeyCount() && leaf.keys.get(i).compareTo(key) == 0) {
+                    result.set(positions[j], leaf.values.get(i));
+                }
+            }
+            return;
+        }
+        InternalBNode<K, V> inner = (InternalBNode<K, V>) node;
+        int start = from;
+        for (int c = 0; c < inner.children.size() && start < to; c++) {
+            int end = start;
+            if (c < inner.getKeyCount()) {
+                K separator = inner.keys.get(c);
+                while (end < to && keys.get(end).compareTo(separator) < 0) {
+                    end++;
+                }
+            } else {
+                end = to;
+            }
+            if (end > start) {
+                searchBatch(inner.children.get(c), keys, positions, start, end, result);
+            }
+            start = end;
+        }
+    }
+
+    // --- BULK LOAD ---
+
+    public void bulkLoad(Iterator<? extends Map.Entry<K, V>> sortedEntries) {
+        bulkLoad(sortedEntries, DEFAULT_FILL_FACTOR);
+    }
+
+    public void bulkLoad(Stream<? extends Map.Entry<K, V>> sortedEntries, double fillFactor) {
+        bulkLoad(sortedEntries.iterator(), fillFactor);
+    }
+
+    /**
+     * Constrói a árvore de baixo para cima a partir de pares já ordenados por chave,
+     * sem passar por insert: as folhas são preenchidas até 'fillFactor' da capacidade e
+     * encadeadas, e cada nível interno é montado sobre o anterior em uma única passada.
+     * Chaves repetidas ficam com o último valor, como em inserts sucessivos.
+     * A árvore precisa estar vazia.
+     */
+    public void bulkLoad(Iterator<? extends Map.Entry<K, V>> sortedEntries, double fillFactor) {
+        if (fillFactor <= 0 || fillFactor > 1) {
+            throw new IllegalArgumentException("Fator de preenchimento deve estar em (0, 1].");
+        }
+        if (!this.root.isLeaf() || this.root.getKeyCount() > 0) {
+            throw new IllegalStateException("bulkLoad exige uma árvore vazia.");
+        }
+        modCount++;
+
+        int maxLeafKeys = this.order - 1;
+        int minLeafKeys = Math.max(1, (int) Math.ceil((this.order - 1) / 2.0));
+        int leafKeys = Math.max(minLeafKeys, Math.min(maxLeafKeys, (int) Math.round(fillFactor * maxLeafKeys)));
+
+        List<BNode<K, V>> level = new ArrayList<>();
+        LeafBNode<K, V> current = new LeafBNode<>(this.order, events);
+        K lastKey = null;
+        while (sortedEntries.hasNext()) {
+            Map.Entry<K, V> entry = sortedEntries.next();
+            K key = entry.getKey();
+            if (key == null) {
+                throw new IllegalArgumentException("Chave não pode ser nula.");
+            }
+            if (lastKey != null) {
+                int cmp = key.compareTo(lastKey);
+                if (cmp < 0) {
+                    throw new IllegalArgumentException("Entrada do bulkLoad não está ordenada: " + key + " após " + lastKey);
+                }
+                if (cmp == 0) {
+                    current.values.set(current.getKeyCount() - 1, entry.getValue());
+                    continue;
+                }
+            }
+            if (current.getKeyCount() == leafKeys) {
+                level.add(current);
+                LeafBNode<K, V> sibling = new LeafBNode<>(this.order, events);
+                current.next = sibling;
+                sibling.previous = current;
+                current = sibling;
+            }
+            current.keys.add(key);
+            current.values.add(entry.getValue());
+            lastKey = key;
+        }
+        if (current.getKeyCount() == 0) {
+            return;
+        }
+        level.add(current);
+        balanceLastLeaves(level, minLeafKeys, maxLeafKeys);
+
+        // Separador entre cada folha e a anterior (para a primeira, a própria primeira chave)
+        List<K> firstKeys = new ArrayList<>(level.size());
+        for (int i = 0; i < level.size(); i++) {
+            K first = level.get(i).keys.get(0);
+            firstKeys.add(i == 0 ? first : events.separator(level.get(i - 1).keys.get(level.get(i - 1).getKeyCount() - 1), first));
+        }
+
+        int minChildren = (int) Math.ceil(this.order / 2.0);
+        int childrenPerNode = Math.max(minChildren, Math.min(this.order, (int) Math.round(fillFactor * this.order)));
+        while (level.size() > 1) {
+            int nodeCount = (level.size() + childrenPerNode - 1) / childrenPerNode;
+            // Cada nó interno (fora a raiz) precisa de pelo menos minChildren filhos; com no máximo
+            // level.size() / minChildren nós, a divisão por igual nunca passa de 'order' filhos
+            nodeCount = Math.min(nodeCount, Math.max(1, level.size() / minChildren));
+            List<BNode<K, V>> parents = new ArrayList<>(nodeCount);
+            List<K> parentFirstKeys = new ArrayList<>(nodeCount);
+            int index = 0;
+            // Distribui os filhos por igual para que nenhum nó do nível fique abaixo do mínimo
+            for (int n = 0; n < nodeCount; n++) {
+                int count = level.size() / nodeCount + (n < level.size() % nodeCount ? 1 : 0);
+                InternalBNode<K, V> parent = new InternalBNode<>(this.order, events);
+                parentFirstKeys.add(firstKeys.get(index));
+                for (int j = 0; j < count; j++, index++) {
+                    BNode<K, V> child = level.get(index);
+                    if (j > 0) {
+                        parent.keys.add(firstKeys.get(index));
+                    }
+                    parent.children.add(child);
+                }
+                parents.add(parent);
+            }
+            level = parents;
+            firstKeys = parentFirstKeys;
+            this.height++;
+        }
+        this.root = level.get(0);
+        assert checkStructure();
+    }
+
+    /**
+     * Igual ao bulkLoad, mas aceita entrada fora de ordem: ela passa antes por uma
+     * ordenação externa em blocos de 'runSize' pares, gravados em 'tempDirectory'
+     * (ou no diretório temporário do sistema, se nulo). Chaves e valores precisam ser Serializable.
+     */
+    public void bulkLoadUnsorted(Iterator<? extends Map.Entry<K, V>> entries, double fillFactor,
+            int runSize, Path tempDirectory) {
+        try (ExternalMergeSort<K, V> sorter = new ExternalMergeSort<>(runSize, tempDirectory)) {
+            bulkLoad(sorter.sort(entries), fillFactor);
+        }
+    }
+
+    public void bulkLoadUnsorted(Iterator<? extends Map.Entry<K, V>> entries) {
+        bulkLoadUnsorted(entries, DEFAULT_FILL_FACTOR, DEFAULT_RUN_SIZE, null);
+    }
+
+    // A última folha pode ter ficado com poucas chaves: junta com a penúltima ou divide as duas ao meio
+    private void balanceLastLeaves(List<BNode<K, V>> leaves, int minLeafKeys, int maxLeafKeys) {
+        int size = leaves.size();
+        if (size < 2 || leaves.get(size - 1).getKeyCount() >= minLeafKeys) {
+            return;
+        }
+        LeafBNode<K, V> previous = (LeafBNode<K, V>) leaves.get(size - 2);
+        LeafBNode<K, V> last = (LeafBNode<K, V>) leaves.get(size - 1);
+        int total = previous.getKeyCount() + last.getKeyCount();
+        if (total <= maxLeafKeys) {
+            previous.keys.addAll(last.keys);
+            previous.values.addAll(last.values);
+            previous.next = null;
+            leaves.remove(size - 1);
+            return;
+        }
+        int keep = total / 2;
+        List<K> movedKeys = new ArrayList<>(previous.keys.subList(keep, previous.getKeyCount()));
+        List<V> movedValues = new ArrayList<>(previous.values.subList(keep, previous.getKeyCount()));
+        previous.keys.subList(keep, previous.getKeyCount()).clear();
+        previous.values.subList(keep, previous.values.size()).clear();
+        last.keys.addAll(0, movedKeys);
+        last.values.addAll(0, movedValues);
+    }
+
+    LeafBNode<K, V> findLeafNode(K key) {
+        if (key == null) { return null; }
+        BNode<K, V> currentNode = this.root;
+        while (!currentNode.isLeaf()) {
+            InternalBNode<K, V> internalNode = (InternalBNode<K, V>) currentNode;
+            currentNode = internalNode.children.get(internalNode.childIndex(key));
         }
         return (LeafBNode<K, V>) currentNode;
     }
 
     public List<V> searchRange(K startKey, K endKey){
+        if (!events.timed) {
+            return searchRangeUntimed(startKey, endKey);
+        }
+        long start = System.nanoTime();
+        List<V> result = searchRangeUntimed(startKey, endKey);
+        events.listener.onOperation(IndexOperation.SEARCH_RANGE, System.nanoTime() - start);
+        return result;
+    }
+
+    private List<V> searchRangeUntimed(K startKey, K endKey) {
         List<V> result = new ArrayList<>();
-        if (startKey == null || endKey == null || startKey.compareTo(endKey) > 0) {
+        if (startKey == null || endKey == null) {
             return result;
         }
-        LeafBNode<K, V> currentNode = findLeafNode(startKey);
-        boolean done = false;
-        while (currentNode != null && !done) {
-            for (int i = 0; i < currentNode.getKeyCount(); i++) {
-                K currentKey = currentNode.keys.get(i);
-                if (currentKey.compareTo(startKey) >= 0 && currentKey.compareTo(endKey) <= 0) {
-                    result.add(currentNode.values.get(i));
+        RangeScan.Cursor<K, V> cursor = scan().from(startKey, true).to(endKey, true).cursor();
+        while (cursor.hasNext()) {
+            result.add(cursor.nextValue());
+        }
+        return result;
+    }
+
+    /**
+     * Varredura preguiçosa de um intervalo, com limites inclusivos/exclusivos, ordem
+     * decrescente, offset/limit e Stream/Spliterator (ver {@link RangeScan}).
+     * Sem from/to, percorre a árvore inteira.
+     */
+    public RangeScan<K, V> scan() {
+        return new RangeScan<>(this);
+    }
+
+    // --- AGREGAÇÃO ---
+
+    /**
+     * Agrega os pares com chave em [startKey, endKey] (null = intervalo aberto daquele lado)
+     * no ForkJoinPool comum. Ver {@link #aggregate(Object, Object, RangeReducer, ForkJoinPool)}.
+     */
+    public <R> R aggregate(K startKey, K endKey, RangeReducer<? super K, ? super V, R> reducer) {
+        return aggregate(startKey, endKey, reducer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Agrega os pares com chave em [startKey, endKey] sem materializar o intervalo: ele é
+     * dividido nas chaves separadoras dos nós internos em subintervalos independentes,
+     * processados em paralelo em 'pool', e cada subintervalo é lido direto das folhas.
+     * Subárvores pequenas não são divididas. A árvore não pode ser alterada durante a agregação.
+     */
+    public <R> R aggregate(K startKey, K endKey, RangeReducer<? super K, ? super V, R> reducer, ForkJoinPool pool) {
+        if (startKey != null && endKey != null && startKey.compareTo(endKey) > 0) {
+            return reducer.identity();
+        }
+        int expectedModCount = this.modCount;
+        // Filhos por nó interno em uma árvore com ocupação típica (~3/4)
+        double fanout = Math.max(2, this.order * 0.75);
+        R result = pool.invoke(new RangeAggregation<>(reducer, this.root, height() - 1, fanout,
+                startKey, true, endKey, true));
+        if (this.modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        return result;
+    }
+
+    public long count(K startKey, K endKey) {
+        return aggregate(startKey, endKey, RangeReducer.count());
+    }
+
+    public long sum(K startKey, K endKey, ToLongFunction<? super V> mapper) {
+        return aggregate(startKey, endKey, RangeReducer.sum(mapper));
+    }
+
+    public Optional<V> min(K startKey, K endKey, Comparator<? super V> comparator) {
+        return Optional.ofNullable(aggregate(startKey, endKey, RangeReducer.<K, V>min(comparator)));
+    }
+
+    public Optional<V> max(K startKey, K endKey, Comparator<? super V> comparator) {
+        return Optional.ofNullable(aggregate(startKey, endKey, RangeReducer.<K, V>max(comparator)));
+    }
+
+    BNode<K, V> rootNode() {
+        return this.root;
+    }
+
+    int modificationCount() {
+        return this.modCount;
+    }
+
+    LeafBNode<K, V> firstLeafNode() {
+        BNode<K, V> currentNode = this.root;
+        while (!currentNode.isLeaf()) {
+            currentNode = ((InternalBNode<K, V>) currentNode).children.get(0);
+        }
+        return (LeafBNode<K, V>) currentNode;
+    }
+
+    LeafBNode<K, V> lastLeafNode() {
+        BNode<K, V> currentNode = this.root;
+        while (!currentNode.isLeaf()) {
+            List<BNode<K, V>> children = ((InternalBNode<K, V>) currentNode).children;
+            currentNode = children.get(children.size() - 1);
+        }
+        return (LeafBNode<K, V>) currentNode;
+    }
+
+    /*
+     * Confere os invariantes estruturais, nível a nível: todas as folhas na mesma altura, nenhum
+     * nó fora da raiz abaixo de minKeys(), nenhum nó com mais de order - 1 chaves, um filho a mais
+     * que chaves nos nós internos e chaves em ordem. Lança IllegalStateException na primeira
+     * violação; devolve true para poder ser usado em assert.
+     */
+    boolean checkStructure() {
+        List<BNode<K, V>> level = List.of(this.root);
+        int depth = 1;
+        while (true) {
+            List<BNode<K, V>> nextLevel = new ArrayList<>();
+            boolean leaves = level.get(0).isLeaf();
+            for (BNode<K, V> node : level) {
+                if (node.isLeaf() != leaves) {
+                    throw new IllegalStateException("Folhas em alturas diferentes no nível " + depth);
                 }
-                if (currentKey.compareTo(endKey) > 0) {
-                    done = true;
-                    break;
+                int keyCount = node.getKeyCount();
+                if (keyCount > this.order - 1 || (node != this.root && keyCount < node.minKeys())) {
+                    throw new IllegalStateException("Nó com " + keyCount + " chaves no nível " + depth
+                            + " (ordem " + this.order + ")");
                 }
+                for (int i = 1; i < keyCount; i++) {
+                    if (node.keys.get(i - 1).compareTo(node.keys.get(i)) >= 0) {
+                        throw new IllegalStateException("Chaves fora de ordem no nível " + depth);
+                    }
+                }
+                if (!leaves) {
+                    List<BNode<K, V>> children = ((InternalBNode<K, V>) node).children;
+                    if (children.size() != keyCount + 1) {
+                        throw new IllegalStateException("Nó interno com " + keyCount + " chaves e "
+                                + children.size() + " filhos no nível " + depth);
+                    }
+                    nextLevel.addAll(children);
+                }
+            }
+            if (leaves) {
+                if (depth != this.height) {
+                    throw new IllegalStateException("Altura " + depth + ", esperada " + this.height);
+                }
+                return true;
             }
-            currentNode = currentNode.next;
+            level = nextLevel;
+            depth++;
         }
-        return result;
     }
-    
-    
+
+    // {número de nós, número de folhas, número de chaves}
+    private long[] statistics() {
+        long[] statistics = new long[3];
+        List<BNode<K, V>> level = List.of(this.root);
+        while (!level.isEmpty()) {
+            List<BNode<K, V>> nextLevel = new ArrayList<>();
+            for (BNode<K, V> node : level) {
+                statistics[0]++;
+                if (node.isLeaf()) {
+                    statistics[1]++;
+                    statistics[2] += node.getKeyCount();
+                } else {
+                    nextLevel.addAll(((InternalBNode<K, V>) node).children);
+                }
+            }
+            level = nextLevel;
+        }
+        return statistics;
+    }
+
     @Override
     public String toString() {
         if (this.root == null) {
@@ -0,0 +1,58 @@
+package bplus;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Chama {@link BPlusTree#compact(double)} periodicamente em uma thread daemon, para árvores com
+ * {@link BPlusTree#setDeferredRebalance(boolean)} ligado. A BPlusTree não é thread-safe: 'lock'
+ * deve ser a mesma trava exclusiva que protege as escritas (e leituras) da árvore, e cada
+ * compactação só a segura enquanto roda.
+ */
+public final class BackgroundCompactor implements AutoCloseable {
+    private final BPlusTree<?, ?> tree;
+    private final Lock lock;
+    private final double fillThreshold;
+    private final ScheduledExecutorService executor;
+
+    public BackgroundCompactor(BPlusTree<?, ?> tree, Lock lock, double fillThreshold, long period, TimeUnit unit) {
+        if (fillThreshold <= 0 || fillThreshold > 1) {
+            throw new IllegalArgumentException("Fator de preenchimento deve estar em (0, 1].");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("Período deve ser positivo.");
+        }
+        this.tree = tree;
+        this.lock = lock;
+        this.fillThreshold = fillThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bplus-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::compactNow, period, period, unit);
+    }
+
+    // Também pode ser chamado direto, por exemplo antes de um snapshot
+    public void compactNow() {
+        lock.lock();
+        try {
+            if (tree.isCompactionPending()) {
+                tree.compact(fillThreshold);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
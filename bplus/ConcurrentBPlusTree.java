@@ -0,0 +1,622 @@
+package bplus;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Árvore B+ thread-safe, com a mesma semântica de insert/search/delete/searchRange da BPlusTree.
+ *
+ * Leitores (search, searchRange) usam optimistic lock coupling: cada nó tem um StampedLock
+ * e o leitor só lê o carimbo otimista, confere o carimbo do pai depois de obter o do filho e
+ * recomeça a descida se algum escritor mexeu no caminho. Leitores nunca adquirem latch.
+ *
+ * Escritores (insert, delete) fazem latch crabbing com latches exclusivos: descem travando
+ * o filho e soltam todos os ancestrais assim que o filho é "seguro" (um insert não vai
+ * dividi-lo, um delete não vai deixá-lo abaixo do mínimo). Assim só ficam travados os nós que
+ * de fato podem sofrer split, merge ou redistribuição. Um leitor que é invalidado muitas vezes
+ * seguidas (escrita intensa no mesmo caminho) passa a descer com latches compartilhados.
+ *
+ * As folhas só têm o ponteiro 'next': sem o 'previous', um split ou merge nunca precisa
+ * travar uma folha vizinha fora do pai já travado, o que elimina ciclos de espera.
+ */
+public class ConcurrentBPlusTree<K extends Comparable<K>, V> {
+
+    private abstract static class Node {
+        final StampedLock lock = new StampedLock();
+        final Object[] keys;
+        int count;
+        // Nó que saiu da árvore por fusão (ou raiz antiga que encolheu)
+        boolean obsolete;
+
+        Node(int keyCapacity) {
+            this.keys = new Object[keyCapacity];
+        }
+
+        abstract boolean isLeaf();
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values;
+        Leaf next;
+
+        Leaf(int keyCapacity) {
+            super(keyCapacity);
+            this.values = new Object[keyCapacity];
+        }
+
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(int keyCapacity) {
+            super(keyCapacity);
+            this.children = new Node[keyCapacity + 1];
+        }
+
+        @Override
+        boolean isLeaf() {
+            return false;
+        }
+    }
+
+    /**
+     * Leitura otimista inválida: o leitor recomeça a operação.
+     */
+    private static final class Restart extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final Restart INSTANCE = new Restart();
+
+        private Restart() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Tentativas otimistas antes de cair no caminho com latches compartilhados
+    private static final int OPTIMISTIC_ATTEMPTS = 16;
+
+    private final int order;
+    private final int maxKeys;
+    private final int minLeafKeys;
+    private final int minInternalKeys;
+    private volatile Node root;
+
+    public ConcurrentBPlusTree(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("order must be >= 3");
+        }
+        this.order = order;
+        this.maxKeys = order - 1;
+        this.minLeafKeys = (int) Math.ceil((order - 1) / 2.0);
+        // Mínimo de ceil(order / 2) filhos: garante que a fusão de um nó em underflow com um
+        // irmão no mínimo (mais o separador) cabe em um nó
+        this.minInternalKeys = (int) Math.ceil(order / 2.0) - 1;
+        // Um slot extra de chave para o estado transitório antes do split
+        this.root = new Leaf(order);
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    // --- LEITURA (OTIMISTA) ---
+
+    public V search(K key) {
+        if (key == null) {
+            return null;
+        }
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            try {
+                long[] stamp = new long[1];
+                Leaf leaf = optimisticFindLeaf(key, stamp);
+                int index = binarySearch(leaf.keys, leaf.count, key);
+                Object value = index >= 0 ? leaf.values[index] : null;
+                validate(leaf, stamp[0]);
+                return cast(value);
+            } catch (RuntimeException e) {
+                // Carimbo inválido ou estado rasgado (índice fora do vetor, chave nula...): recomeça
+                Thread.onSpinWait();
+            }
+        }
+        long[] stamp = new long[1];
+        Leaf leaf = lockedFindLeaf(key, stamp);
+        try {
+            int index = binarySearch(leaf.keys, leaf.count, key);
+            return index >= 0 ? cast(leaf.values[index]) : null;
+        } finally {
+            leaf.lock.unlockRead(stamp[0]);
+        }
+    }
+
+    public List<V> searchRange(K startKey, K endKey) {
+        List<V> result = new ArrayList<>();
+        if (startKey == null || endKey == null || startKey.compareTo(endKey) > 0) {
+            return result;
+        }
+        K from = startKey;
+        boolean inclusive = true;
+        int attempts = 0;
+        while (true) {
+            boolean optimistic = attempts++ < OPTIMISTIC_ATTEMPTS;
+            try {
+                long[] stamp = new long[1];
+                Leaf leaf = optimistic ? optimisticFindLeaf(from, stamp) : lockedFindLeaf(from, stamp);
+                while (true) {
+                    int count = Math.min(leaf.count, leaf.keys.length);
+                    Object[] keys = new Object[count];
+                    Object[] values = new Object[count];
+                    System.arraycopy(leaf.keys, 0, keys, 0, count);
+                    System.arraycopy(leaf.values, 0, values, 0, count);
+                    Leaf next = leaf.next;
+                    boolean obsolete = leaf.obsolete;
+                    if (optimistic) {
+                        validate(leaf, stamp[0]);
+                    } else {
+                        leaf.lock.unlockRead(stamp[0]);
+                    }
+                    if (obsolete) {
+                        throw Restart.INSTANCE;
+                    }
+
+                    for (int i = 0; i < count; i++) {
+                        K key = cast(keys[i]);
+                        int cmp = key.compareTo(from);
+                        if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                            continue;
+                        }
+                        if (key.compareTo(endKey) > 0) {
+                            return result;
+                        }
+                        result.add(cast(values[i]));
+                        from = key;
+                        inclusive = false;
+                    }
+                    if (next == null) {
+                        return result;
+                    }
+                    // A folha atual já foi solta: uma fusão no meio do caminho aparece como 'obsolete'
+                    stamp[0] = optimistic ? next.lock.tryOptimisticRead() : next.lock.readLock();
+                    if (stamp[0] == 0) {
+                        throw Restart.INSTANCE;
+                    }
+                    leaf = next;
+                }
+            } catch (RuntimeException e) {
+                if (!optimistic && e != Restart.INSTANCE) {
+                    throw e;
+                }
+                // Recomeça a partir da última chave entregue, sem repeti-la
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private Leaf optimisticFindLeaf(K key, long[] stampOut) {
+        Node node = root;
+        long stamp = node.lock.tryOptimisticRead();
+        if (stamp == 0) {
+            throw Restart.INSTANCE;
+        }
+        boolean atRoot = true;
+        while (!node.isLeaf()) {
+            Inner inner = (Inner) node;
+            Node child = inner.children[upperBound(inner.keys, inner.count, key)];
+            if (child == null) {
+                throw Restart.INSTANCE;
+            }
+            long childStamp = child.lock.tryOptimisticRead();
+            if (childStamp == 0) {
+                throw Restart.INSTANCE;
+            }
+            validate(node, stamp);
+            if (atRoot && root != node) {
+                throw Restart.INSTANCE;
+            }
+            atRoot = false;
+            node = child;
+            stamp = childStamp;
+        }
+        if (atRoot) {
+            validate(node, stamp);
+            if (root != node) {
+                throw Restart.INSTANCE;
+            }
+        }
+        stampOut[0] = stamp;
+        return (Leaf) node;
+    }
+
+    // Caminho pessimista, usado só depois de várias invalidações seguidas: latches compartilhados
+    // acoplados de cima para baixo (escritores nunca travam para cima, então não há ciclo)
+    private Leaf lockedFindLeaf(K key, long[] stampOut) {
+        Node node;
+        long stamp;
+        while (true) {
+            node = root;
+            stamp = node.lock.readLock();
+            if (root == node) {
+                break;
+            }
+            node.lock.unlockRead(stamp);
+        }
+        try {
+            while (!node.isLeaf()) {
+                Inner inner = (Inner) node;
+                Node child = inner.children[upperBound(inner.keys, inner.count, key)];
+                long childStamp = child.lock.readLock();
+                node.lock.unlockRead(stamp);
+                node = child;
+                stamp = childStamp;
+            }
+        } catch (RuntimeException e) {
+            node.lock.unlockRead(stamp);
+            throw e;
+        }
+        stampOut[0] = stamp;
+        return (Leaf) node;
+    }
+
+    private static void validate(Node node, long stamp) {
+        if (!node.lock.validate(stamp)) {
+            throw Restart.INSTANCE;
+        }
+    }
+
+    // --- ESCRITA (LATCH CRABBING) ---
+
+    public void insert(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        LatchPath path = new LatchPath();
+        Node node = lockRoot(path);
+        while (!node.isLeaf()) {
+            Inner inner = (Inner) node;
+            int childIndex = upperBound(inner.keys, inner.count, key);
+            Node child = inner.children[childIndex];
+            long stamp = child.lock.writeLock();
+            if (child.count < maxKeys) {
+                path.releaseAll();
+            }
+            path.push(child, stamp, childIndex);
+            node = child;
+        }
+
+        try {
+            Leaf leaf = (Leaf) node;
+            int index = binarySearch(leaf.keys, leaf.count, key);
+            if (index >= 0) {
+                leaf.values[index] = value;
+                return;
+            }
+            int insertionPoint = -(index + 1);
+            insertAt(leaf.keys, leaf.count, insertionPoint, key);
+            insertAt(leaf.values, leaf.count, insertionPoint, value);
+            leaf.count++;
+            if (leaf.count <= maxKeys) {
+                return;
+            }
+
+            Object promotedKey = splitLeaf(leaf);
+            Node newSibling = leaf.next;
+            for (int level = path.size() - 2; level >= 0; level--) {
+                Inner parent = (Inner) path.node(level);
+                int position = path.childIndex(level + 1);
+                insertAt(parent.keys, parent.count, position, promotedKey);
+                insertAt(parent.children, parent.count + 1, position + 1, newSibling);
+                parent.count++;
+                if (parent.count <= maxKeys) {
+                    return;
+                }
+                Inner sibling = new Inner(order);
+                promotedKey = splitInner(parent, sibling);
+                newSibling = sibling;
+            }
+            // A raiz (ainda travada) dividiu: publica a nova raiz antes de soltá-la
+            Inner newRoot = new Inner(order);
+            newRoot.keys[0] = promotedKey;
+            newRoot.children[0] = path.node(0);
+            newRoot.children[1] = newSibling;
+            newRoot.count = 1;
+            root = newRoot;
+        } finally {
+            path.releaseAll();
+        }
+    }
+
+    public void delete(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        LatchPath path = new LatchPath();
+        Node node = lockRoot(path);
+        while (!node.isLeaf()) {
+            Inner inner = (Inner) node;
+            int childIndex = upperBound(inner.keys, inner.count, key);
+            Node child = inner.children[childIndex];
+            long stamp = child.lock.writeLock();
+            int min = child.isLeaf() ? minLeafKeys : minInternalKeys;
+            if (child.count > min) {
+                path.releaseAll();
+            }
+            path.push(child, stamp, childIndex);
+            node = child;
+        }
+
+        try {
+            Leaf leaf = (Leaf) node;
+            int index = binarySearch(leaf.keys, leaf.count, key);
+            if (index < 0) {
+                return;
+            }
+            removeAt(leaf.keys, leaf.count, index);
+            removeAt(leaf.values, leaf.count, index);
+            leaf.count--;
+
+            for (int level = path.size() - 1; level > 0; level--) {
+                Node child = path.node(level);
+                int min = child.isLeaf() ? minLeafKeys : minInternalKeys;
+                if (child.count >= min) {
+                    return;
+                }
+                handleUnderflow((Inner) path.node(level - 1), path.childIndex(level));
+            }
+
+            Node top = path.node(0);
+            if (top == root && !top.isLeaf() && top.count == 0) {
+                top.obsolete = true;
+                root = ((Inner) top).children[0];
+            }
+        } finally {
+            path.releaseAll();
+        }
+    }
+
+    private Node lockRoot(LatchPath path) {
+        while (true) {
+            Node candidate = root;
+            long stamp = candidate.lock.writeLock();
+            if (root == candidate) {
+                path.push(candidate, stamp, -1);
+                return candidate;
+            }
+            candidate.lock.unlockWrite(stamp);
+        }
+    }
+
+    // --- SPLIT / MERGE (chamados com os nós envolvidos travados) ---
+
+    private Object splitLeaf(Leaf leaf) {
+        Leaf sibling = new Leaf(order);
+        int mid = leaf.count / 2;
+        int moved = leaf.count - mid;
+        System.arraycopy(leaf.keys, mid, sibling.keys, 0, moved);
+        System.arraycopy(leaf.values, mid, sibling.values, 0, moved);
+        sibling.count = moved;
+        clear(leaf.keys, mid, leaf.count);
+        clear(leaf.values, mid, leaf.count);
+        leaf.count = mid;
+        // A irmã só fica visível quando 'next' é publicado, já completa
+        sibling.next = leaf.next;
+        leaf.next = sibling;
+        return sibling.keys[0];
+    }
+
+    private Object splitInner(Inner node, Inner sibling) {
+        int mid = node.count / 2;
+        Object promotedKey = node.keys[mid];
+        int movedKeys = node.count - mid - 1;
+        System.arraycopy(node.keys, mid + 1, sibling.keys, 0, movedKeys);
+        System.arraycopy(node.children, mid + 1, sibling.children, 0, movedKeys + 1);
+        sibling.count = movedKeys;
+        clear(node.keys, mid, node.count);
+        clear(node.children, mid + 1, node.count + 1);
+        node.count = mid;
+        return promotedKey;
+    }
+
+    private void handleUnderflow(Inner parent, int childIndex) {
+        Node child = parent.children[childIndex];
+        if (childIndex > 0) {
+            Node left = parent.children[childIndex - 1];
+            long stamp = left.lock.writeLock();
+            try {
+                if (left.count > minKeys(left)) {
+                    borrowFromLeft(parent, childIndex, left, child);
+                } else {
+                    merge(parent, childIndex - 1, left, child);
+                }
+            } finally {
+                left.lock.unlockWrite(stamp);
+            }
+            return;
+        }
+        Node right = parent.children[childIndex + 1];
+        long stamp = right.lock.writeLock();
+        try {
+            if (right.count > minKeys(right)) {
+                borrowFromRight(parent, childIndex, child, right);
+            } else {
+                merge(parent, childIndex, child, right);
+            }
+        } finally {
+            right.lock.unlockWrite(stamp);
+        }
+    }
+
+    private int minKeys(Node node) {
+        return node.isLeaf() ? minLeafKeys : minInternalKeys;
+    }
+
+    private void borrowFromLeft(Inner parent, int childIndex, Node left, Node child) {
+        if (child.isLeaf()) {
+            Leaf l = (Leaf) left;
+            Leaf c = (Leaf) child;
+            insertAt(c.keys, c.count, 0, l.keys[l.count - 1]);
+            insertAt(c.values, c.count, 0, l.values[l.count - 1]);
+            c.count++;
+            l.count--;
+            l.keys[l.count] = null;
+            l.values[l.count] = null;
+            parent.keys[childIndex - 1] = c.keys[0];
+        } else {
+            Inner l = (Inner) left;
+            Inner c = (Inner) child;
+            insertAt(c.keys, c.count, 0, parent.keys[childIndex - 1]);
+            insertAt(c.children, c.count + 1, 0, l.children[l.count]);
+            c.count++;
+            parent.keys[childIndex - 1] = l.keys[l.count - 1];
+            l.keys[l.count - 1] = null;
+            l.children[l.count] = null;
+            l.count--;
+        }
+    }
+
+    private void borrowFromRight(Inner parent, int childIndex, Node child, Node right) {
+        if (child.isLeaf()) {
+            Leaf c = (Leaf) child;
+            Leaf r = (Leaf) right;
+            c.keys[c.count] = r.keys[0];
+            c.values[c.count] = r.values[0];
+            c.count++;
+            removeAt(r.keys, r.count, 0);
+            removeAt(r.values, r.count, 0);
+            r.count--;
+            parent.keys[childIndex] = r.keys[0];
+        } else {
+            Inner c = (Inner) child;
+            Inner r = (Inner) right;
+            c.keys[c.count] = parent.keys[childIndex];
+            c.children[c.count + 1] = r.children[0];
+            c.count++;
+            parent.keys[childIndex] = r.keys[0];
+            removeAt(r.keys, r.count, 0);
+            removeAt(r.children, r.count + 1, 0);
+            r.count--;
+        }
+    }
+
+    // Junta 'right' em 'left' e remove 'right' do pai
+    private void merge(Inner parent, int leftIndex, Node left, Node right) {
+        if (left.isLeaf()) {
+            Leaf l = (Leaf) left;
+            Leaf r = (Leaf) right;
+            System.arraycopy(r.keys, 0, l.keys, l.count, r.count);
+            System.arraycopy(r.values, 0, l.values, l.count, r.count);
+            l.count += r.count;
+            l.next = r.next;
+        } else {
+            Inner l = (Inner) left;
+            Inner r = (Inner) right;
+            l.keys[l.count] = parent.keys[leftIndex];
+            System.arraycopy(r.keys, 0, l.keys, l.count + 1, r.count);
+            System.arraycopy(r.children, 0, l.children, l.count + 1, r.count + 1);
+            l.count += r.count + 1;
+        }
+        right.obsolete = true;
+        removeAt(parent.keys, parent.count, leftIndex);
+        removeAt(parent.children, parent.count + 1, leftIndex + 1);
+        parent.count--;
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Nós travados por um escritor, da raiz (ou do ancestral mais alto ainda inseguro) até a folha.
+     */
+    private static final class LatchPath {
+        private final List<Node> nodes = new ArrayList<>();
+        private long[] stamps = new long[8];
+        private int[] childIndexes = new int[8];
+
+        void push(Node node, long stamp, int childIndex) {
+            int size = nodes.size();
+            if (size == stamps.length) {
+                stamps = Arrays.copyOf(stamps, size * 2);
+                childIndexes = Arrays.copyOf(childIndexes, size * 2);
+            }
+            nodes.add(node);
+            stamps[size] = stamp;
+            childIndexes[size] = childIndex;
+        }
+
+        int size() {
+            return nodes.size();
+        }
+
+        Node node(int level) {
+            return nodes.get(level);
+        }
+
+        // Posição do nó 'level' dentro do nó 'level - 1'
+        int childIndex(int level) {
+            return childIndexes[level];
+        }
+
+        void releaseAll() {
+            for (int i = 0; i < nodes.size(); i++) {
+                nodes.get(i).lock.unlockWrite(stamps[i]);
+            }
+            nodes.clear();
+        }
+    }
+
+    // Índice do filho a seguir: quantidade de separadores <= key
+    private int upperBound(Object[] keys, int count, K key) {
+        int low = 0;
+        int high = Math.min(count, keys.length);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key.compareTo(cast(keys[mid])) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Mesma convenção de Collections.binarySearch
+    private int binarySearch(Object[] keys, int count, K key) {
+        int low = 0;
+        int high = Math.min(count, keys.length) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = key.compareTo(cast(keys[mid]));
+            if (cmp > 0) {
+                low = mid + 1;
+            } else if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void insertAt(Object[] array, int size, int index, Object element) {
+        System.arraycopy(array, index, array, index + 1, size - index);
+        array[index] = element;
+    }
+
+    private static void removeAt(Object[] array, int size, int index) {
+        System.arraycopy(array, index + 1, array, index, size - index - 1);
+        array[size - 1] = null;
+    }
+
+    private static void clear(Object[] array, int from, int to) {
+        for (int i = from; i < to; i++) {
+            array[i] = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object object) {
+        return (T) object;
+    }
+}
@@ -0,0 +1,716 @@
+package bplus;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Árvore B+ com versões copy-on-write, com a mesma semântica de insert/search/delete/searchRange
+ * da BPlusTree, para varreduras longas que não podem travar (nem ser travadas por) escritores.
+ *
+ * Um nó publicado nunca muda. O escritor copia só o caminho da raiz até a folha alterada (e o
+ * irmão envolvido num split, redistribuição ou fusão), reaproveita todo o resto da versão anterior
+ * e publica a nova raiz com uma única escrita volatile. {@link #snapshot()} devolve a versão
+ * corrente: ela continua consistente, sem latch nenhum, por quanto tempo for usada, enquanto
+ * outras versões são publicadas. Uma versão que ninguém mais referencia é recolhida pelo GC.
+ *
+ * Por isso as folhas não têm 'next': ligar folhas obrigaria a copiar a vizinha (e o caminho até
+ * ela) a cada alteração. A varredura guarda a pilha de nós internos e sobe/desce por ela para
+ * passar de uma folha à seguinte.
+ *
+ * Escritores são serializados por uma trava. Cada escrita (ou lote, em insertAll/deleteAll) tem
+ * um dono: nós criados por ela ainda não estão visíveis e são alterados no lugar, então um lote
+ * copia cada nó no máximo uma vez, e a publicação acontece só no fim do lote.
+ */
+public class CopyOnWriteBPlusTree<K extends Comparable<K>, V> {
+
+    private abstract static class Node {
+        // Escrita que criou o nó: só ela pode alterá-lo, e só antes de publicar a raiz nova
+        final Object owner;
+        final Object[] keys;
+        int count;
+
+        Node(Object owner, int keyCapacity) {
+            this.owner = owner;
+            this.keys = new Object[keyCapacity];
+        }
+
+        abstract boolean isLeaf();
+
+        abstract Node copy(Object owner);
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values;
+
+        Leaf(Object owner, int keyCapacity) {
+            super(owner, keyCapacity);
+            this.values = new Object[keyCapacity];
+        }
+
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+
+        @Override
+        Leaf copy(Object owner) {
+            Leaf copy = new Leaf(owner, keys.length);
+            System.arraycopy(keys, 0, copy.keys, 0, count);
+            System.arraycopy(values, 0, copy.values, 0, count);
+            copy.count = count;
+            return copy;
+        }
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(Object owner, int keyCapacity) {
+            super(owner, keyCapacity);
+            this.children = new Node[keyCapacity + 1];
+        }
+
+        @Override
+        boolean isLeaf() {
+            return false;
+        }
+
+        @Override
+        Inner copy(Object owner) {
+            Inner copy = new Inner(owner, keys.length);
+            System.arraycopy(keys, 0, copy.keys, 0, count);
+            System.arraycopy(children, 0, copy.children, 0, count + 1);
+            copy.count = count;
+            return copy;
+        }
+    }
+
+    private final int order;
+    private final int maxKeys;
+    private final int minLeafKeys;
+    private final int minInternalKeys;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot<K, V> current;
+
+    public CopyOnWriteBPlusTree(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("order must be >= 3");
+        }
+        this.order = order;
+        this.maxKeys = order - 1;
+        this.minLeafKeys = (int) Math.ceil((order - 1) / 2.0);
+        this.minInternalKeys = (int) Math.ceil(order / 2.0) - 1;
+        // Um slot extra de chave para o estado transitório antes do split
+        this.current = new Snapshot<>(new Leaf(null, order), 1, 0, 0);
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Versão corrente da árvore. Leituras nela nunca veem escritas posteriores nem esperam por elas.
+     */
+    public Snapshot<K, V> snapshot() {
+        return current;
+    }
+
+    public V search(K key) {
+        return current.search(key);
+    }
+
+    public List<V> searchRange(K startKey, K endKey) {
+        return current.searchRange(startKey, endKey);
+    }
+
+    public long size() {
+        return current.size();
+    }
+
+    public int height() {
+        return current.height();
+    }
+
+    // --- ESCRITA ---
+
+    public void insert(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        writeLock.lock();
+        try {
+            Writer writer = new Writer(current);
+            writer.insert(key, value);
+            publish(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Insere todos os pares como uma única versão: leitores veem o lote inteiro ou nada dele.
+     */
+    public void insertAll(Map<? extends K, ? extends V> entries) {
+        for (K key : entries.keySet()) {
+            if (key == null) {
+                throw new IllegalArgumentException("Chave não pode ser nula.");
+            }
+        }
+        writeLock.lock();
+        try {
+            Writer writer = new Writer(current);
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                writer.insert(entry.getKey(), entry.getValue());
+            }
+            publish(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void delete(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        writeLock.lock();
+        try {
+            Writer writer = new Writer(current);
+            if (writer.delete(key)) {
+                publish(writer);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Remove todas as chaves como uma única versão; chaves ausentes são ignoradas.
+     */
+    public void deleteAll(Collection<? extends K> keys) {
+        writeLock.lock();
+        try {
+            Writer writer = new Writer(current);
+            boolean changed = false;
+            for (K key : keys) {
+                changed |= key != null && writer.delete(key);
+            }
+            if (changed) {
+                publish(writer);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void publish(Writer writer) {
+        current = new Snapshot<>(writer.root, writer.height, writer.size, current.version + 1);
+    }
+
+    @Override
+    public String toString() {
+        return current.toString();
+    }
+
+    /**
+     * Versão em construção: raiz, altura e tamanho de trabalho de uma escrita ou lote.
+     */
+    private final class Writer {
+        private final Object owner = new Object();
+        private Node root;
+        private int height;
+        private long size;
+        private Node[] path;
+        private int[] indexes;
+
+        Writer(Snapshot<K, V> base) {
+            this.root = base.root;
+            this.height = base.height;
+            this.size = base.size;
+        }
+
+        // O próprio nó se esta escrita o criou; senão, uma cópia dele que passa a ser dela
+        private Node writable(Node node) {
+            return node.owner == owner ? node : node.copy(owner);
+        }
+
+        // Torna graváveis a raiz e o caminho até a folha de 'key', guardando-o em path/indexes
+        private Leaf copyPath(K key) {
+            if (path == null || path.length < height - 1) {
+                path = new Node[height - 1];
+                indexes = new int[height - 1];
+            }
+            root = writable(root);
+            Node node = root;
+            for (int depth = 0; !node.isLeaf(); depth++) {
+                Inner inner = (Inner) node;
+                int index = upperBound(inner.keys, inner.count, key);
+                Node child = writable(inner.children[index]);
+                inner.children[index] = child;
+                path[depth] = inner;
+                indexes[depth] = index;
+                node = child;
+            }
+            return (Leaf) node;
+        }
+
+        void insert(K key, V value) {
+            Leaf leaf = copyPath(key);
+            int index = binarySearch(leaf.keys, leaf.count, key);
+            if (index >= 0) {
+                leaf.values[index] = value;
+                return;
+            }
+            index = -(index + 1);
+            insertAt(leaf.keys, leaf.count, index, key);
+            insertAt(leaf.values, leaf.count, index, value);
+            leaf.count++;
+            size++;
+            if (leaf.count <= maxKeys) {
+                return;
+            }
+
+            Node sibling = splitLeaf(leaf);
+            Object separator = sibling.keys[0];
+            for (int depth = height - 2; depth >= 0; depth--) {
+                Inner parent = (Inner) path[depth];
+                insertAt(parent.keys, parent.count, indexes[depth], separator);
+                insertAt(parent.children, parent.count + 1, indexes[depth] + 1, sibling);
+                parent.count++;
+                if (parent.count <= maxKeys) {
+                    return;
+                }
+                Inner parentSibling = new Inner(owner, order);
+                separator = splitInner(parent, parentSibling);
+                sibling = parentSibling;
+            }
+
+            Inner newRoot = new Inner(owner, order);
+            newRoot.keys[0] = separator;
+            newRoot.children[0] = root;
+            newRoot.children[1] = sibling;
+            newRoot.count = 1;
+            root = newRoot;
+            height++;
+        }
+
+        boolean delete(K key) {
+            // Chave ausente: nada é copiado
+            if (find(root, key) < 0) {
+                return false;
+            }
+            Leaf leaf = copyPath(key);
+            int index = binarySearch(leaf.keys, leaf.count, key);
+            removeAt(leaf.keys, leaf.count, index);
+            removeAt(leaf.values, leaf.count, index);
+            leaf.count--;
+            size--;
+
+            Node child = leaf;
+            for (int depth = height - 2; depth >= 0 && child.count < minKeys(child); depth--) {
+                Inner parent = (Inner) path[depth];
+                handleUnderflow(parent, indexes[depth]);
+                child = parent;
+            }
+            if (!root.isLeaf() && root.count == 0) {
+                root = ((Inner) root).children[0];
+                height--;
+            }
+            return true;
+        }
+
+        private Leaf splitLeaf(Leaf leaf) {
+            Leaf sibling = new Leaf(owner, order);
+            int mid = leaf.count / 2;
+            int moved = leaf.count - mid;
+            System.arraycopy(leaf.keys, mid, sibling.keys, 0, moved);
+            System.arraycopy(leaf.values, mid, sibling.values, 0, moved);
+            sibling.count = moved;
+            clear(leaf.keys, mid, leaf.count);
+            clear(leaf.values, mid, leaf.count);
+            leaf.count = mid;
+            return sibling;
+        }
+
+        private Object splitInner(Inner node, Inner sibling) {
+            int mid = node.count / 2;
+            Object promotedKey = node.keys[mid];
+            int movedKeys = node.count - mid - 1;
+            System.arraycopy(node.keys, mid + 1, sibling.keys, 0, movedKeys);
+            System.arraycopy(node.children, mid + 1, sibling.children, 0, movedKeys + 1);
+            sibling.count = movedKeys;
+            clear(node.keys, mid, node.count);
+            clear(node.children, mid + 1, node.count + 1);
+            node.count = mid;
+            return promotedKey;
+        }
+
+        // 'parent' e o filho em underflow já são desta escrita; o irmão alterado é copiado
+        private void handleUnderflow(Inner parent, int childIndex) {
+            Node child = parent.children[childIndex];
+            if (childIndex > 0) {
+                Node left = writable(parent.children[childIndex - 1]);
+                parent.children[childIndex - 1] = left;
+                if (left.count > minKeys(left)) {
+                    borrowFromLeft(parent, childIndex, left, child);
+                } else {
+                    merge(parent, childIndex - 1, left, child);
+                }
+                return;
+            }
+            Node right = parent.children[childIndex + 1];
+            if (right.count > minKeys(right)) {
+                right = writable(right);
+                parent.children[childIndex + 1] = right;
+                borrowFromRight(parent, childIndex, child, right);
+            } else {
+                // 'right' só é lido: sai da árvore nova, mas continua intacto nas versões antigas
+                merge(parent, childIndex, child, right);
+            }
+        }
+    }
+
+    private int minKeys(Node node) {
+        return node.isLeaf() ? minLeafKeys : minInternalKeys;
+    }
+
+    private static void borrowFromLeft(Inner parent, int childIndex, Node left, Node child) {
+        if (child.isLeaf()) {
+            Leaf l = (Leaf) left;
+            Leaf c = (Leaf) child;
+            insertAt(c.keys, c.count, 0, l.keys[l.count - 1]);
+            insertAt(c.values, c.count, 0, l.values[l.count - 1]);
+            c.count++;
+            l.count--;
+            l.keys[l.count] = null;
+            l.values[l.count] = null;
+            parent.keys[childIndex - 1] = c.keys[0];
+        } else {
+            Inner l = (Inner) left;
+            Inner c = (Inner) child;
+            insertAt(c.keys, c.count, 0, parent.keys[childIndex - 1]);
+            insertAt(c.children, c.count + 1, 0, l.children[l.count]);
+            c.count++;
+            parent.keys[childIndex - 1] = l.keys[l.count - 1];
+            l.keys[l.count - 1] = null;
+            l.children[l.count] = null;
+            l.count--;
+        }
+    }
+
+    private static void borrowFromRight(Inner parent, int childIndex, Node child, Node right) {
+        if (child.isLeaf()) {
+            Leaf c = (Leaf) child;
+            Leaf r = (Leaf) right;
+            c.keys[c.count] = r.keys[0];
+            c.values[c.count] = r.values[0];
+            c.count++;
+            removeAt(r.keys, r.count, 0);
+            removeAt(r.values, r.count, 0);
+            r.count--;
+            parent.keys[childIndex] = r.keys[0];
+        } else {
+            Inner c = (Inner) child;
+            Inner r = (Inner) right;
+            c.keys[c.count] = parent.keys[childIndex];
+            c.children[c.count + 1] = r.children[0];
+            c.count++;
+            parent.keys[childIndex] = r.keys[0];
+            removeAt(r.keys, r.count, 0);
+            removeAt(r.children, r.count + 1, 0);
+            r.count--;
+        }
+    }
+
+    // Junta 'right' em 'left' (que precisa ser gravável) e remove 'right' do pai
+    private static void merge(Inner parent, int leftIndex, Node left, Node right) {
+        if (left.isLeaf()) {
+            Leaf l = (Leaf) left;
+            Leaf r = (Leaf) right;
+            System.arraycopy(r.keys, 0, l.keys, l.count, r.count);
+            System.arraycopy(r.values, 0, l.values, l.count, r.count);
+            l.count += r.count;
+        } else {
+            Inner l = (Inner) left;
+            Inner r = (Inner) right;
+            l.keys[l.count] = parent.keys[leftIndex];
+            System.arraycopy(r.keys, 0, l.keys, l.count + 1, r.count);
+            System.arraycopy(r.children, 0, l.children, l.count + 1, r.count + 1);
+            l.count += r.count + 1;
+        }
+        removeAt(parent.keys, parent.count, leftIndex);
+        removeAt(parent.children, parent.count + 1, leftIndex + 1);
+        parent.count--;
+    }
+
+    // --- VERSÃO ---
+
+    /**
+     * Versão imutável da árvore, obtida por {@link #snapshot()}. Pode ser lida por qualquer número
+     * de threads, sem sincronização, enquanto a árvore continua recebendo escritas.
+     */
+    public static final class Snapshot<K extends Comparable<K>, V> {
+        private final Node root;
+        private final int height;
+        private final long size;
+        private final long version;
+
+        private Snapshot(Node root, int height, long size, long version) {
+            this.root = root;
+            this.height = height;
+            this.size = size;
+            this.version = version;
+        }
+
+        // Número de escritas publicadas antes desta versão
+        public long version() {
+            return version;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public int height() {
+            return height;
+        }
+
+        public V search(K key) {
+            if (key == null) {
+                return null;
+            }
+            Node node = root;
+            while (!node.isLeaf()) {
+                Inner inner = (Inner) node;
+                node = inner.children[upperBound(inner.keys, inner.count, key)];
+            }
+            int index = binarySearch(node.keys, node.count, key);
+            return index >= 0 ? cast(((Leaf) node).values[index]) : null;
+        }
+
+        public List<V> searchRange(K startKey, K endKey) {
+            List<V> result = new ArrayList<>();
+            if (startKey == null || endKey == null) {
+                return result;
+            }
+            Cursor<K, V> cursor = new Cursor<>(root, height, startKey, endKey);
+            while (cursor.hasNext()) {
+                result.add(cursor.nextValue());
+            }
+            return result;
+        }
+
+        /**
+         * Pares com startKey <= chave <= endKey em ordem crescente (null = intervalo aberto
+         * daquele lado), lidos preguiçosamente.
+         */
+        public Iterator<Map.Entry<K, V>> iterator(K startKey, K endKey) {
+            return new Cursor<>(root, height, startKey, endKey);
+        }
+
+        public Stream<Map.Entry<K, V>> stream(K startKey, K endKey) {
+            int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL
+                    | Spliterator.IMMUTABLE;
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(iterator(startKey, endKey), characteristics), false);
+        }
+
+        public long count(K startKey, K endKey) {
+            if (startKey == null && endKey == null) {
+                return size;
+            }
+            Cursor<K, V> cursor = new Cursor<>(root, height, startKey, endKey);
+            long count = 0;
+            while (cursor.hasNext()) {
+                cursor.nextValue();
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            append(sb, root, 0);
+            return sb.toString();
+        }
+
+        private static void append(StringBuilder sb, Node node, int depth) {
+            sb.append("  ".repeat(depth)).append(node.isLeaf() ? "Folha: " : "Interno: ")
+                    .append(Arrays.toString(Arrays.copyOf(node.keys, node.count)));
+            if (node.isLeaf()) {
+                sb.append(" (Valores: ")
+                        .append(Arrays.toString(Arrays.copyOf(((Leaf) node).values, node.count)))
+                        .append(")");
+            }
+            sb.append("\n");
+            if (!node.isLeaf()) {
+                Inner inner = (Inner) node;
+                for (int i = 0; i <= inner.count; i++) {
+                    append(sb, inner.children[i], depth + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cursor sobre uma versão: a pilha guarda, para cada nível interno, o nó e o filho em que a
+     * varredura está; ao fim de uma folha sobe até o primeiro nível com filho seguinte e desce
+     * pela borda esquerda dele.
+     */
+    private static final class Cursor<K extends Comparable<K>, V> implements Iterator<Map.Entry<K, V>> {
+        private final Inner[] nodes;
+        private final int[] positions;
+        private final K endKey;
+        // null quando a varredura acabou
+        private Leaf leaf;
+        private int position;
+
+        Cursor(Node root, int height, K startKey, K endKey) {
+            this.nodes = new Inner[height - 1];
+            this.positions = new int[height - 1];
+            this.endKey = endKey;
+            Node node = root;
+            for (int depth = 0; !node.isLeaf(); depth++) {
+                Inner inner = (Inner) node;
+                int index = startKey == null ? 0 : upperBound(inner.keys, inner.count, startKey);
+                nodes[depth] = inner;
+                positions[depth] = index;
+                node = inner.children[index];
+            }
+            this.leaf = (Leaf) node;
+            if (startKey != null) {
+                int index = binarySearch(leaf.keys, leaf.count, startKey);
+                this.position = index >= 0 ? index : -(index + 1);
+            }
+            settle();
+        }
+
+        // Leva (leaf, position) ao próximo par existente dentro do limite, ou encerra a varredura
+        private void settle() {
+            while (position >= leaf.count) {
+                int depth = nodes.length - 1;
+                while (depth >= 0 && positions[depth] >= nodes[depth].count) {
+                    depth--;
+                }
+                if (depth < 0) {
+                    leaf = null;
+                    return;
+                }
+                positions[depth]++;
+                Node node = nodes[depth].children[positions[depth]];
+                for (depth++; depth < nodes.length; depth++) {
+                    nodes[depth] = (Inner) node;
+                    positions[depth] = 0;
+                    node = nodes[depth].children[0];
+                }
+                leaf = (Leaf) node;
+                position = 0;
+            }
+            if (endKey != null && endKey.compareTo(cast(leaf.keys[position])) < 0) {
+                leaf = null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(cast(leaf.keys[position]),
+                    cast(leaf.values[position]));
+            position++;
+            settle();
+            return entry;
+        }
+
+        V nextValue() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            V value = cast(leaf.values[position]);
+            position++;
+            settle();
+            return value;
+        }
+    }
+
+    // --- AUXILIARES ---
+
+    // Posição da chave na folha da versão (>= 0 se ela existe), sem copiar nada
+    private static <K extends Comparable<K>> int find(Node node, K key) {
+        while (!node.isLeaf()) {
+            Inner inner = (Inner) node;
+            node = inner.children[upperBound(inner.keys, inner.count, key)];
+        }
+        return binarySearch(node.keys, node.count, key);
+    }
+
+    // Índice do filho a seguir: quantidade de separadores <= key
+    private static <K extends Comparable<K>> int upperBound(Object[] keys, int count, K key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key.compareTo(cast(keys[mid])) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Mesma convenção de Collections.binarySearch
+    private static <K extends Comparable<K>> int binarySearch(Object[] keys, int count, K key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = key.compareTo(cast(keys[mid]));
+            if (cmp > 0) {
+                low = mid + 1;
+            } else if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void insertAt(Object[] array, int size, int index, Object element) {
+        System.arraycopy(array, index, array, index + 1, size - index);
+        array[index] = element;
+    }
+
+    private static void removeAt(Object[] array, int size, int index) {
+        System.arraycopy(array, index + 1, array, index, size - index - 1);
+        array[size - 1] = null;
+    }
+
+    private static void clear(Object[] array, int from, int to) {
+        for (int i = from; i < to; i++) {
+            array[i] = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object object) {
+        return (T) object;
+    }
+}
@@ -0,0 +1,197 @@
+package bplus;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Ordenação externa de pares (chave, valor) para o bulk load da árvore.
+ * A entrada é lida em blocos de 'runSize' pares; cada bloco é ordenado em memória e, se houver
+ * mais de um, gravado em um arquivo temporário (serialização Java, então chaves e valores
+ * precisam ser Serializable). Os blocos são depois intercalados com uma fila de prioridade.
+ *
+ * A ordenação é estável: entre chaves iguais, a que apareceu por último na entrada sai por
+ * último, e por isso vence no bulk load, como aconteceria com inserts sucessivos.
+ *
+ * close() fecha os leitores dos blocos ainda abertos e apaga os arquivos temporários; chame-o
+ * (try-with-resources) mesmo que a intercalação pare no meio ou lance exceção.
+ */
+final class ExternalMergeSort<K extends Comparable<K>, V> implements AutoCloseable {
+    private final int runSize;
+    private final Path tempDirectory;
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<RunReader> readers = new ArrayList<>();
+
+    ExternalMergeSort(int runSize, Path tempDirectory) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("runSize must be >= 1");
+        }
+        this.runSize = runSize;
+        this.tempDirectory = tempDirectory;
+    }
+
+    Iterator<Map.Entry<K, V>> sort(Iterator<? extends Map.Entry<K, V>> input) {
+        Comparator<Map.Entry<K, V>> byKey = Map.Entry.comparingByKey();
+        List<Map.Entry<K, V>> run = nextRun(input);
+        run.sort(byKey);
+        if (!input.hasNext()) {
+            return run.iterator();
+        }
+
+        try {
+            while (!run.isEmpty()) {
+                runFiles.add(writeRun(run));
+                run = nextRun(input);
+                run.sort(byKey);
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+        return new Merger();
+    }
+
+    @Override
+    public void close() {
+        for (RunReader reader : readers) {
+            try {
+                reader.in.close();
+            } catch (IOException e) {
+                // Só leitura de arquivo temporário: segue fechando os demais
+            }
+        }
+        readers.clear();
+        for (Path file : runFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Arquivo temporário: não há o que fazer além de seguir apagando os demais
+            }
+        }
+        runFiles.clear();
+    }
+
+    private List<Map.Entry<K, V>> nextRun(Iterator<? extends Map.Entry<K, V>> input) {
+        List<Map.Entry<K, V>> run = new ArrayList<>(runSize);
+        while (run.size() < runSize && input.hasNext()) {
+            Map.Entry<K, V> entry = input.next();
+            run.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+        }
+        return run;
+    }
+
+    private Path writeRun(List<Map.Entry<K, V>> run) throws IOException {
+        Path file = tempDirectory == null ? Files.createTempFile("bplus-run", ".tmp")
+                : Files.createTempFile(tempDirectory, "bplus-run", ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (Map.Entry<K, V> entry : run) {
+                out.writeObject(entry.getKey());
+                out.writeObject(entry.getValue());
+                // Evita que a tabela de referências do stream segure todos os objetos do bloco
+                out.reset();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Leitor sequencial de um bloco gravado em disco.
+     */
+    private final class RunReader {
+        private final ObjectInputStream in;
+        private final int runIndex;
+        private Map.Entry<K, V> current;
+
+        RunReader(Path file, int runIndex) throws IOException {
+            InputStream raw = Files.newInputStream(file);
+            try {
+                this.in = new ObjectInputStream(new BufferedInputStream(raw));
+            } catch (IOException e) {
+                raw.close();
+                throw e;
+            }
+            this.runIndex = runIndex;
+            readers.add(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean advance() throws IOException {
+            try {
+                K key = (K) in.readObject();
+                V value = (V) in.readObject();
+                current = new AbstractMap.SimpleImmutableEntry<>(key, value);
+                return true;
+            } catch (EOFException e) {
+                in.close();
+                current = null;
+                return false;
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private final class Merger implements Iterator<Map.Entry<K, V>> {
+        private final PriorityQueue<RunReader> heap;
+
+        Merger() {
+            Comparator<RunReader> order = (a, b) -> {
+                int cmp = a.current.getKey().compareTo(b.current.getKey());
+                return cmp != 0 ? cmp : Integer.compare(a.runIndex, b.runIndex);
+            };
+            this.heap = new PriorityQueue<>(order);
+            try {
+                for (int i = 0; i < runFiles.size(); i++) {
+                    RunReader reader = new RunReader(runFiles.get(i), i);
+                    if (reader.advance()) {
+                        heap.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (heap.isEmpty()) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RunReader reader = heap.poll();
+            Map.Entry<K, V> entry = reader.current;
+            try {
+                if (reader.advance()) {
+                    heap.add(reader);
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            return entry;
+        }
+    }
+}
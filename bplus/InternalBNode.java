@@ -3,12 +3,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import metrics.IndexEvent;
+
 class InternalBNode<K extends Comparable<K>, V> extends BNode<K, V> {
 
     protected List<BNode<K, V>> children;
+    // Há nós subocupados nesta subárvore deixados por deletes adiados (ver BPlusTree.compact)
+    boolean compactionPending;
 
-    public InternalBNode(int order) {
-        super(order);
+    public InternalBNode(int order, TreeEvents events) {
+        super(order, events);
         this.children = new ArrayList<>();
     }
 
@@ -17,100 +21,59 @@ class InternalBNode<K extends Comparable<K>, V> extends BNode<K, V> {
         return false;
     }
 
+    // ceil(order / 2) filhos
     @Override
-    public V search(K key) {
-        int i = 0;
-        while (i < this.keys.size() && key.compareTo(this.keys.get(i)) >= 0) {
-            i++;
-        }
-        return this.children.get(i).search(key);
+    public int minKeys() {
+        return (int) Math.ceil(this.order / 2.0) - 1;
     }
 
-    @Override
-    public SplitResult<K, V> insert(K key, V value){
+    // Filho em que 'key' está: chave igual ao separador vai para a direita
+    public int childIndex(K key) {
         int index = Collections.binarySearch(this.keys, key);
-        int childIndex;
         if (index >= 0) {
-            childIndex = index + 1;
-        } else {
-            childIndex = -(index + 1);
-        }
-        
-        SplitResult<K, V> splitResult = this.children.get(childIndex).insert(key, value);
-
-        if (splitResult == null) {
-            return null;
+            return index + 1;
         }
+        return -(index + 1);
+    }
 
-        K promotedKey = splitResult.promotedKey();
-        BNode<K, V> newSibling = splitResult.newSiblingNode();
-
-        int insertionPoint = Collections.binarySearch(this.keys, promotedKey);
-        if (insertionPoint < 0) {
-            insertionPoint = -(insertionPoint + 1);
-        }
-        this.keys.add(insertionPoint, promotedKey);
-        this.children.add(insertionPoint + 1, newSibling);
-        newSibling.parent = this;
-        
-        if (this.isFull()) {
-            return this.split();
-        }
-        return null;
+    // O filho 'childIndex' foi dividido: o separador entra na posição dele e a nova irmã logo à direita
+    void insertChild(int childIndex, SplitResult<K, V> splitResult) {
+        this.keys.add(childIndex, splitResult.promotedKey());
+        this.children.add(childIndex + 1, splitResult.newSiblingNode());
     }
-    
-    private SplitResult<K, V> split() {
-        System.out.println("### SPLIT DE NÓ INTERNO ###");
+
+    SplitResult<K, V> split() {
+        this.events.emit(IndexEvent.INTERNAL_SPLIT);
         int midIndex = this.getKeyCount() / 2;
         K promotedKey = this.keys.get(midIndex);
-        
-        InternalBNode<K, V> sibling = new InternalBNode<>(this.order);
-        
+
+        InternalBNode<K, V> sibling = new InternalBNode<>(this.order, this.events);
+
         List<K> siblingKeys = new ArrayList<>(this.keys.subList(midIndex + 1, this.getKeyCount()));
         List<BNode<K, V>> siblingChildren = new ArrayList<>(this.children.subList(midIndex + 1, this.children.size()));
-        
+
         sibling.keys.addAll(siblingKeys);
         sibling.children.addAll(siblingChildren);
-        
-        for(BNode<K, V> child : siblingChildren) {
-            child.parent = sibling;
-        }
-        
+        sibling.compactionPending = this.compactionPending;
+
         this.keys.subList(midIndex, this.getKeyCount()).clear();
         this.children.subList(midIndex + 1, this.children.size()).clear();
-        
-        return new SplitResult<>(promotedKey, sibling);
-    }
 
-    @Override
-    public K getFirstLeafKey(){
-        if (children.isEmpty()){
-            return null;
-        }
-        return children.get(0).getFirstLeafKey();
-    }
-
-    @Override
-    public void delete(K key) {
-        int index = Collections.binarySearch(this.keys, key);
-        int childIndex;
-        if (index >= 0) {
-            childIndex = index + 1;
-        } else {
-            childIndex = -(index + 1);
-        }
-        this.children.get(childIndex).delete(key);
+        return new SplitResult<>(promotedKey, sibling);
     }
 
-    void handleChildUnderflow(BNode<K, V> childInUnderflow) {
-        int childIndex = this.children.indexOf(childInUnderflow);
-        
-        int minKeys = (int) Math.ceil((this.order + 1) / 2.0) - 1;
+    /**
+     * O filho 'childIndex' ficou abaixo do mínimo: pega uma chave de um irmão ou funde com ele.
+     * Se este nó ficar abaixo do mínimo, quem chama trata no nível de cima.
+     */
+    void handleChildUnderflow(int childIndex) {
+        BNode<K, V> childInUnderflow = this.children.get(childIndex);
+        int minKeys = childInUnderflow.minKeys();
 
         if (childIndex > 0 && tryRedistribute(childInUnderflow, this.children.get(childIndex - 1), childIndex, true, minKeys)) {
             return;
         }
-        
+
         if (childIndex < this.children.size() - 1 && tryRedistribute(childInUnderflow, this.children.get(childIndex + 1), childIndex, false, minKeys)) {
             return;
         }
@@ -120,14 +83,10 @@ class InternalBNode<K extends Comparable<K>, V> extends BNode<K, V> {
         } else {
             mergeChildren(childInUnderflow, this.children.get(childIndex + 1), childIndex);
         }
-
-        if (this.getKeyCount() < minKeys && this.parent != null) {
-            ((InternalBNode<K, V>) this.parent).handleChildUnderflow(this);
-        }
     }
 
     private boolean tryRedistribute(BNode<K, V> child, BNode<K, V> sibling, int childIndex, boolean isLeftSibling, int minKeys) {
-        
+
         if (sibling.getKeyCount() > minKeys) {
             if (child.isLeaf()) {
                 K newSeparatorKey = ((LeafBNode<K, V>) child).redistributeFrom((LeafBNode<K, V>) sibling, isLeftSibling);
@@ -141,14 +100,14 @@ class InternalBNode<K extends Comparable<K>, V> extends BNode<K, V> {
     }
 
     private void redistributeInternal(InternalBNode<K, V> child, InternalBNode<K, V> sibling, boolean isLeftSibling, int childIndex) {
-        System.out.println("### REDISTRIBUIÇÃO DE NÓ INTERNO ###");
+        this.events.emit(IndexEvent.INTERNAL_REDISTRIBUTION);
+        child.compactionPending |= sibling.compactionPending;
         if (isLeftSibling) {
             K separator = this.keys.remove(childIndex - 1);
             child.keys.add(0, separator);
             K promotedKey = sibling.keys.remove(sibling.getKeyCount() - 1);
             BNode<K, V> movedChild = sibling.children.remove(sibling.children.size() - 1);
             child.children.add(0, movedChild);
-            movedChild.parent = child;
             this.keys.add(childIndex - 1, promotedKey);
         } else {
             K separator = this.keys.remove(childIndex);
@@ -156,30 +115,31 @@ class InternalBNode<K extends Comparable<K>, V> extends BNode<K, V> {
             K promotedKey = sibling.keys.remove(0);
             BNode<K, V> movedChild = sibling.children.remove(0);
             child.children.add(movedChild);
-            movedChild.parent = child;
             this.keys.add(childIndex, promotedKey);
         }
     }
 
     private void mergeChildren(BNode<K, V> leftChild, BNode<K, V> rightChild, int leftChildIndex) {
-        System.out.println("### FUSÃO DE NÓ INTERNO ###");
         K separator = this.keys.remove(leftChildIndex);
-        
+
         if (leftChild.isLeaf()) {
             ((LeafBNode<K, V>) leftChild).mergeWith((LeafBNode<K, V>) rightChild, false);
         } else {
+            this.events.emit(IndexEvent.INTERNAL_MERGE);
             InternalBNode<K, V> leftInternal = (InternalBNode<K, V>) leftChild;
             InternalBNode<K, V> rightInternal = (InternalBNode<K, V>) rightChild;
             leftInternal.keys.add(separator);
             leftInternal.keys.addAll(rightInternal.keys);
             leftInternal.children.addAll(rightInternal.children);
-            for(BNode<K, V> child : rightInternal.children) {
-                child.parent = leftInternal;
-            }
+            leftInternal.compactionPending |= rightInternal.compactionPending;
         }
         this.children.remove(leftChildIndex + 1);
     }
-    
+
+    static boolean compactionPending(BNode<?, ?> node) {
+        return !node.isLeaf() && ((InternalBNode<?, ?>) node).compactionPending;
+    }
+
     @Override
     public String toString(String indent) {
         StringBuilder sb = new StringBuilder();
@@ -190,4 +150,4 @@ class InternalBNode<K extends Comparable<K>, V> extends BNode<K, V> {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
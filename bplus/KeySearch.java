@@ -0,0 +1,28 @@
+package bplus;
+
+/**
+ * Como as árvores de chaves primitivas (LongLongBPlusTree, IntIntBPlusTree) procuram uma chave
+ * dentro de um nó.
+ */
+public enum KeySearch {
+    /**
+     * Busca binária clássica: um desvio condicional por passo, que o processador erra em
+     * metade das vezes com chaves aleatórias.
+     */
+    BINARY,
+    /**
+     * Busca binária sem desvio dependente dos dados: o laço tem sempre o mesmo número de passos
+     * e a escolha da metade é uma atribuição condicional (cmov), não um salto.
+     */
+    BRANCHLESS,
+    /**
+     * Nos nós internos, as chaves também são mantidas em ordem de Eytzinger (a ordem de uma
+     * busca em largura na árvore binária de busca implícita): os primeiros passos da busca
+     * ficam nas mesmas linhas de cache em todos os nós. A cópia é refeita na hora, a cada
+     * insert ou delete que muda as chaves de um nó interno (um split, uma fusão, uma troca de
+     * separador): essas escritas pagam uma passada O(order) a mais por nó alterado, então só
+     * compensa em árvores com muito mais leituras que escritas.
+     * As folhas usam BRANCHLESS.
+     */
+    EYTZINGER
+}
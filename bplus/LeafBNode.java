@@ -3,13 +3,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import metrics.IndexEvent;
+
 class LeafBNode<K extends Comparable<K>, V> extends BNode<K, V> {
     protected List<V> values;
     protected LeafBNode<K, V> next;
     protected LeafBNode<K, V> previous;
 
-    public LeafBNode(int order) {
-        super(order);
+    public LeafBNode(int order, TreeEvents events) {
+        super(order, events);
         this.values = new ArrayList<>();
         this.next = null;
         this.previous = null;
@@ -21,6 +23,10 @@ class LeafBNode<K extends Comparable<K>, V> extends BNode<K, V> {
     }
 
     @Override
+    public int minKeys() {
+        return (int) Math.ceil((this.order - 1) / 2.0);
+    }
+
     public V search(K key){
         int index = Collections.binarySearch(this.keys, key);
         if (index >= 0) {
@@ -29,52 +35,46 @@ class LeafBNode<K extends Comparable<K>, V> extends BNode<K, V> {
         return null;
     }
 
-    @Override
-    public SplitResult<K, V> insert(K key, V value){
+    // Insere ou substitui o valor; quem chama verifica isFull() e faz o split
+    public void insert(K key, V value){
         int index = Collections.binarySearch(this.keys, key);
         int insertionPoint;
         if (index >= 0) {
             this.values.set(index, value);
-            return null;
+            return;
         } else {
             insertionPoint = -(index + 1);
         }
         this.keys.add(insertionPoint, key);
         this.values.add(insertionPoint, value);
-        
-        if (this.isFull()) {
-            return this.split();
-        }
-        return null;
     }
 
-    private SplitResult<K, V> split(){
-        System.out.println("### SPLIT DE NÓ FOLHA ###");
-        LeafBNode<K, V> sibling = new LeafBNode<>(this.order);
-        
+    SplitResult<K, V> split(){
+        this.events.emit(IndexEvent.LEAF_SPLIT);
+        LeafBNode<K, V> sibling = new LeafBNode<>(this.order, this.events);
+
         int originalSize = this.getKeyCount(); // Salva o tamanho original
         int midIndex = originalSize / 2;
-        
+
         List<K> siblingKeys = new ArrayList<>(this.keys.subList(midIndex, originalSize));
         List<V> siblingValues = new ArrayList<>(this.values.subList(midIndex, originalSize));
         sibling.keys.addAll(siblingKeys);
         sibling.values.addAll(siblingValues);
-        
+
         this.keys.subList(midIndex, originalSize).clear();
         this.values.subList(midIndex, originalSize).clear();
-        
+
         sibling.next = this.next;
         if (this.next != null) {
             this.next.previous = sibling;
         }
         this.next = sibling;
         sibling.previous = this;
-        
-        K promotedKey = sibling.getFirstLeafKey();
+
+        K promotedKey = this.events.separator(this.getLastKey(), sibling.getFirstLeafKey());
         return new SplitResult<>(promotedKey, sibling);
     }
-    
-    @Override
+
     public K getFirstLeafKey(){
         if(keys.isEmpty()){
             return null;
@@ -82,45 +82,42 @@ class LeafBNode<K extends Comparable<K>, V> extends BNode<K, V> {
         return keys.get(0);
     }
 
-    @Override
-    public void delete(K key) {
+    K getLastKey() {
+        return keys.get(keys.size() - 1);
+    }
+
+    // Remove a chave só desta folha; underflow é tratado por quem chama, pelo caminho da descida
+    public boolean delete(K key) {
         int index = Collections.binarySearch(this.keys, key);
         if (index < 0) {
-            return;
+            return false;
         }
         this.keys.remove(index);
         this.values.remove(index);
-
-        int minKeys = (int) Math.ceil((this.order - 1) / 2.0);
-        
-        if (this.getKeyCount() < minKeys && this.parent != null) {
-            ((InternalBNode<K, V>) this.parent).handleChildUnderflow(this);
-        }
+        return true;
     }
 
+    // Pega um par do irmão e devolve o novo separador entre os dois
     K redistributeFrom(LeafBNode<K, V> sibling, boolean isLeftSibling) {
+        this.events.emit(IndexEvent.LEAF_REDISTRIBUTION);
         if (isLeftSibling) {
             int lastIndex = sibling.getKeyCount() - 1;
             K key = sibling.keys.remove(lastIndex);
             V value = sibling.values.remove(lastIndex);
             this.keys.add(0, key);
             this.values.add(0, value);
-            return this.keys.get(0);
+            return this.events.separator(sibling.getLastKey(), this.keys.get(0));
         } else {
             K key = sibling.keys.remove(0);
             V value = sibling.values.remove(0);
             this.keys.add(key);
             this.values.add(value);
-            
-            if (sibling.getKeyCount() == 0) {
-                return this.keys.get(0);
-            }
-            return sibling.keys.get(0);
+            return this.events.separator(key, sibling.keys.get(0));
         }
     }
 
     void mergeWith(LeafBNode<K, V> sibling, boolean isLeftSibling) {
-        System.out.println("### FUSÃO DE NÓ FOLHA ###");
+        this.events.emit(IndexEvent.LEAF_MERGE);
         if (isLeftSibling) {
             sibling.keys.addAll(this.keys);
             sibling.values.addAll(this.values);
@@ -137,7 +134,7 @@ class LeafBNode<K extends Comparable<K>, V> extends BNode<K, V> {
             }
         }
     }
-    
+
     @Override
     public String toString(String indent) {
         StringBuilder sb = new StringBuilder();
@@ -145,4 +142,4 @@ class LeafBNode<K extends Comparable<K>, V> extends BNode<K, V> {
         sb.append(" (Valores: ").append(this.values).append(")");
         return sb.toString();
     }
-}
\ No newline at end of file
+}
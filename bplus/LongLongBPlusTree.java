@@ -0,0 +1,497 @@
+package bplus;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Árvore B+ especializada para chaves long -> valores long, com a mesma semântica de
+ * insert/search/delete/searchRange da BPlusTree (inclusive split, redistribuição e fusão).
+ *
+ * Os nós guardam chaves e valores em vetores primitivos (long[]), sem boxing: as chaves de um
+ * nó ficam contíguas na memória (uma linha de cache de 64 bytes tem 8 chaves) e a busca dentro
+ * do nó não segue nenhum ponteiro. A busca no nó é escolhida por {@link KeySearch}; o padrão é
+ * a busca binária clássica (benchmarks/PrimitiveSearchBenchmark compara as opções).
+ * Os nós não têm ponteiro para o pai: insert e delete guardam o caminho da descida.
+ */
+public class LongLongBPlusTree {
+
+    private abstract static class Node {
+        final long[] keys;
+        int count;
+
+        Node(int capacity) {
+            this.keys = new long[capacity];
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final long[] values;
+        Leaf next;
+        Leaf previous;
+
+        Leaf(int capacity) {
+            super(capacity);
+            this.values = new long[capacity];
+        }
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children;
+        // Só com KeySearch.EYTZINGER: as chaves em ordem de Eytzinger (a partir da posição 1) e a posição de cada uma em keys
+        long[] layout;
+        int[] rank;
+
+        Inner(int capacity) {
+            super(capacity);
+            this.children = new Node[capacity + 1];
+        }
+    }
+
+    public static final int KEYS_PER_CACHE_LINE = 64 / Long.BYTES;
+
+    private final int order;
+    private final KeySearch keySearch;
+    private final int minLeafKeys;
+    private final int minInternalKeys;
+    private Node root;
+    private int height = 1;
+    private int size;
+
+    public LongLongBPlusTree(int order) {
+        this(order, KeySearch.BINARY);
+    }
+
+    public LongLongBPlusTree(int order, KeySearch keySearch) {
+        if (order < 3) {
+            throw new IllegalArgumentException("order must be >= 3");
+        }
+        this.order = order;
+        this.keySearch = keySearch;
+        this.minLeafKeys = (int) Math.ceil((order - 1) / 2.0);
+        this.minInternalKeys = (int) Math.ceil(order / 2.0) - 1;
+        this.root = new Leaf(order);
+    }
+
+    /**
+     * Árvore cujos nós têm 'cacheLines' linhas de cache de chaves (order = cacheLines * 8).
+     */
+    public static LongLongBPlusTree ofCacheLines(int cacheLines, KeySearch keySearch) {
+        return new LongLongBPlusTree(cacheLines * KEYS_PER_CACHE_LINE, keySearch);
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public KeySearch getKeySearch() {
+        return keySearch;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public void insert(long key, long value) {
+        Inner[] path = new Inner[height - 1];
+        int[] indexes = new int[height - 1];
+        Leaf leaf = descend(key, path, indexes);
+
+        int index = find(leaf, key);
+        if (index >= 0) {
+            leaf.values[index] = value;
+            return;
+        }
+        int position = -(index + 1);
+        System.arraycopy(leaf.keys, position, leaf.keys, position + 1, leaf.count - position);
+        System.arraycopy(leaf.values, position, leaf.values, position + 1, leaf.count - position);
+        leaf.keys[position] = key;
+        leaf.values[position] = value;
+        leaf.count++;
+        size++;
+        if (leaf.count < order) {
+            return;
+        }
+
+        // Split da folha: a metade de cima vai para a irmã e a primeira chave dela sobe
+        Leaf sibling = new Leaf(order);
+        int mid = leaf.count / 2;
+        sibling.count = leaf.count - mid;
+        System.arraycopy(leaf.keys, mid, sibling.keys, 0, sibling.count);
+        System.arraycopy(leaf.values, mid, sibling.values, 0, sibling.count);
+        leaf.count = mid;
+        sibling.next = leaf.next;
+        if (leaf.next != null) {
+            leaf.next.previous = sibling;
+        }
+        leaf.next = sibling;
+        sibling.previous = leaf;
+
+        long promoted = sibling.keys[0];
+        Node newNode = sibling;
+        for (int depth = path.length - 1; depth >= 0; depth--) {
+            Inner parent = path[depth];
+            int childIndex = indexes[depth];
+            System.arraycopy(parent.keys, childIndex, parent.keys, childIndex + 1, parent.count - childIndex);
+            System.arraycopy(parent.children, childIndex + 1, parent.children, childIndex + 2, parent.count - childIndex);
+            parent.keys[childIndex] = promoted;
+            parent.children[childIndex + 1] = newNode;
+            parent.count++;
+            if (parent.count < order) {
+                relayout(parent);
+                return;
+            }
+
+            // Split do nó interno: a chave do meio sobe e não fica em nenhum dos dois
+            Inner parentSibling = new Inner(order);
+            int parentMid = parent.count / 2;
+            promoted = parent.keys[parentMid];
+            parentSibling.count = parent.count - parentMid - 1;
+            System.arraycopy(parent.keys, parentMid + 1, parentSibling.keys, 0, parentSibling.count);
+            System.arraycopy(parent.children, parentMid + 1, parentSibling.children, 0, parentSibling.count + 1);
+            Arrays.fill(parent.children, parentMid + 1, parent.count + 1, null);
+            parent.count = parentMid;
+            relayout(parent);
+            relayout(parentSibling);
+            newNode = parentSibling;
+        }
+
+        Inner newRoot = new Inner(order);
+        newRoot.keys[0] = promoted;
+        newRoot.children[0] = root;
+        newRoot.children[1] = newNode;
+        newRoot.count = 1;
+        relayout(newRoot);
+        root = newRoot;
+        height++;
+    }
+
+    public OptionalLong search(long key) {
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[childIndex(inner, key)];
+        }
+        Leaf leaf = (Leaf) node;
+        int index = find(leaf, key);
+        return index >= 0 ? OptionalLong.of(leaf.values[index]) : OptionalLong.empty();
+    }
+
+    public boolean delete(long key) {
+        Inner[] path = new Inner[height - 1];
+        int[] indexes = new int[height - 1];
+        Leaf leaf = descend(key, path, indexes);
+
+        int index = find(leaf, key);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.count - index - 1);
+        System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.count - index - 1);
+        leaf.count--;
+        size--;
+
+        Node node = leaf;
+        for (int depth = path.length - 1; depth >= 0; depth--) {
+            int minKeys = node instanceof Leaf ? minLeafKeys : minInternalKeys;
+            if (node.count >= minKeys) {
+                break;
+            }
+            fixUnderflow(path[depth], indexes[depth], minKeys);
+            node = path[depth];
+        }
+
+        if (root instanceof Inner inner && inner.count == 0) {
+            root = inner.children[0];
+            height--;
+        }
+        return true;
+    }
+
+    /**
+     * Entrega ao consumidor, em ordem de chave, os valores de [startKey, endKey].
+     */
+    public void searchRange(long startKey, long endKey, LongConsumer consumer) {
+        if (startKey > endKey) {
+            return;
+        }
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[childIndex(inner, startKey)];
+        }
+        Leaf leaf = (Leaf) node;
+        int i = leafLowerBound(leaf, startKey);
+        while (leaf != null) {
+            for (; i < leaf.count; i++) {
+                if (leaf.keys[i] > endKey) {
+                    return;
+                }
+                consumer.accept(leaf.values[i]);
+            }
+            leaf = leaf.next;
+            i = 0;
+        }
+    }
+
+    public long[] searchRange(long startKey, long endKey) {
+        long[][] result = { new long[16] };
+        int[] count = { 0 };
+        searchRange(startKey, endKey, value -> {
+            if (count[0] == result[0].length) {
+                result[0] = Arrays.copyOf(result[0], count[0] * 2);
+            }
+            result[0][count[0]++] = value;
+        });
+        return Arrays.copyOf(result[0], count[0]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendNode(sb, root, "");
+        return sb.toString();
+    }
+
+    // --- REMOÇÃO ---
+
+    // O filho 'childIndex' de 'parent' ficou abaixo do mínimo: pega uma chave de um irmão ou funde
+    private void fixUnderflow(Inner parent, int childIndex, int minKeys) {
+        Node child = parent.children[childIndex];
+        Node left = childIndex > 0 ? parent.children[childIndex - 1] : null;
+        Node right = childIndex < parent.count ? parent.children[childIndex + 1] : null;
+
+        if (left != null && left.count > minKeys) {
+            borrowFromLeft(parent, childIndex, child, left);
+        } else if (right != null && right.count > minKeys) {
+            borrowFromRight(parent, childIndex, child, right);
+        } else if (left != null) {
+            merge(parent, childIndex - 1, left, child);
+        } else {
+            merge(parent, childIndex, child, right);
+        }
+        relayout(parent);
+        if (child instanceof Inner inner) {
+            relayout(inner);
+            if (left != null) {
+                relayout((Inner) left);
+            }
+            if (right != null) {
+                relayout((Inner) right);
+            }
+        }
+    }
+
+    private void borrowFromLeft(Inner parent, int childIndex, Node child, Node left) {
+        System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+        if (child instanceof Leaf leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.count);
+            leaf.keys[0] = leftLeaf.keys[leftLeaf.count - 1];
+            leaf.values[0] = leftLeaf.values[leftLeaf.count - 1];
+            parent.keys[childIndex - 1] = leaf.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner leftInner = (Inner) left;
+            System.arraycopy(inner.children, 0, inner.children, 1, inner.count + 1);
+            inner.keys[0] = parent.keys[childIndex - 1];
+            inner.children[0] = leftInner.children[leftInner.count];
+            leftInner.children[leftInner.count] = null;
+            parent.keys[childIndex - 1] = leftInner.keys[leftInner.count - 1];
+        }
+        child.count++;
+        left.count--;
+    }
+
+    private void borrowFromRight(Inner parent, int childIndex, Node child, Node right) {
+        if (child instanceof Leaf leaf) {
+            Leaf rightLeaf = (Leaf) right;
+            leaf.keys[leaf.count] = rightLeaf.keys[0];
+            leaf.values[leaf.count] = rightLeaf.values[0];
+            System.arraycopy(rightLeaf.keys, 1, rightLeaf.keys, 0, rightLeaf.count - 1);
+            System.arraycopy(rightLeaf.values, 1, rightLeaf.values, 0, rightLeaf.count - 1);
+            parent.keys[childIndex] = rightLeaf.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner rightInner = (Inner) right;
+            inner.keys[inner.count] = parent.keys[childIndex];
+            inner.children[inner.count + 1] = rightInner.children[0];
+            parent.keys[childIndex] = rightInner.keys[0];
+            System.arraycopy(rightInner.keys, 1, rightInner.keys, 0, rightInner.count - 1);
+            System.arraycopy(rightInner.children, 1, rightInner.children, 0, rightInner.count);
+            rightInner.children[rightInner.count] = null;
+        }
+        child.count++;
+        right.count--;
+    }
+
+    // Junta 'right' em 'left' (filhos leftIndex e leftIndex + 1 de 'parent') e tira o separador do pai
+    private void merge(Inner parent, int leftIndex, Node left, Node right) {
+        if (left instanceof Leaf leftLeaf) {
+            Leaf rightLeaf = (Leaf) right;
+            System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftLeaf.count, rightLeaf.count);
+            System.arraycopy(rightLeaf.values, 0, leftLeaf.values, leftLeaf.count, rightLeaf.count);
+            leftLeaf.count += rightLeaf.count;
+            leftLeaf.next = rightLeaf.next;
+            if (rightLeaf.next != null) {
+                rightLeaf.next.previous = leftLeaf;
+            }
+        } else {
+            Inner leftInner = (Inner) left;
+            Inner rightInner = (Inner) right;
+            leftInner.keys[leftInner.count] = parent.keys[leftIndex];
+            System.arraycopy(rightInner.keys, 0, leftInner.keys, leftInner.count + 1, rightInner.count);
+            System.arraycopy(rightInner.children, 0, leftInner.children, leftInner.count + 1, rightInner.count + 1);
+            leftInner.count += rightInner.count + 1;
+        }
+        System.arraycopy(parent.keys, leftIndex + 1, parent.keys, leftIndex, parent.count - leftIndex - 1);
+        System.arraycopy(parent.children, leftIndex + 2, parent.children, leftIndex + 1, parent.count - leftIndex - 1);
+        parent.children[parent.count] = null;
+        parent.count--;
+    }
+
+    // --- NAVEGAÇÃO ---
+
+    // Desce até a folha da chave, anotando em 'path'/'indexes' os nós internos e o filho seguido em cada um
+    private Leaf descend(long key, Inner[] path, int[] indexes) {
+        Node node = root;
+        for (int depth = 0; depth < path.length; depth++) {
+            Inner inner = (Inner) node;
+            int childIndex = childIndex(inner, key);
+            path[depth] = inner;
+            indexes[depth] = childIndex;
+            node = inner.children[childIndex];
+        }
+        return (Leaf) node;
+    }
+
+    // Primeira posição com chave > key (filho a seguir em um nó interno)
+    private static int upperBound(long[] keys, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Primeira posição com chave >= key
+    private static int lowerBound(long[] keys, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Filho a seguir em um nó interno: primeira posição com chave > key
+    private int childIndex(Inner inner, long key) {
+        return switch (keySearch) {
+            case BINARY -> upperBound(inner.keys, inner.count, key);
+            case BRANCHLESS -> branchlessUpperBound(inner.keys, inner.count, key);
+            case EYTZINGER -> eytzingerUpperBound(inner, key);
+        };
+    }
+
+    private int leafLowerBound(Leaf leaf, long key) {
+        if (keySearch == KeySearch.BINARY) {
+            return lowerBound(leaf.keys, leaf.count, key);
+        }
+        return branchlessLowerBound(leaf.keys, leaf.count, key);
+    }
+
+    // Mesmo contrato de Arrays.binarySearch: índice da chave ou -(ponto de inserção) - 1
+    private int find(Leaf leaf, long key) {
+        int index = leafLowerBound(leaf, key);
+        return index < leaf.count && leaf.keys[index] == key ? index : -(index + 1);
+    }
+
+    // Sempre ceil(log2(count)) passos; a escolha da metade vira cmov em vez de salto
+    private static int branchlessUpperBound(long[] keys, int count, long key) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = count;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = keys[base + half] <= key ? base + half : base;
+            n -= half;
+        }
+        return base + (keys[base] <= key ? 1 : 0);
+    }
+
+    private static int branchlessLowerBound(long[] keys, int count, long key) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = count;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = keys[base + half] < key ? base + half : base;
+            n -= half;
+        }
+        return base + (keys[base] < key ? 1 : 0);
+    }
+
+    // Desce a árvore implícita (filhos de k em 2k e 2k + 1) e volta ao último ponto em que foi para a esquerda
+    private static int eytzingerUpperBound(Inner inner, long key) {
+        long[] layout = inner.layout;
+        int k = 1;
+        while (k <= inner.count) {
+            k = (k << 1) | (layout[k] <= key ? 1 : 0);
+        }
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? inner.count : inner.rank[k];
+    }
+
+    // Refaz a cópia em ordem de Eytzinger depois de mudar as chaves de um nó interno
+    private void relayout(Inner inner) {
+        if (keySearch != KeySearch.EYTZINGER) {
+            return;
+        }
+        if (inner.layout == null) {
+            inner.layout = new long[inner.keys.length + 1];
+            inner.rank = new int[inner.keys.length + 1];
+        }
+        fillLayout(inner, 0, 1);
+    }
+
+    // Preenche a subárvore implícita de raiz k com as chaves a partir de 'next', em ordem; devolve a próxima chave
+    private static int fillLayout(Inner inner, int next, int k) {
+        if (k <= inner.count) {
+            next = fillLayout(inner, next, 2 * k);
+            inner.layout[k] = inner.keys[next];
+            inner.rank[k] = next;
+            next = fillLayout(inner, next + 1, 2 * k + 1);
+        }
+        return next;
+    }
+
+    private static void appendNode(StringBuilder sb, Node node, String indent) {
+        if (node instanceof Leaf leaf) {
+            sb.append(indent).append("Folha: ").append(Arrays.toString(Arrays.copyOf(leaf.keys, leaf.count)));
+            sb.append(" (Valores: ").append(Arrays.toString(Arrays.copyOf(leaf.values, leaf.count))).append(")");
+            return;
+        }
+        Inner inner = (Inner) node;
+        sb.append(indent).append("Interno: ").append(Arrays.toString(Arrays.copyOf(inner.keys, inner.count))).append("\n");
+        for (int i = 0; i <= inner.count; i++) {
+            appendNode(sb, inner.children[i], indent + "  ");
+            sb.append("\n");
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package bplus;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+import storage.BufferPool;
+import storage.EvictionPolicy;
+import storage.MappedPageFile;
+import storage.PageFile;
+import storage.PageStore;
+
+/**
+ * Árvore B+ de chaves long -> valores long armazenada em páginas de tamanho fixo.
+ * Os links entre nós (filhos, next, previous) são ids de página, e search/searchRange leem
+ * as chaves direto das páginas, sem desserializar nós.
+ *
+ * As páginas vêm de um {@link PageStore}: por padrão um arquivo mapeado em memória
+ * (o cache de páginas do SO serve os níveis quentes sem cópia), ou um {@link BufferPool}
+ * quando é preciso limitar a memória do índice e escolher a política de substituição.
+ *
+ * Layout da página 0 (cabeçalho): [magic][pageSize][rootPage][nextPage][height]
+ * Layout de um nó: [tipo][count][next][previous][keys: long * cap][values: long * cap | children: int * (cap + 1)]
+ *
+ * Remoções não fazem fusão/redistribuição: folhas podem ficar abaixo do mínimo (ou vazias)
+ * e continuam encadeadas, o que mantém search e searchRange corretos.
+ */
+public class PagedBPlusTree implements Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+
+    private static final int MAGIC = 0x42505431; // "BPT1"
+    private static final int HEADER_PAGE = 0;
+    private static final int NO_PAGE = -1;
+
+    private static final int TYPE_LEAF = 1;
+    private static final int TYPE_INTERNAL = 2;
+
+    private static final int OFF_TYPE = 0;
+    private static final int OFF_COUNT = 4;
+    private static final int OFF_NEXT = 8;
+    private static final int OFF_PREVIOUS = 12;
+    private static final int OFF_KEYS = 16;
+
+    private final PageStore store;
+    private final int leafCapacity;
+    private final int internalCapacity;
+    private final int leafValuesOffset;
+    private final int childrenOffset;
+    private int rootPage;
+    private int nextPage;
+    private int height;
+
+    private PagedBPlusTree(PageStore store) {
+        int pageSize = store.pageSize();
+        this.store = store;
+        this.leafCapacity = (pageSize - OFF_KEYS) / 16;
+        this.internalCapacity = (pageSize - OFF_KEYS - 4) / 12;
+        if (leafCapacity < 3 || internalCapacity < 3) {
+            throw new IllegalArgumentException("Página pequena demais: " + pageSize);
+        }
+        this.leafValuesOffset = OFF_KEYS + 8 * leafCapacity;
+        this.childrenOffset = OFF_KEYS + 8 * internalCapacity;
+    }
+
+    public static PagedBPlusTree create(Path path) throws IOException {
+        return create(path, DEFAULT_PAGE_SIZE);
+    }
+
+    public static PagedBPlusTree create(Path path, int pageSize) throws IOException {
+        return initialize(MappedPageFile.create(path, pageSize));
+    }
+
+    /**
+     * Cria a árvore sobre um buffer pool de 'frames' páginas em vez do mapeamento em memória.
+     */
+    public static PagedBPlusTree create(Path path, int pageSize, int frames,
+            IntFunction<EvictionPolicy> policy) throws IOException {
+        return initialize(new BufferPool(PageFile.create(path, pageSize), frames, policy));
+    }
+
+    public static PagedBPlusTree open(Path path) throws IOException {
+        return open(path, DEFAULT_PAGE_SIZE);
+    }
+
+    public static PagedBPlusTree open(Path path, int pageSize) throws IOException {
+        return load(MappedPageFile.open(path, pageSize), path);
+    }
+
+    public static PagedBPlusTree open(Path path, int pageSize, int frames,
+            IntFunction<EvictionPolicy> policy) throws IOException {
+        return load(new BufferPool(PageFile.open(path, pageSize), frames, policy), path);
+    }
+
+    private static PagedBPlusTree initialize(PageStore store) {
+        PagedBPlusTree tree = new PagedBPlusTree(store);
+        tree.nextPage = HEADER_PAGE + 1;
+        tree.rootPage = tree.allocateNode(TYPE_LEAF);
+        tree.height = 1;
+        tree.writeHeader();
+        return tree;
+    }
+
+    private static PagedBPlusTree load(PageStore store, Path path) throws IOException {
+        ByteBuffer header = store.pin(HEADER_PAGE);
+        boolean valid = header.getInt(0) == MAGIC && header.getInt(4) == store.pageSize();
+        int rootPage = header.getInt(8);
+        int nextPage = header.getInt(12);
+        int height = header.getInt(16);
+        store.unpin(HEADER_PAGE, false);
+        if (!valid) {
+            store.close();
+            throw new IOException("Arquivo de árvore inválido: " + path);
+        }
+        PagedBPlusTree tree = new PagedBPlusTree(store);
+        tree.rootPage = rootPage;
+        tree.nextPage = nextPage;
+        tree.height = height;
+        return tree;
+    }
+
+    public void insert(long key, long value) {
+        int[] pathPages = new int[height];
+        int[] pathIndexes = new int[height];
+        int depth = 0;
+        int pageId = rootPage;
+        ByteBuffer page = store.pin(pageId);
+        while (page.getInt(OFF_TYPE) == TYPE_INTERNAL) {
+            int childIndex = upperBound(page, key);
+            pathPages[depth] = pageId;
+            pathIndexes[depth] = childIndex;
+            depth++;
+            int childId = child(page, childIndex);
+            store.unpin(pageId, false);
+            pageId = childId;
+            page = store.pin(pageId);
+        }
+
+        int count = page.getInt(OFF_COUNT);
+        int index = binarySearch(page, count, key);
+        if (index >= 0) {
+            page.putLong(leafValuesOffset + 8 * index, value);
+            store.unpin(pageId, true);
+            return;
+        }
+        int insertionPoint = -(index + 1);
+        if (count < leafCapacity) {
+            for (int i = count; i > insertionPoint; i--) {
+                page.putLong(OFF_KEYS + 8 * i, page.getLong(OFF_KEYS + 8 * (i - 1)));
+                page.putLong(leafValuesOffset + 8 * i, page.getLong(leafValuesOffset + 8 * (i - 1)));
+            }
+            page.putLong(OFF_KEYS + 8 * insertionPoint, key);
+            page.putLong(leafValuesOffset + 8 * insertionPoint, value);
+            page.putInt(OFF_COUNT, count + 1);
+            store.unpin(pageId, true);
+            return;
+        }
+
+        // Folha cheia: monta o conteúdo com a nova chave e divide ao meio
+        long[] keys = new long[count + 1];
+        long[] values = new long[count + 1];
+        for (int i = 0, j = 0; i <= count; i++) {
+            if (i == insertionPoint) {
+                keys[i] = key;
+                values[i] = value;
+            } else {
+                keys[i] = page.getLong(OFF_KEYS + 8 * j);
+                values[i] = page.getLong(leafValuesOffset + 8 * j);
+                j++;
+            }
+        }
+        int mid = keys.length / 2;
+        int siblingId = allocateNode(TYPE_LEAF);
+        ByteBuffer sibling = store.pin(siblingId);
+        writeLeafEntries(page, keys, values, 0, mid);
+        writeLeafEntries(sibling, keys, values, mid, keys.length);
+
+        int oldNext = page.getInt(OFF_NEXT);
+        sibling.putInt(OFF_NEXT, oldNext);
+        sibling.putInt(OFF_PREVIOUS, pageId);
+        if (oldNext != NO_PAGE) {
+            store.pin(oldNext).putInt(OFF_PREVIOUS, siblingId);
+            store.unpin(oldNext, true);
+        }
+        page.putInt(OFF_NEXT, siblingId);
+        store.unpin(siblingId, true);
+        store.unpin(pageId, true);
+
+        insertIntoParents(pathPages, pathIndexes, depth, keys[mid], siblingId);
+    }
+
+    public OptionalLong search(long key) {
+        int pageId = findLeafPage(key);
+        ByteBuffer page = store.pin(pageId);
+        int index = binarySearch(page, page.getInt(OFF_COUNT), key);
+        OptionalLong result = index < 0 ? OptionalLong.empty()
+                : OptionalLong.of(page.getLong(leafValuesOffset + 8 * index));
+        store.unpin(pageId, false);
+        return result;
+    }
+
+    public boolean delete(long key) {
+        int pageId = findLeafPage(key);
+        ByteBuffer page = store.pin(pageId);
+        int count = page.getInt(OFF_COUNT);
+        int index = binarySearch(page, count, key);
+        if (index < 0) {
+            store.unpin(pageId, false);
+            return false;
+        }
+        for (int i = index; i < count - 1; i++) {
+            page.putLong(OFF_KEYS + 8 * i, page.getLong(OFF_KEYS + 8 * (i + 1)));
+            page.putLong(leafValuesOffset + 8 * i, page.getLong(leafValuesOffset + 8 * (i + 1)));
+        }
+        page.putInt(OFF_COUNT, count - 1);
+        store.unpin(pageId, true);
+        return true;
+    }
+
+    /**
+     * Entrega ao consumidor, em ordem de chave, os valores de [startKey, endKey].
+     */
+    public void searchRange(long startKey, long endKey, LongConsumer consumer) {
+        if (startKey > endKey) {
+            return;
+        }
+        int pageId = findLeafPage(startKey);
+        ByteBuffer page = store.pin(pageId);
+        int i = lowerBound(page, page.getInt(OFF_COUNT), startKey);
+        while (true) {
+            int count = page.getInt(OFF_COUNT);
+            for (; i < count; i++) {
+                if (page.getLong(OFF_KEYS + 8 * i) > endKey) {
+                    store.unpin(pageId, false);
+                    return;
+                }
+                consumer.accept(page.getLong(leafValuesOffset + 8 * i));
+            }
+            int next = page.getInt(OFF_NEXT);
+            store.unpin(pageId, false);
+            if (next == NO_PAGE) {
+                return;
+            }
+            pageId = next;
+            page = store.pin(pageId);
+            i = 0;
+        }
+    }
+
+    public long[] searchRange(long startKey, long endKey) {
+        long[][] result = { new long[16] };
+        int[] size = { 0 };
+        searchRange(startKey, endKey, value -> {
+            if (size[0] == result[0].length) {
+                result[0] = Arrays.copyOf(result[0], size[0] * 2);
+            }
+            result[0][size[0]++] = value;
+        });
+        return Arrays.copyOf(result[0], size[0]);
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Grava o cabeçalho e força as páginas modificadas para o disco.
+     */
+    public void sync() {
+        writeHeader();
+        store.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeHeader();
+        store.close();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendNode(sb, rootPage, "");
+        return sb.toString();
+    }
+
+    // --- NAVEGAÇÃO ---
+
+    private int findLeafPage(long key) {
+        int pageId = rootPage;
+        ByteBuffer page = store.pin(pageId);
+        while (page.getInt(OFF_TYPE) == TYPE_INTERNAL) {
+            int childId = child(page, upperBound(page, key));
+            store.unpin(pageId, false);
+            pageId = childId;
+            page = store.pin(pageId);
+        }
+        store.unpin(pageId, false);
+        return pageId;
+    }
+
+    // Índice do filho a seguir: quantidade de separadores <= key
+    private int upperBound(ByteBuffer page, long key) {
+        int low = 0;
+        int high = page.getInt(OFF_COUNT);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (page.getLong(OFF_KEYS + 8 * mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lowerBound(ByteBuffer page, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (page.getLong(OFF_KEYS + 8 * mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Mesma convenção de Collections.binarySearch: índice se achou, -(ponto de inserção + 1) se não
+    private int binarySearch(ByteBuffer page, int count, long key) {
+        int index = lowerBound(page, count, key);
+        if (index < count && page.getLong(OFF_KEYS + 8 * index) == key) {
+            return index;
+        }
+        return -(index + 1);
+    }
+
+    private int child(ByteBuffer page, int index) {
+        return page.getInt(childrenOffset + 4 * index);
+    }
+
+    // --- SPLIT ---
+
+    private void insertIntoParents(int[] pathPages, int[] pathIndexes, int depth, long promotedKey, int newChild) {
+        for (int d = depth - 1; d >= 0; d--) {
+            int parentId = pathPages[d];
+            ByteBuffer parent = store.pin(parentId);
+            int count = parent.getInt(OFF_COUNT);
+            int position = pathIndexes[d];
+            if (count < internalCapacity) {
+                for (int i = count; i > position; i--) {
+                    parent.putLong(OFF_KEYS + 8 * i, parent.getLong(OFF_KEYS + 8 * (i - 1)));
+                }
+                for (int i = count + 1; i > position + 1; i--) {
+                    parent.putInt(childrenOffset + 4 * i, parent.getInt(childrenOffset + 4 * (i - 1)));
+                }
+                parent.putLong(OFF_KEYS + 8 * position, promotedKey);
+                parent.putInt(childrenOffset + 4 * (position + 1), newChild);
+                parent.putInt(OFF_COUNT, count + 1);
+                store.unpin(parentId, true);
+                return;
+            }
+
+            long[] keys = new long[count + 1];
+            int[] children = new int[count + 2];
+            for (int i = 0, j = 0; i <= count; i++) {
+                keys[i] = (i == position) ? promotedKey : parent.getLong(OFF_KEYS + 8 * j++);
+            }
+            for (int i = 0, j = 0; i <= count + 1; i++) {
+                children[i] = (i == position + 1) ? newChild : parent.getInt(childrenOffset + 4 * j++);
+            }
+            int mid = keys.length / 2;
+            int siblingId = allocateNode(TYPE_INTERNAL);
+            writeInternalEntries(parent, keys, children, 0, mid);
+            writeInternalEntries(store.pin(siblingId), keys, children, mid + 1, keys.length);
+            store.unpin(siblingId, true);
+            store.unpin(parentId, true);
+            promotedKey = keys[mid];
+            newChild = siblingId;
+        }
+
+        // A raiz dividiu: a árvore cresce um nível
+        int newRoot = allocateNode(TYPE_INTERNAL);
+        ByteBuffer root = store.pin(newRoot);
+        root.putInt(OFF_COUNT, 1);
+        root.putLong(OFF_KEYS, promotedKey);
+        root.putInt(childrenOffset, rootPage);
+        root.putInt(childrenOffset + 4, newChild);
+        store.unpin(newRoot, true);
+        rootPage = newRoot;
+        height++;
+        writeHeader();
+    }
+
+    private void writeLeafEntries(ByteBuffer page, long[] keys, long[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            page.putLong(OFF_KEYS + 8 * (i - from), keys[i]);
+            page.putLong(leafValuesOffset + 8 * (i - from), values[i]);
+        }
+        page.putInt(OFF_COUNT, to - from);
+    }
+
+    // Grava keys[from, to) e children[from, to]
+    private void writeInternalEntries(ByteBuffer page, long[] keys, int[] children, int from, int to) {
+        for (int i = from; i < to; i++) {
+            page.putLong(OFF_KEYS + 8 * (i - from), keys[i]);
+        }
+        for (int i = from; i <= to; i++) {
+            page.putInt(childrenOffset + 4 * (i - from), children[i]);
+        }
+        page.putInt(OFF_COUNT, to - from);
+    }
+
+    // --- PÁGINAS ---
+
+    private int allocateNode(int type) {
+        int pageId = nextPage++;
+        ByteBuffer page = store.pin(pageId);
+        page.putInt(OFF_TYPE, type);
+        page.putInt(OFF_COUNT, 0);
+        page.putInt(OFF_NEXT, NO_PAGE);
+        page.putInt(OFF_PREVIOUS, NO_PAGE);
+        store.unpin(pageId, true);
+        return pageId;
+    }
+
+    private void writeHeader() {
+        ByteBuffer header = store.pin(HEADER_PAGE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, store.pageSize());
+        header.putInt(8, rootPage);
+        header.putInt(12, nextPage);
+        header.putInt(16, height);
+        store.unpin(HEADER_PAGE, true);
+    }
+
+    private void appendNode(StringBuilder sb, int pageId, String indent) {
+        ByteBuffer page = store.pin(pageId);
+        int count = page.getInt(OFF_COUNT);
+        boolean leaf = page.getInt(OFF_TYPE) == TYPE_LEAF;
+        long[] keys = new long[count];
+        long[] values = new long[leaf ? count : 0];
+        int[] children = new int[leaf ? 0 : count + 1];
+        for (int i = 0; i < count; i++) {
+            keys[i] = page.getLong(OFF_KEYS + 8 * i);
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = page.getLong(leafValuesOffset + 8 * i);
+        }
+        for (int i = 0; i < children.length; i++) {
+            children[i] = child(page, i);
+        }
+        store.unpin(pageId, false);
+
+        if (leaf) {
+            sb.append(indent).append("Folha: ").append(Arrays.toString(keys));
+            sb.append(" (Valores: ").append(Arrays.toString(values)).append(")\n");
+        } else {
+            sb.append(indent).append("Interno: ").append(Arrays.toString(keys)).append("\n");
+            for (int childId : children) {
+                appendNode(sb, childId, indent + "  ");
+            }
+        }
+    }
+}
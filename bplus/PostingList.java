@@ -0,0 +1,434 @@
+package bplus;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Conjunto ordenado de row ids (long >= 0) de uma chave do {@link SecondaryIndex}, guardado de
+ * forma compacta.
+ *
+ * Listas esparsas ficam como deltas em varint: o primeiro id e, depois dele, a diferença para o
+ * anterior em 7 bits por byte, então ids próximos custam 1 ou 2 bytes cada. Quando a lista fica
+ * densa (o bitmap do intervalo primeiro..último ocupa no máximo metade dos deltas) ela passa a um
+ * bitmap de 1 bit por id do intervalo, e volta aos deltas se ficar esparsa de novo.
+ *
+ * add de um id maior que todos (o caso comum: row ids crescentes) só escreve no fim. Inserir ou
+ * remover no meio reescreve os bytes a partir do ponto alterado (nos deltas) ou um bit (no
+ * bitmap). Alterar a lista durante uma iteração tem resultado indefinido.
+ */
+public final class PostingList {
+    // Abaixo disso a lista fica sempre em deltas
+    private static final int MIN_BITMAP_SIZE = 64;
+
+    private int size;
+    private long first;
+    private long last;
+    // Deltas: varints das diferenças a partir do segundo id; 'length' bytes válidos
+    private byte[] deltas = new byte[8];
+    private int length;
+    // Bitmap (null nos deltas): o bit i de bits[w] é o id base + 64 * w + i
+    private long[] bits;
+    private long base;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isBitmap() {
+        return bits != null;
+    }
+
+    // Bytes usados pela codificação atual (sem contar primeiro/último)
+    public int sizeInBytes() {
+        return bits != null ? bits.length * Long.BYTES : length;
+    }
+
+    public long first() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return first;
+    }
+
+    public long last() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return last;
+    }
+
+    public boolean contains(long rowId) {
+        if (size == 0 || rowId < first || rowId > last) {
+            return false;
+        }
+        if (bits != null) {
+            long offset = rowId - base;
+            return (bits[(int) (offset >>> 6)] & (1L << offset)) != 0;
+        }
+        long current = first;
+        int position = 0;
+        while (current < rowId) {
+            current += varintAt(position);
+            position = varintEnd(position);
+        }
+        return current == rowId;
+    }
+
+    /**
+     * Adiciona o id; devolve false se ele já estava na lista.
+     */
+    public boolean add(long rowId) {
+        if (rowId < 0) {
+            throw new IllegalArgumentException("Row id não pode ser negativo.");
+        }
+        if (size == 0) {
+            first = rowId;
+            last = rowId;
+            size = 1;
+            return true;
+        }
+        if (bits != null && bitmapBytes(Math.min(first, rowId), Math.max(last, rowId)) > 4L * (size + 1)) {
+            // Um id longe do intervalo deixaria o bitmap esparso (ou enorme): volta aos deltas antes
+            toDeltas();
+        }
+        boolean added = bits != null ? addToBitmap(rowId) : addToDeltas(rowId);
+        if (added) {
+            size++;
+            first = Math.min(first, rowId);
+            last = Math.max(last, rowId);
+            adjustEncoding();
+        }
+        return added;
+    }
+
+    private boolean addToDeltas(long rowId) {
+        if (rowId > last) {
+            splice(length, length, rowId - last);
+            return true;
+        }
+        if (rowId < first) {
+            splice(0, 0, first - rowId);
+            return true;
+        }
+        if (rowId == first) {
+            return false;
+        }
+        long previous = first;
+        int position = 0;
+        while (position < length) {
+            int end = varintEnd(position);
+            long current = previous + varintAt(position);
+            if (current == rowId) {
+                return false;
+            }
+            if (current > rowId) {
+                // A diferença previous -> current vira previous -> rowId -> current
+                splice(position, end, rowId - previous, current - rowId);
+                return true;
+            }
+            previous = current;
+            position = end;
+        }
+        return false;
+    }
+
+    private boolean addToBitmap(long rowId) {
+        if (rowId < base) {
+            rebuildBitmap(Math.min(rowId, first), Math.max(rowId, last));
+        } else if (rowId - base >= (long) bits.length * 64) {
+            long words = ((rowId - base) >>> 6) + 1;
+            bits = Arrays.copyOf(bits, (int) Math.max(words, bits.length * 2L));
+        }
+        long offset = rowId - base;
+        int word = (int) (offset >>> 6);
+        if ((bits[word] & (1L << offset)) != 0) {
+            return false;
+        }
+        bits[word] |= 1L << offset;
+        return true;
+    }
+
+    /**
+     * Remove o id; devolve false se ele não estava na lista.
+     */
+    public boolean remove(long rowId) {
+        if (size == 0 || rowId < first || rowId > last) {
+            return false;
+        }
+        if (size == 1) {
+            if (rowId != first) {
+                return false;
+            }
+            clear();
+            return true;
+        }
+        boolean removed = bits != null ? removeFromBitmap(rowId) : removeFromDeltas(rowId);
+        if (removed) {
+            size--;
+            adjustEncoding();
+        }
+        return removed;
+    }
+
+    private boolean removeFromDeltas(long rowId) {
+        if (rowId == first) {
+            first += varintAt(0);
+            splice(0, varintEnd(0));
+            return true;
+        }
+        long previous = first;
+        int position = 0;
+        while (position < length) {
+            int end = varintEnd(position);
+            long current = previous + varintAt(position);
+            if (current > rowId) {
+                return false;
+            }
+            if (current == rowId) {
+                if (end == length) {
+                    splice(position, end);
+                    last = previous;
+                } else {
+                    // previous -> rowId -> next vira previous -> next
+                    int nextEnd = varintEnd(end);
+                    long next = current + varintAt(end);
+                    splice(position, nextEnd, next - previous);
+                }
+                return true;
+            }
+            previous = current;
+            position = end;
+        }
+        return false;
+    }
+
+    private boolean removeFromBitmap(long rowId) {
+        long offset = rowId - base;
+        int word = (int) (offset >>> 6);
+        if ((bits[word] & (1L << offset)) == 0) {
+            return false;
+        }
+        bits[word] &= ~(1L << offset);
+        if (rowId == first) {
+            first = nextSetBit(offset + 1);
+        }
+        if (rowId == last) {
+            last = previousSetBit(offset - 1);
+        }
+        return true;
+    }
+
+    private void clear() {
+        size = 0;
+        length = 0;
+        bits = null;
+    }
+
+    // Troca de codificação quando a outra fica bem menor (com folga para não alternar a cada operação)
+    private void adjustEncoding() {
+        long bitmapBytes = bitmapBytes(first, last);
+        if (bits == null) {
+            if (size >= MIN_BITMAP_SIZE && bitmapBytes * 2 <= length) {
+                toBitmap();
+            }
+        } else if (size < MIN_BITMAP_SIZE / 2 || bitmapBytes > 4L * size) {
+            toDeltas();
+        }
+    }
+
+    private static long bitmapBytes(long from, long to) {
+        return ((to >>> 6) - (from >>> 6) + 1) * Long.BYTES;
+    }
+
+    private void toBitmap() {
+        long[] ids = toArray();
+        rebuildBitmapFrom(ids, first, last);
+        length = 0;
+        deltas = new byte[8];
+    }
+
+    private void rebuildBitmap(long newFirst, long newLast) {
+        rebuildBitmapFrom(toArray(), newFirst, newLast);
+    }
+
+    private void rebuildBitmapFrom(long[] ids, long newFirst, long newLast) {
+        base = newFirst & ~63L;
+        bits = new long[(int) (((newLast - base) >>> 6) + 1)];
+        for (long id : ids) {
+            long offset = id - base;
+            bits[(int) (offset >>> 6)] |= 1L << offset;
+        }
+    }
+
+    private void toDeltas() {
+        long[] ids = toArray();
+        bits = null;
+        deltas = new byte[Math.max(8, ids.length * 2)];
+        length = 0;
+        for (int i = 1; i < ids.length; i++) {
+            splice(length, length, ids[i] - ids[i - 1]);
+        }
+    }
+
+    private long nextSetBit(long fromOffset) {
+        int word = (int) (fromOffset >>> 6);
+        long current = bits[word] & (-1L << fromOffset);
+        while (current == 0) {
+            current = bits[++word];
+        }
+        return base + ((long) word << 6) + Long.numberOfTrailingZeros(current);
+    }
+
+    private long previousSetBit(long fromOffset) {
+        int word = (int) (fromOffset >>> 6);
+        long current = bits[word] & (-1L >>> (63 - (fromOffset & 63)));
+        while (current == 0) {
+            current = bits[--word];
+        }
+        return base + ((long) word << 6) + 63 - Long.numberOfLeadingZeros(current);
+    }
+
+    // --- VARINTS ---
+
+    private long varintAt(int position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = deltas[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private int varintEnd(int position) {
+        while (deltas[position] < 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    private static int varintLength(long value) {
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+    }
+
+    // Troca os bytes [start, end) pelos varints de 'gaps'
+    private void splice(int start, int end, long... gaps) {
+        int encoded = 0;
+        for (long gap : gaps) {
+            encoded += varintLength(gap);
+        }
+        int newLength = length - (end - start) + encoded;
+        if (newLength > deltas.length) {
+            deltas = Arrays.copyOf(deltas, Math.max(newLength, deltas.length * 2));
+        }
+        System.arraycopy(deltas, end, deltas, start + encoded, length - end);
+        int position = start;
+        for (long gap : gaps) {
+            while ((gap & ~0x7FL) != 0) {
+                deltas[position++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            deltas[position++] = (byte) gap;
+        }
+        length = newLength;
+    }
+
+    // --- LEITURA ---
+
+    public PrimitiveIterator.OfLong iterator() {
+        return bits != null ? new BitmapIterator() : new DeltaIterator();
+    }
+
+    public void forEach(LongConsumer action) {
+        PrimitiveIterator.OfLong iterator = iterator();
+        while (iterator.hasNext()) {
+            action.accept(iterator.nextLong());
+        }
+    }
+
+    public LongStream stream() {
+        int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+                | Spliterator.NONNULL | Spliterator.SIZED;
+        return StreamSupport.longStream(Spliterators.spliterator(iterator(), size, characteristics), false);
+    }
+
+    public long[] toArray() {
+        long[] ids = new long[size];
+        PrimitiveIterator.OfLong iterator = iterator();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = iterator.nextLong();
+        }
+        return ids;
+    }
+
+    private final class DeltaIterator implements PrimitiveIterator.OfLong {
+        private int remaining = size;
+        private int position;
+        private long current;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public long nextLong() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            if (remaining == size) {
+                current = first;
+            } else {
+                current += varintAt(position);
+                position = varintEnd(position);
+            }
+            remaining--;
+            return current;
+        }
+    }
+
+    private final class BitmapIterator implements PrimitiveIterator.OfLong {
+        private int remaining = size;
+        private long nextOffset = first - base;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public long nextLong() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            long id = nextSetBit(nextOffset);
+            nextOffset = id - base + 1;
+            remaining--;
+            return id;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        PrimitiveIterator.OfLong iterator = iterator();
+        while (iterator.hasNext()) {
+            sb.append(iterator.nextLong());
+            if (iterator.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        return sb.append("]").toString();
+    }
+}
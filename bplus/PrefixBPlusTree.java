@@ -0,0 +1,522 @@
+package bplus;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Árvore B+ para chaves byte[] (ordem lexicográfica sem sinal) ou String (guardada em UTF-8,
+ * então a ordem é a dos code points), com a mesma semântica de insert/search/delete/searchRange
+ * da BPlusTree.
+ *
+ * Cada nó guarda uma única vez o prefixo comum das suas chaves e, para cada chave, só o
+ * restante (compressão de prefixo); a busca compara a chave procurada com o prefixo uma vez e
+ * depois faz a busca binária só sobre os sufixos. Nos splits de folha sobe o menor prefixo da
+ * primeira chave da direita que ainda a separa da última da esquerda (suffix truncation), então
+ * os nós internos guardam separadores curtos. Com chaves longas e parecidas (URLs, caminhos,
+ * chaves compostas) isso reduz bastante os bytes guardados por nó.
+ *
+ * Como a LongLongBPlusTree, os nós não têm ponteiro para o pai: insert e delete guardam o caminho.
+ */
+public class PrefixBPlusTree<V> {
+    private static final byte[] EMPTY = new byte[0];
+
+    private abstract static class Node {
+        // Prefixo comum a todas as chaves do nó; suffixes[i] é a chave i sem ele
+        byte[] prefix = EMPTY;
+        final byte[][] suffixes;
+        int count;
+
+        Node(int capacity) {
+            this.suffixes = new byte[capacity][];
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values;
+        Leaf next;
+        Leaf previous;
+
+        Leaf(int capacity) {
+            super(capacity);
+            this.values = new Object[capacity];
+        }
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(int capacity) {
+            super(capacity);
+            this.children = new Node[capacity + 1];
+        }
+    }
+
+    private final int order;
+    private final int minLeafKeys;
+    private final int minInternalKeys;
+    private Node root;
+    private int height = 1;
+    private int size;
+
+    public PrefixBPlusTree(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("order must be >= 3");
+        }
+        this.order = order;
+        this.minLeafKeys = (int) Math.ceil((order - 1) / 2.0);
+        this.minInternalKeys = (int) Math.ceil(order / 2.0) - 1;
+        this.root = new Leaf(order);
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public void insert(String key, V value) {
+        insert(encode(key), value);
+    }
+
+    public V search(String key) {
+        return search(encode(key));
+    }
+
+    public boolean delete(String key) {
+        return delete(encode(key));
+    }
+
+    public List<V> searchRange(String startKey, String endKey) {
+        return searchRange(encode(startKey), encode(endKey));
+    }
+
+    public void insert(byte[] key, V value) {
+        checkKey(key);
+        Inner[] path = new Inner[height - 1];
+        int[] indexes = new int[height - 1];
+        Leaf leaf = descend(key, path, indexes);
+
+        int index = bound(leaf, key, false);
+        if (index < leaf.count && matches(leaf, index, key)) {
+            leaf.values[index] = value;
+            return;
+        }
+        System.arraycopy(leaf.values, index, leaf.values, index + 1, leaf.count - index);
+        leaf.values[index] = value;
+        insertKey(leaf, index, key);
+        size++;
+        if (leaf.count < order) {
+            return;
+        }
+
+        // Split da folha: a metade de cima vai para a irmã e sobe o separador mais curto entre as duas
+        Leaf sibling = new Leaf(order);
+        byte[][] keys = keys(leaf);
+        int mid = leaf.count / 2;
+        int siblingCount = leaf.count - mid;
+        System.arraycopy(leaf.values, mid, sibling.values, 0, siblingCount);
+        Arrays.fill(leaf.values, mid, leaf.count, null);
+        store(leaf, keys, 0, mid);
+        store(sibling, keys, mid, siblingCount);
+        sibling.next = leaf.next;
+        if (leaf.next != null) {
+            leaf.next.previous = sibling;
+        }
+        leaf.next = sibling;
+        sibling.previous = leaf;
+
+        byte[] promoted = separator(keys[mid - 1], keys[mid]);
+        Node newNode = sibling;
+        for (int depth = path.length - 1; depth >= 0; depth--) {
+            Inner parent = path[depth];
+            int childIndex = indexes[depth];
+            System.arraycopy(parent.children, childIndex + 1, parent.children, childIndex + 2, parent.count - childIndex);
+            parent.children[childIndex + 1] = newNode;
+            insertKey(parent, childIndex, promoted);
+            if (parent.count < order) {
+                return;
+            }
+
+            // Split do nó interno: a chave do meio sobe e não fica em nenhum dos dois
+            Inner parentSibling = new Inner(order);
+            byte[][] parentKeys = keys(parent);
+            int parentMid = parent.count / 2;
+            int parentSiblingCount = parent.count - parentMid - 1;
+            promoted = parentKeys[parentMid];
+            System.arraycopy(parent.children, parentMid + 1, parentSibling.children, 0, parentSiblingCount + 1);
+            Arrays.fill(parent.children, parentMid + 1, parent.count + 1, null);
+            store(parent, parentKeys, 0, parentMid);
+            store(parentSibling, parentKeys, parentMid + 1, parentSiblingCount);
+            newNode = parentSibling;
+        }
+
+        Inner newRoot = new Inner(order);
+        newRoot.children[0] = root;
+        newRoot.children[1] = newNode;
+        insertKey(newRoot, 0, promoted);
+        root = newRoot;
+        height++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V search(byte[] key) {
+        if (key == null) {
+            return null;
+        }
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[bound(inner, key, true)];
+        }
+        Leaf leaf = (Leaf) node;
+        int index = bound(leaf, key, false);
+        return index < leaf.count && matches(leaf, index, key) ? (V) leaf.values[index] : null;
+    }
+
+    public boolean delete(byte[] key) {
+        checkKey(key);
+        Inner[] path = new Inner[height - 1];
+        int[] indexes = new int[height - 1];
+        Leaf leaf = descend(key, path, indexes);
+
+        int index = bound(leaf, key, false);
+        if (index >= leaf.count || !matches(leaf, index, key)) {
+            return false;
+        }
+        System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.count - index - 1);
+        leaf.values[leaf.count - 1] = null;
+        removeKey(leaf, index);
+        size--;
+
+        Node node = leaf;
+        for (int depth = path.length - 1; depth >= 0; depth--) {
+            int minKeys = node instanceof Leaf ? minLeafKeys : minInternalKeys;
+            if (node.count >= minKeys) {
+                break;
+            }
+            fixUnderflow(path[depth], indexes[depth], minKeys);
+            node = path[depth];
+        }
+
+        if (root instanceof Inner inner && inner.count == 0) {
+            root = inner.children[0];
+            height--;
+        }
+        return true;
+    }
+
+    /**
+     * Entrega ao consumidor, em ordem de chave, os valores de [startKey, endKey].
+     */
+    @SuppressWarnings("unchecked")
+    public void searchRange(byte[] startKey, byte[] endKey, Consumer<? super V> consumer) {
+        if (startKey == null || endKey == null || Arrays.compareUnsigned(startKey, endKey) > 0) {
+            return;
+        }
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[bound(inner, startKey, true)];
+        }
+        Leaf leaf = (Leaf) node;
+        int i = bound(leaf, startKey, false);
+        while (leaf != null) {
+            // Um único limite por folha: primeira posição com chave > endKey
+            int stop = bound(leaf, endKey, true);
+            for (; i < stop; i++) {
+                consumer.accept((V) leaf.values[i]);
+            }
+            if (stop < leaf.count) {
+                return;
+            }
+            leaf = leaf.next;
+            i = 0;
+        }
+    }
+
+    public List<V> searchRange(byte[] startKey, byte[] endKey) {
+        List<V> result = new ArrayList<>();
+        searchRange(startKey, endKey, result::add);
+        return result;
+    }
+
+    /**
+     * Bytes de chave guardados na árvore (prefixos de cada nó + sufixos, folhas e nós internos).
+     */
+    public long storedKeyBytes() {
+        return storedKeyBytes(root);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendNode(sb, root, "");
+        return sb.toString();
+    }
+
+    // --- REMOÇÃO ---
+
+    // O filho 'childIndex' de 'parent' ficou abaixo do mínimo: pega uma chave de um irmão ou funde
+    private void fixUnderflow(Inner parent, int childIndex, int minKeys) {
+        Node child = parent.children[childIndex];
+        Node left = childIndex > 0 ? parent.children[childIndex - 1] : null;
+        Node right = childIndex < parent.count ? parent.children[childIndex + 1] : null;
+
+        if (left != null && left.count > minKeys) {
+            borrowFromLeft(parent, childIndex, child, left);
+        } else if (right != null && right.count > minKeys) {
+            borrowFromRight(parent, childIndex, child, right);
+        } else if (left != null) {
+            merge(parent, childIndex - 1, left, child);
+        } else {
+            merge(parent, childIndex, child, right);
+        }
+    }
+
+    private void borrowFromLeft(Inner parent, int childIndex, Node child, Node left) {
+        byte[] moved = key(left, left.count - 1);
+        if (child instanceof Leaf leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.count);
+            leaf.values[0] = leftLeaf.values[leftLeaf.count - 1];
+            leftLeaf.values[leftLeaf.count - 1] = null;
+            removeKey(left, left.count - 1);
+            insertKey(leaf, 0, moved);
+            setKey(parent, childIndex - 1, separator(key(left, left.count - 1), moved));
+        } else {
+            Inner inner = (Inner) child;
+            Inner leftInner = (Inner) left;
+            System.arraycopy(inner.children, 0, inner.children, 1, inner.count + 1);
+            inner.children[0] = leftInner.children[leftInner.count];
+            leftInner.children[leftInner.count] = null;
+            insertKey(inner, 0, key(parent, childIndex - 1));
+            removeKey(left, left.count - 1);
+            setKey(parent, childIndex - 1, moved);
+        }
+    }
+
+    private void borrowFromRight(Inner parent, int childIndex, Node child, Node right) {
+        byte[] moved = key(right, 0);
+        if (child instanceof Leaf leaf) {
+            Leaf rightLeaf = (Leaf) right;
+            leaf.values[leaf.count] = rightLeaf.values[0];
+            System.arraycopy(rightLeaf.values, 1, rightLeaf.values, 0, rightLeaf.count - 1);
+            rightLeaf.values[rightLeaf.count - 1] = null;
+            insertKey(leaf, leaf.count, moved);
+            removeKey(right, 0);
+            setKey(parent, childIndex, separator(moved, key(right, 0)));
+        } else {
+            Inner inner = (Inner) child;
+            Inner rightInner = (Inner) right;
+            inner.children[inner.count + 1] = rightInner.children[0];
+            System.arraycopy(rightInner.children, 1, rightInner.children, 0, rightInner.count);
+            rightInner.children[rightInner.count] = null;
+            insertKey(inner, inner.count, key(parent, childIndex));
+            removeKey(right, 0);
+            setKey(parent, childIndex, moved);
+        }
+    }
+
+    // Junta 'right' em 'left' (filhos leftIndex e leftIndex + 1 de 'parent') e tira o separador do pai
+    private void merge(Inner parent, int leftIndex, Node left, Node right) {
+        byte[][] leftKeys = keys(left);
+        byte[][] rightKeys = keys(right);
+        if (left instanceof Leaf leftLeaf) {
+            Leaf rightLeaf = (Leaf) right;
+            System.arraycopy(rightLeaf.values, 0, leftLeaf.values, leftLeaf.count, rightLeaf.count);
+            byte[][] merged = Arrays.copyOf(leftKeys, leftKeys.length + rightKeys.length);
+            System.arraycopy(rightKeys, 0, merged, leftKeys.length, rightKeys.length);
+            store(leftLeaf, merged, 0, merged.length);
+            leftLeaf.next = rightLeaf.next;
+            if (rightLeaf.next != null) {
+                rightLeaf.next.previous = leftLeaf;
+            }
+        } else {
+            Inner leftInner = (Inner) left;
+            Inner rightInner = (Inner) right;
+            System.arraycopy(rightInner.children, 0, leftInner.children, leftInner.count + 1, rightInner.count + 1);
+            byte[][] merged = Arrays.copyOf(leftKeys, leftKeys.length + 1 + rightKeys.length);
+            merged[leftKeys.length] = key(parent, leftIndex);
+            System.arraycopy(rightKeys, 0, merged, leftKeys.length + 1, rightKeys.length);
+            store(leftInner, merged, 0, merged.length);
+        }
+        System.arraycopy(parent.children, leftIndex + 2, parent.children, leftIndex + 1, parent.count - leftIndex - 1);
+        parent.children[parent.count] = null;
+        removeKey(parent, leftIndex);
+    }
+
+    // --- CHAVES COMPRIMIDAS ---
+
+    private static byte[] key(Node node, int index) {
+        byte[] suffix = node.suffixes[index];
+        byte[] key = Arrays.copyOf(node.prefix, node.prefix.length + suffix.length);
+        System.arraycopy(suffix, 0, key, node.prefix.length, suffix.length);
+        return key;
+    }
+
+    private static byte[][] keys(Node node) {
+        byte[][] keys = new byte[node.count][];
+        for (int i = 0; i < node.count; i++) {
+            keys[i] = key(node, i);
+        }
+        return keys;
+    }
+
+    // Regrava o nó com as chaves keys[from, from + count), já ordenadas: o prefixo comum é o da primeira com a última
+    private static void store(Node node, byte[][] keys, int from, int count) {
+        int prefixLength = 0;
+        if (count > 0) {
+            byte[] first = keys[from];
+            byte[] last = keys[from + count - 1];
+            int mismatch = Arrays.mismatch(first, last);
+            prefixLength = mismatch < 0 ? first.length : mismatch;
+        }
+        node.prefix = prefixLength == 0 ? EMPTY : Arrays.copyOf(keys[from], prefixLength);
+        for (int i = 0; i < count; i++) {
+            byte[] key = keys[from + i];
+            node.suffixes[i] = Arrays.copyOfRange(key, prefixLength, key.length);
+        }
+        Arrays.fill(node.suffixes, count, Math.max(count, node.count), null);
+        node.count = count;
+    }
+
+    private static void insertKey(Node node, int index, byte[] key) {
+        if (!startsWithPrefix(node, key)) {
+            // A chave nova não tem o prefixo do nó: o prefixo encolhe e os sufixos são refeitos
+            byte[][] keys = new byte[node.count + 1][];
+            for (int i = 0, j = 0; i <= node.count; i++) {
+                keys[i] = i == index ? key : key(node, j++);
+            }
+            store(node, keys, 0, keys.length);
+            return;
+        }
+        System.arraycopy(node.suffixes, index, node.suffixes, index + 1, node.count - index);
+        node.suffixes[index] = Arrays.copyOfRange(key, node.prefix.length, key.length);
+        node.count++;
+    }
+
+    // O prefixo continua comum às chaves que sobram, então não precisa ser recalculado
+    private static void removeKey(Node node, int index) {
+        System.arraycopy(node.suffixes, index + 1, node.suffixes, index, node.count - index - 1);
+        node.suffixes[--node.count] = null;
+    }
+
+    private static void setKey(Node node, int index, byte[] key) {
+        if (startsWithPrefix(node, key)) {
+            node.suffixes[index] = Arrays.copyOfRange(key, node.prefix.length, key.length);
+            return;
+        }
+        byte[][] keys = keys(node);
+        keys[index] = key;
+        store(node, keys, 0, keys.length);
+    }
+
+    private static boolean startsWithPrefix(Node node, byte[] key) {
+        int length = node.prefix.length;
+        return key.length >= length && Arrays.equals(key, 0, length, node.prefix, 0, length);
+    }
+
+    private static boolean matches(Node node, int index, byte[] key) {
+        byte[] suffix = node.suffixes[index];
+        return key.length == node.prefix.length + suffix.length && startsWithPrefix(node, key)
+                && Arrays.equals(key, node.prefix.length, key.length, suffix, 0, suffix.length);
+    }
+
+    /**
+     * Primeira posição com chave > key (upper) ou >= key. A chave é comparada com o prefixo do
+     * nó uma vez; se ela não começa com ele, está antes ou depois de todas as chaves do nó.
+     */
+    private static int bound(Node node, byte[] key, boolean upper) {
+        byte[] prefix = node.prefix;
+        int common = Math.min(prefix.length, key.length);
+        int cmp = Arrays.compareUnsigned(key, 0, common, prefix, 0, common);
+        if (cmp < 0 || (cmp == 0 && key.length < prefix.length)) {
+            return 0;
+        }
+        if (cmp > 0) {
+            return node.count;
+        }
+        int low = 0;
+        int high = node.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            byte[] suffix = node.suffixes[mid];
+            int c = Arrays.compareUnsigned(suffix, 0, suffix.length, key, prefix.length, key.length);
+            if (c < 0 || (upper && c == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Menor prefixo de 'right' que ainda é maior que 'left' (left < right)
+    private static byte[] separator(byte[] left, byte[] right) {
+        int mismatch = Arrays.mismatch(left, right);
+        return Arrays.copyOf(right, mismatch + 1);
+    }
+
+    // --- NAVEGAÇÃO ---
+
+    // Desce até a folha da chave, anotando em 'path'/'indexes' os nós internos e o filho seguido em cada um
+    private Leaf descend(byte[] key, Inner[] path, int[] indexes) {
+        Node node = root;
+        for (int depth = 0; depth < path.length; depth++) {
+            Inner inner = (Inner) node;
+            int childIndex = bound(inner, key, true);
+            path[depth] = inner;
+            indexes[depth] = childIndex;
+            node = inner.children[childIndex];
+        }
+        return (Leaf) node;
+    }
+
+    private static void checkKey(byte[] key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+    }
+
+    private static byte[] encode(String key) {
+        return key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long storedKeyBytes(Node node) {
+        long total = node.prefix.length;
+        for (int i = 0; i < node.count; i++) {
+            total += node.suffixes[i].length;
+        }
+        if (node instanceof Inner inner) {
+            for (int i = 0; i <= inner.count; i++) {
+                total += storedKeyBytes(inner.children[i]);
+            }
+        }
+        return total;
+    }
+
+    private static void appendNode(StringBuilder sb, Node node, String indent) {
+        List<String> keys = new ArrayList<>(node.count);
+        for (int i = 0; i < node.count; i++) {
+            keys.add(new String(node.suffixes[i], StandardCharsets.UTF_8));
+        }
+        String prefix = new String(node.prefix, StandardCharsets.UTF_8);
+        if (node instanceof Leaf leaf) {
+            sb.append(indent).append("Folha: ").append(prefix).append("|").append(keys);
+            sb.append(" (Valores: ").append(Arrays.toString(Arrays.copyOf(leaf.values, leaf.count))).append(")");
+            return;
+        }
+        Inner inner = (Inner) node;
+        sb.append(indent).append("Interno: ").append(prefix).append("|").append(keys).append("\n");
+        for (int i = 0; i <= inner.count; i++) {
+            appendNode(sb, inner.children[i], indent + "  ");
+            sb.append("\n");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package bplus;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Tarefa fork-join de {@link BPlusTree#aggregate}: cobre o intervalo [lower, upper] dentro da
+ * subárvore de 'node'. Enquanto a subárvore for grande, cada filho que intercepta o intervalo
+ * vira uma subtarefa, com o intervalo cortado pelas chaves separadoras do nó; abaixo do limite
+ * a subárvore é percorrida sequencialmente, folha a folha, direto nas listas das folhas.
+ */
+final class RangeAggregation<K extends Comparable<K>, V, R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+    // Pares (estimados) abaixo dos quais a subárvore é processada sem dividir
+    static final long SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    private final RangeReducer<? super K, ? super V, R> reducer;
+    private final BNode<K, V> node;
+    // Altura de 'node' (0 = folha)
+    private final int level;
+    private final double fanout;
+    private final K lower;
+    private final boolean lowerInclusive;
+    private final K upper;
+    private final boolean upperInclusive;
+
+    RangeAggregation(RangeReducer<? super K, ? super V, R> reducer, BNode<K, V> node, int level, double fanout,
+            K lower, boolean lowerInclusive, K upper, boolean upperInclusive) {
+        this.reducer = reducer;
+        this.node = node;
+        this.level = level;
+        this.fanout = fanout;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+    }
+
+    @Override
+    protected R compute() {
+        if (level == 0 || Math.pow(fanout, level + 1) <= SEQUENTIAL_THRESHOLD) {
+            return scan();
+        }
+        InternalBNode<K, V> internal = (InternalBNode<K, V>) node;
+        List<K> keys = internal.keys;
+        // Filhos [first, last] interceptam o intervalo; o filho i cobre [keys[i-1], keys[i])
+        int first = lower == null ? 0 : childIndex(keys, lower);
+        int last = upper == null ? keys.size() : childIndex(keys, upper);
+        if (first == last) {
+            return new RangeAggregation<>(reducer, internal.children.get(first), level - 1, fanout,
+                    lower, lowerInclusive, upper, upperInclusive).compute();
+        }
+        List<RangeAggregation<K, V, R>> tasks = new ArrayList<>(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            K childLower = i == first ? lower : keys.get(i - 1);
+            boolean childLowerInclusive = i == first ? lowerInclusive : true;
+            K childUpper = i == last ? upper : keys.get(i);
+            boolean childUpperInclusive = i == last ? upperInclusive : false;
+            tasks.add(new RangeAggregation<>(reducer, internal.children.get(i), level - 1, fanout,
+                    childLower, childLowerInclusive, childUpper, childUpperInclusive));
+        }
+        for (int i = tasks.size() - 1; i > 0; i--) {
+            tasks.get(i).fork();
+        }
+        R result = tasks.get(0).compute();
+        for (int i = 1; i < tasks.size(); i++) {
+            result = reducer.combine(result, tasks.get(i).join());
+        }
+        return result;
+    }
+
+    // Percorre as folhas do intervalo a partir da subárvore de 'node', em trechos contíguos
+    private R scan() {
+        BNode<K, V> current = node;
+        while (!current.isLeaf()) {
+            InternalBNode<K, V> internal = (InternalBNode<K, V>) current;
+            current = internal.children.get(lower == null ? 0 : childIndex(internal.keys, lower));
+        }
+        LeafBNode<K, V> leaf = (LeafBNode<K, V>) current;
+        R result = reducer.identity();
+        int from = lower == null ? 0 : lowerBound(leaf.keys, lower, lowerInclusive);
+        while (leaf != null) {
+            int count = leaf.getKeyCount();
+            int to = upper == null ? count : lowerBound(leaf.keys, upper, !upperInclusive);
+            if (from < to) {
+                result = reducer.accumulateAll(result, leaf.keys.subList(from, to), leaf.values.subList(from, to));
+            }
+            if (to < count) {
+                break;
+            }
+            leaf = leaf.next;
+            from = 0;
+        }
+        return result;
+    }
+
+    // Mesmo critério de descida de findLeafNode: chave igual ao separador vai para a direita
+    private static <K extends Comparable<K>> int childIndex(List<K> keys, K key) {
+        int index = Collections.binarySearch(keys, key);
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+
+    // Primeira posição com chave >= key (inclusive) ou > key (exclusive)
+    private static <K extends Comparable<K>> int lowerBound(List<K> keys, K key, boolean inclusive) {
+        int index = Collections.binarySearch(keys, key);
+        if (index >= 0) {
+            return inclusive ? index : index + 1;
+        }
+        return -(index + 1);
+    }
+}
@@ -0,0 +1,119 @@
+package bplus;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Agregação de um intervalo da BPlusTree, usada por {@link BPlusTree#aggregate}.
+ *
+ * O intervalo é dividido em subintervalos processados em paralelo, cada um começando em
+ * {@link #identity()}; os resultados parciais são juntados com {@link #combine} na ordem das
+ * chaves. Por isso combine precisa ser associativo e identity() precisa ser neutro para ele
+ * (e, se o resultado for um objeto mutável, identity() deve criar um novo a cada chamada).
+ *
+ * @param <R> tipo do resultado parcial e final
+ */
+public interface RangeReducer<K, V, R> {
+
+    R identity();
+
+    R accumulate(R partial, K key, V value);
+
+    R combine(R left, R right);
+
+    /**
+     * Acumula um trecho contíguo de uma folha (chaves em ordem crescente). As listas são visões
+     * da própria folha: não devem ser alteradas nem guardadas. Reducers que não precisam olhar
+     * par a par (contagem) ou que querem evitar boxing por par (soma) sobrescrevem este método.
+     */
+    default R accumulateAll(R partial, List<? extends K> keys, List<? extends V> values) {
+        for (int i = 0; i < keys.size(); i++) {
+            partial = accumulate(partial, keys.get(i), values.get(i));
+        }
+        return partial;
+    }
+
+    static <K, V> RangeReducer<K, V, Long> count() {
+        return new RangeReducer<>() {
+            @Override
+            public Long identity() {
+                return 0L;
+            }
+
+            @Override
+            public Long accumulate(Long partial, K key, V value) {
+                return partial + 1;
+            }
+
+            @Override
+            public Long combine(Long left, Long right) {
+                return left + right;
+            }
+
+            @Override
+            public Long accumulateAll(Long partial, List<? extends K> keys, List<? extends V> values) {
+                return partial + keys.size();
+            }
+        };
+    }
+
+    static <K, V> RangeReducer<K, V, Long> sum(ToLongFunction<? super V> mapper) {
+        return new RangeReducer<>() {
+            @Override
+            public Long identity() {
+                return 0L;
+            }
+
+            @Override
+            public Long accumulate(Long partial, K key, V value) {
+                return partial + mapper.applyAsLong(value);
+            }
+
+            @Override
+            public Long combine(Long left, Long right) {
+                return left + right;
+            }
+
+            @Override
+            public Long accumulateAll(Long partial, List<? extends K> keys, List<? extends V> values) {
+                long total = partial;
+                for (V value : values) {
+                    total += mapper.applyAsLong(value);
+                }
+                return total;
+            }
+        };
+    }
+
+    /**
+     * Menor valor do intervalo segundo 'comparator' (null se o intervalo estiver vazio).
+     */
+    static <K, V> RangeReducer<K, V, V> min(Comparator<? super V> comparator) {
+        return new RangeReducer<>() {
+            @Override
+            public V identity() {
+                return null;
+            }
+
+            @Override
+            public V accumulate(V partial, K key, V value) {
+                return partial == null || comparator.compare(value, partial) < 0 ? value : partial;
+            }
+
+            @Override
+            public V combine(V left, V right) {
+                if (left == null) {
+                    return right;
+                }
+                return right == null || comparator.compare(left, right) <= 0 ? left : right;
+            }
+        };
+    }
+
+    /**
+     * Maior valor do intervalo segundo 'comparator' (null se o intervalo estiver vazio).
+     */
+    static <K, V> RangeReducer<K, V, V> max(Comparator<? super V> comparator) {
+        return min(comparator.reversed());
+    }
+}
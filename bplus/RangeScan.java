@@ -0,0 +1,336 @@
+package bplus;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Varredura preguiçosa de um intervalo da BPlusTree, criada por {@link BPlusTree#scan()}:
+ * <pre>
+ *   tree.scan().from(10, true).to(100, false).descending().offset(20).limit(50).stream()
+ * </pre>
+ * Sem from/to o intervalo é aberto daquele lado. O cursor se posiciona uma vez (descida até a
+ * folha + busca binária) e depois só percorre a lista encadeada de folhas (next, ou previous
+ * na ordem decrescente); o fim do intervalo é localizado com uma busca binária por folha, sem
+ * comparar chave a chave. Nada é materializado: cada par é lido quando é pedido.
+ *
+ * O spliterator pode ser dividido para consumo paralelo: a divisão usa as chaves separadoras dos
+ * nós internos, então cada parte é um subintervalo que começa em uma folha diferente.
+ * Com offset/limit ele não se divide (a posição dos pares depende da varredura inteira).
+ *
+ * Alterar a árvore durante a varredura faz o cursor lançar ConcurrentModificationException.
+ */
+public final class RangeScan<K extends Comparable<K>, V> {
+    private final BPlusTree<K, V> tree;
+    private K lower;
+    private boolean lowerInclusive = true;
+    private K upper;
+    private boolean upperInclusive = true;
+    private boolean descending;
+    private long offset;
+    private long limit = Long.MAX_VALUE;
+
+    RangeScan(BPlusTree<K, V> tree) {
+        this.tree = tree;
+    }
+
+    public RangeScan<K, V> from(K key, boolean inclusive) {
+        this.lower = key;
+        this.lowerInclusive = inclusive;
+        return this;
+    }
+
+    public RangeScan<K, V> to(K key, boolean inclusive) {
+        this.upper = key;
+        this.upperInclusive = inclusive;
+        return this;
+    }
+
+    public RangeScan<K, V> descending() {
+        this.descending = true;
+        return this;
+    }
+
+    /**
+     * Pula os primeiros 'count' pares do intervalo (na ordem da varredura).
+     */
+    public RangeScan<K, V> offset(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("offset deve ser >= 0");
+        }
+        this.offset = count;
+        return this;
+    }
+
+    public RangeScan<K, V> limit(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("limit deve ser >= 0");
+        }
+        this.limit = count;
+        return this;
+    }
+
+    public Cursor<K, V> cursor() {
+        return new Cursor<>(tree, lower, lowerInclusive, upper, upperInclusive, descending, offset, limit);
+    }
+
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        return new RangeSpliterator<>(tree, lower, lowerInclusive, upper, upperInclusive, descending, offset, limit);
+    }
+
+    public Stream<Map.Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<V> values() {
+        return stream().map(Map.Entry::getValue);
+    }
+
+    /**
+     * Iterador sobre os pares do intervalo. {@link #nextValue()} devolve só o valor, sem criar
+     * o Map.Entry.
+     */
+    public static final class Cursor<K extends Comparable<K>, V> implements Iterator<Map.Entry<K, V>> {
+        private final BPlusTree<K, V> tree;
+        private final int expectedModCount;
+        private final K lower;
+        private final boolean lowerInclusive;
+        private final K upper;
+        private final boolean upperInclusive;
+        private final boolean descending;
+        private long remaining;
+        private LeafBNode<K, V> leaf;
+        private int index;
+        // Crescente: primeira posição fora do intervalo na folha; decrescente: última posição fora
+        private int stop;
+        // O limite do intervalo cai dentro desta folha: não há o que ler nas seguintes
+        private boolean lastLeaf;
+
+        Cursor(BPlusTree<K, V> tree, K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                boolean descending, long offset, long limit) {
+            this.tree = tree;
+            this.expectedModCount = tree.modificationCount();
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+            this.descending = descending;
+            this.remaining = limit;
+            if (lower != null && upper != null) {
+                int cmp = lower.compareTo(upper);
+                if (cmp > 0 || (cmp == 0 && !(lowerInclusive && upperInclusive))) {
+                    return;
+                }
+            }
+            if (descending) {
+                this.leaf = upper == null ? tree.lastLeafNode() : tree.findLeafNode(upper);
+                this.index = upper == null ? leaf.getKeyCount() - 1 : upperStop(leaf) - 1;
+            } else {
+                this.leaf = lower == null ? tree.firstLeafNode() : tree.findLeafNode(lower);
+                this.index = lower == null ? 0 : lowerStop(leaf) + 1;
+            }
+            computeStop();
+            skip(offset);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (tree.modificationCount() != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (leaf == null || remaining == 0) {
+                return false;
+            }
+            while (descending ? index <= stop : index >= stop) {
+                LeafBNode<K, V> following = descending ? leaf.previous : leaf.next;
+                if (lastLeaf || following == null) {
+                    leaf = null;
+                    return false;
+                }
+                leaf = following;
+                index = descending ? leaf.getKeyCount() - 1 : 0;
+                computeStop();
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(leaf.keys.get(index), leaf.values.get(index));
+            step();
+            return entry;
+        }
+
+        public V nextValue() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = leaf.values.get(index);
+            step();
+            return value;
+        }
+
+        private void step() {
+            index += descending ? -1 : 1;
+            remaining--;
+        }
+
+        // Pula folhas inteiras de uma vez, sem ler os pares
+        private void skip(long count) {
+            while (count > 0 && hasNext()) {
+                int available = descending ? index - stop : stop - index;
+                int step = (int) Math.min(count, available);
+                index += descending ? -step : step;
+                count -= step;
+            }
+        }
+
+        private void computeStop() {
+            if (descending) {
+                stop = lower == null ? -1 : lowerStop(leaf);
+                lastLeaf = stop >= 0;
+            } else {
+                stop = upper == null ? leaf.getKeyCount() : upperStop(leaf);
+                lastLeaf = stop < leaf.getKeyCount();
+            }
+        }
+
+        // Última posição da folha com chave abaixo do limite inferior (-1 se nenhuma)
+        private int lowerStop(LeafBNode<K, V> node) {
+            int position = Collections.binarySearch(node.keys, lower);
+            if (position >= 0) {
+                return lowerInclusive ? position - 1 : position;
+            }
+            return -(position + 1) - 1;
+        }
+
+        // Primeira posição da folha com chave acima do limite superior (getKeyCount() se nenhuma)
+        private int upperStop(LeafBNode<K, V> node) {
+            int position = Collections.binarySearch(node.keys, upper);
+            if (position >= 0) {
+                return upperInclusive ? position + 1 : position;
+            }
+            return -(position + 1);
+        }
+    }
+
+    private static final class RangeSpliterator<K extends Comparable<K>, V> implements Spliterator<Map.Entry<K, V>> {
+        private final BPlusTree<K, V> tree;
+        private final boolean descending;
+        private final long offset;
+        private final long limit;
+        private K lower;
+        private boolean lowerInclusive;
+        private K upper;
+        private boolean upperInclusive;
+        private Cursor<K, V> cursor;
+
+        RangeSpliterator(BPlusTree<K, V> tree, K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                boolean descending, long offset, long limit) {
+            this.tree = tree;
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+            this.descending = descending;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Map.Entry<K, V>> action) {
+            if (cursor == null) {
+                cursor = new Cursor<>(tree, lower, lowerInclusive, upper, upperInclusive, descending, offset, limit);
+            }
+            if (!cursor.hasNext()) {
+                return false;
+            }
+            action.accept(cursor.next());
+            return true;
+        }
+
+        /**
+         * Divide o intervalo em uma chave separadora de nó interno que caia estritamente dentro
+         * dele, procurando do nível mais alto para baixo (a do meio, se houver várias).
+         * Devolve a primeira metade na ordem da varredura.
+         */
+        @Override
+        public Spliterator<Map.Entry<K, V>> trySplit() {
+            if (cursor != null || offset > 0 || limit != Long.MAX_VALUE) {
+                return null;
+            }
+            K separator = findSeparator();
+            if (separator == null) {
+                return null;
+            }
+            RangeSpliterator<K, V> prefix;
+            if (descending) {
+                prefix = new RangeSpliterator<>(tree, separator, true, upper, upperInclusive, true, 0, Long.MAX_VALUE);
+                upper = separator;
+                upperInclusive = false;
+            } else {
+                prefix = new RangeSpliterator<>(tree, lower, lowerInclusive, separator, false, false, 0, Long.MAX_VALUE);
+                lower = separator;
+                lowerInclusive = true;
+            }
+            return prefix;
+        }
+
+        private K findSeparator() {
+            BNode<K, V> node = tree.rootNode();
+            while (!node.isLeaf()) {
+                InternalBNode<K, V> internal = (InternalBNode<K, V>) node;
+                List<K> keys = internal.keys;
+                int first = lower == null ? 0 : upperBound(keys, lower);
+                int end = upper == null ? keys.size() : lowerBound(keys, upper);
+                if (first < end) {
+                    return keys.get((first + end - 1) >>> 1);
+                }
+                // Nenhum separador dentro do intervalo: ele está todo em um único filho
+                node = internal.children.get(first);
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | (descending ? 0 : SORTED);
+        }
+
+        @Override
+        public Comparator<? super Map.Entry<K, V>> getComparator() {
+            if (descending) {
+                throw new IllegalStateException();
+            }
+            return Map.Entry.comparingByKey();
+        }
+
+        // Primeira posição com chave > key
+        private static <K extends Comparable<K>> int upperBound(List<K> keys, K key) {
+            int position = Collections.binarySearch(keys, key);
+            return position >= 0 ? position + 1 : -(position + 1);
+        }
+
+        // Primeira posição com chave >= key
+        private static <K extends Comparable<K>> int lowerBound(List<K> keys, K key) {
+            int position = Collections.binarySearch(keys, key);
+            return position >= 0 ? position : -(position + 1);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package bplus;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Índice não único sobre a BPlusTree: cada chave aponta para a {@link PostingList} com os row ids
+ * das linhas que têm aquele valor (ex.: um índice secundário em uma coluna de baixa
+ * cardinalidade). A árvore continua com uma entrada por chave, então split, fusão, scan e
+ * agregações são os mesmos da BPlusTree; só o valor de cada entrada é a lista compacta.
+ *
+ * A chave sai da árvore quando sua lista esvazia. As listas devolvidas por {@link #postings}
+ * são as do próprio índice: não devem ser alteradas por fora.
+ */
+public class SecondaryIndex<K extends Comparable<K>> {
+    private final BPlusTree<K, PostingList> tree;
+    private long size;
+    private long keyCount;
+
+    public SecondaryIndex(int order) {
+        this.tree = new BPlusTree<>(order);
+    }
+
+    /**
+     * Associa 'rowId' a 'key'; devolve false se o par já existia.
+     */
+    public boolean insert(K key, long rowId) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        PostingList postings = tree.search(key);
+        if (postings == null) {
+            postings = new PostingList();
+            postings.add(rowId);
+            tree.insert(key, postings);
+            keyCount++;
+            size++;
+            return true;
+        }
+        if (!postings.add(rowId)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove só o par (key, rowId); devolve false se ele não existia.
+     */
+    public boolean delete(K key, long rowId) {
+        PostingList postings = key == null ? null : tree.search(key);
+        if (postings == null || !postings.remove(rowId)) {
+            return false;
+        }
+        size--;
+        if (postings.isEmpty()) {
+            tree.delete(key);
+            keyCount--;
+        }
+        return true;
+    }
+
+    /**
+     * Remove a chave com todos os seus row ids; devolve quantos eram.
+     */
+    public int delete(K key) {
+        PostingList postings = key == null ? null : tree.search(key);
+        if (postings == null) {
+            return 0;
+        }
+        tree.delete(key);
+        keyCount--;
+        size -= postings.size();
+        return postings.size();
+    }
+
+    public boolean contains(K key, long rowId) {
+        PostingList postings = key == null ? null : tree.search(key);
+        return postings != null && postings.contains(rowId);
+    }
+
+    // Lista da chave, ou null se ela não está no índice
+    public PostingList postings(K key) {
+        return key == null ? null : tree.search(key);
+    }
+
+    // Row ids da chave em ordem crescente
+    public LongStream search(K key) {
+        PostingList postings = postings(key);
+        return postings == null ? LongStream.empty() : postings.stream();
+    }
+
+    public int count(K key) {
+        PostingList postings = postings(key);
+        return postings == null ? 0 : postings.size();
+    }
+
+    /**
+     * Entrega cada par (chave, row id) com startKey <= chave <= endKey, em ordem de chave e, dentro
+     * de cada chave, de row id, sem montar nenhuma lista intermediária.
+     */
+    public void searchRange(K startKey, K endKey, ObjLongConsumer<? super K> consumer) {
+        if (startKey == null || endKey == null) {
+            return;
+        }
+        RangeScan.Cursor<K, PostingList> cursor = tree.scan().from(startKey, true).to(endKey, true).cursor();
+        while (cursor.hasNext()) {
+            Map.Entry<K, PostingList> entry = cursor.next();
+            K key = entry.getKey();
+            entry.getValue().forEach(rowId -> consumer.accept(key, rowId));
+        }
+    }
+
+    /**
+     * Row ids das chaves do intervalo, preguiçosamente: a lista de cada chave só é lida quando o
+     * stream chega nela.
+     */
+    public LongStream searchRange(K startKey, K endKey) {
+        if (startKey == null || endKey == null) {
+            return LongStream.empty();
+        }
+        return tree.scan().from(startKey, true).to(endKey, true).values().flatMapToLong(PostingList::stream);
+    }
+
+    /**
+     * Varredura das chaves com suas listas (ver {@link RangeScan}), para intervalos abertos,
+     * ordem decrescente ou offset/limit por chave.
+     */
+    public RangeScan<K, PostingList> scan() {
+        return tree.scan();
+    }
+
+    // Número de pares (chave, row id)
+    public long size() {
+        return size;
+    }
+
+    // Número de chaves distintas
+    public long keyCount() {
+        return keyCount;
+    }
+
+    public int height() {
+        return tree.height();
+    }
+
+    @Override
+    public String toString() {
+        return tree.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package bplus;
+
+/**
+ * Escolhe a chave separadora promovida ao pai quando uma folha é dividida.
+ *
+ * O separador s precisa satisfazer left &lt; s &lt;= right, onde left é a última chave da folha
+ * da esquerda e right a primeira da folha da direita. O padrão ({@link #FULL_KEY}) promove
+ * right inteira; {@link #SHORTEST_STRING} promove o menor prefixo de right que ainda é maior
+ * que left (suffix truncation), então os nós internos guardam chaves mais curtas.
+ */
+public interface SeparatorPolicy<K> {
+
+    K separator(K left, K right);
+
+    SeparatorPolicy<Object> FULL_KEY = (left, right) -> right;
+
+    SeparatorPolicy<String> SHORTEST_STRING = (left, right) -> {
+        int common = 0;
+        int limit = Math.min(left.length(), right.length());
+        while (common < limit && left.charAt(common) == right.charAt(common)) {
+            common++;
+        }
+        int length = common + 1;
+        // Não corta um par de surrogates ao meio
+        if (length < right.length() && Character.isHighSurrogate(right.charAt(length - 1))) {
+            length++;
+        }
+        return right.substring(0, length);
+    };
+}
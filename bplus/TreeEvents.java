@@ -0,0 +1,21 @@
+package bplus;
+import metrics.IndexEvent;
+import metrics.IndexListener;
+
+// Compartilhado por todos os nós de uma árvore: trocar o listener da árvore vale para todos eles.
+// Também leva a política de separadores usada nos splits de folha.
+final class TreeEvents {
+    IndexListener listener = IndexListener.NOOP;
+    boolean timed;
+    SeparatorPolicy<?> separators = SeparatorPolicy.FULL_KEY;
+
+    void emit(IndexEvent event) {
+        listener.onEvent(event, 0, 0);
+    }
+
+    // Chave a promover entre a última chave de uma folha e a primeira da folha seguinte
+    @SuppressWarnings("unchecked")
+    <K> K separator(K left, K right) {
+        return ((SeparatorPolicy<K>) separators).separator(left, right);
+    }
+}
@@ -0,0 +1,157 @@
+package bplus;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+import storage.Codec;
+import storage.SnapshotFile;
+
+/**
+ * Snapshot binário de uma BPlusTree: grava os pares das folhas em ordem, em blocos de
+ * {@link #BLOCK_ENTRIES} pares ([chave][valor] pelos Codecs), e restaura com
+ * {@link BPlusTree#bulkLoad}, de baixo para cima, sem nenhum insert nem split.
+ *
+ * Só os pares vão para o arquivo, não os nós: a árvore restaurada tem a ordem gravada e folhas
+ * preenchidas até o fator de preenchimento pedido, independente de como a original chegou ao
+ * seu formato. Na leitura, a descompressão e a decodificação de cada bloco rodam em paralelo
+ * (ver {@link SnapshotFile}) enquanto a thread que chamou monta as folhas na ordem.
+ *
+ * O cabeçalho também guarda o LSN do log que o snapshot cobre (0 fora de um checkpoint), lido
+ * por {@link #lsn}.
+ */
+public final class TreeSnapshot {
+    public static final int BLOCK_ENTRIES = 4096;
+    private static final byte KIND = 1;
+
+    private TreeSnapshot() {
+    }
+
+    public static <K extends Comparable<K>, V> void save(BPlusTree<K, V> tree, Path file, Codec<K> keyCodec,
+            Codec<V> valueCodec, boolean compress) throws IOException {
+        save(tree, file, keyCodec, valueCodec, compress, ForkJoinPool.commonPool());
+    }
+
+    public static <K extends Comparable<K>, V> void save(BPlusTree<K, V> tree, Path file, Codec<K> keyCodec,
+            Codec<V> valueCodec, boolean compress, ForkJoinPool pool) throws IOException {
+        save(tree, file, keyCodec, valueCodec, compress, 0, pool);
+    }
+
+    /**
+     * Grava a árvore em 'file' (substituindo o snapshot anterior só no fim), registrando que ela
+     * contém todos os registros do log até 'lsn'. A árvore não pode ser alterada durante a gravação.
+     */
+    public static <K extends Comparable<K>, V> void save(BPlusTree<K, V> tree, Path file, Codec<K> keyCodec,
+            Codec<V> valueCodec, boolean compress, long lsn, ForkJoinPool pool) throws IOException {
+        // [ordem:int][lsn:long]
+        ByteBuffer header = ByteBuffer.allocate(12).putInt(tree.getOrder()).putLong(lsn).flip();
+        try (SnapshotFile.Writer writer = SnapshotFile.create(file, KIND, header, compress, pool)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            int entries = 0;
+            RangeScan.Cursor<K, V> cursor = tree.scan().cursor();
+            while (cursor.hasNext()) {
+                Map.Entry<K, V> entry = cursor.next();
+                keyCodec.write(out, entry.getKey());
+                valueCodec.write(out, entry.getValue());
+                if (++entries == BLOCK_ENTRIES) {
+                    writer.writeBlock(bytes.toByteArray(), bytes.size());
+                    bytes.reset();
+                    entries = 0;
+                }
+            }
+            if (entries > 0) {
+                writer.writeBlock(bytes.toByteArray(), bytes.size());
+            }
+        }
+    }
+
+    public static <K extends Comparable<K>, V> BPlusTree<K, V> load(Path file, Codec<K> keyCodec, Codec<V> valueCodec)
+            throws IOException {
+        return load(file, keyCodec, valueCodec, BPlusTree.DEFAULT_FILL_FACTOR, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Lê o snapshot em uma árvore nova, com a ordem gravada.
+     */
+    public static <K extends Comparable<K>, V> BPlusTree<K, V> load(Path file, Codec<K> keyCodec, Codec<V> valueCodec,
+            double fillFactor, ForkJoinPool pool) throws IOException {
+        try (SnapshotFile.Reader reader = SnapshotFile.open(file, KIND, pool)) {
+            BPlusTree<K, V> tree = new BPlusTree<>(reader.header().getInt());
+            load(reader, tree, keyCodec, valueCodec, fillFactor);
+            return tree;
+        }
+    }
+
+    /**
+     * Lê o snapshot na árvore vazia 'tree' (para restaurar com outra ordem, listener ou
+     * SeparatorPolicy).
+     */
+    public static <K extends Comparable<K>, V> void loadInto(Path file, BPlusTree<K, V> tree, Codec<K> keyCodec,
+            Codec<V> valueCodec, double fillFactor, ForkJoinPool pool) throws IOException {
+        try (SnapshotFile.Reader reader = SnapshotFile.open(file, KIND, pool)) {
+            load(reader, tree, keyCodec, valueCodec, fillFactor);
+        }
+    }
+
+    /**
+     * LSN do log coberto pelo snapshot em 'file' (0 se foi gravado sem LSN).
+     */
+    public static long lsn(Path file) throws IOException {
+        try (SnapshotFile.Reader reader = SnapshotFile.open(file, KIND, ForkJoinPool.commonPool())) {
+            ByteBuffer header = reader.header();
+            header.getInt();
+            // Snapshots antigos só têm a ordem
+            return header.remaining() >= 8 ? header.getLong() : 0;
+        }
+    }
+
+    private static <K extends Comparable<K>, V> void load(SnapshotFile.Reader reader, BPlusTree<K, V> tree,
+            Codec<K> keyCodec, Codec<V> valueCodec, double fillFactor) throws IOException {
+        Iterator<List<Map.Entry<K, V>>> blocks = reader.blocks(block -> {
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(block.array(), block.arrayOffset() + block.position(), block.remaining()));
+            List<Map.Entry<K, V>> entries = new ArrayList<>(BLOCK_ENTRIES);
+            while (in.available() > 0) {
+                K key = keyCodec.read(in);
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(key, valueCodec.read(in)));
+            }
+            return entries;
+        });
+        try {
+            tree.bulkLoad(new Iterator<Map.Entry<K, V>>() {
+                private Iterator<Map.Entry<K, V>> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && blocks.hasNext()) {
+                        current = blocks.next().iterator();
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            }, fillFactor);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package hash;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class Bucket {
 
     private int profundidadeLocal;
     private int tamanhoMaximo;
-    private List<Integer> chaves;
-    
+    // Chaves mantidas ordenadas em um vetor primitivo (sem boxing).
+    // Apenas as 'quantidade' primeiras posições são válidas.
+    private int[] chaves;
+    private int quantidade;
+    // Próxima página da cadeia de overflow: chaves que não cabem e não podem ser separadas por split
+    private Bucket overflow;
+
     public Bucket(int profundidadeLocal, int tamanhoMaximo) {
         this.profundidadeLocal = profundidadeLocal;
         this.tamanhoMaximo = tamanhoMaximo;
-        this.chaves = new ArrayList<>();
+        this.chaves = new int[tamanhoMaximo];
+        this.quantidade = 0;
     }
 
     /**
@@ -20,29 +26,84 @@ public class Bucket {
      * @return false se o bucket estiver cheio, true se conseguiu (ou se a chave já existe).
      */
     public boolean insere(int chave) {
-        if (this.chaves.contains(chave)) {
+        int posicao = Arrays.binarySearch(this.chaves, 0, this.quantidade, chave);
+        if (posicao >= 0 || (this.overflow != null && this.overflow.busca(chave))) {
             return true;
         }
+        return inserePagina(chave, posicao);
+    }
 
+    // Só nesta página; 'posicao' é o resultado da busca binária da chave nela
+    private boolean inserePagina(int chave, int posicao) {
         if (this.estaCheio()) {
             return false;
         }
-        
-        this.chaves.add(chave);
+
+        int pontoInsercao = -(posicao + 1);
+        System.arraycopy(this.chaves, pontoInsercao, this.chaves, pontoInsercao + 1, this.quantidade - pontoInsercao);
+        this.chaves[pontoInsercao] = chave;
+        this.quantidade++;
         return true;
     }
 
+    /**
+     * Insere na cadeia de overflow uma chave que não está no bucket e não coube nele (insere
+     * devolveu false): vai para a primeira página de overflow com espaço, ou para uma nova no fim.
+     */
+    public void insereNoOverflow(int chave) {
+        Bucket pagina = this;
+        while (!pagina.inserePagina(chave, Arrays.binarySearch(pagina.chaves, 0, pagina.quantidade, chave))) {
+            if (pagina.overflow == null) {
+                pagina.overflow = new Bucket(this.profundidadeLocal, this.tamanhoMaximo);
+            }
+            pagina = pagina.overflow;
+        }
+    }
+
     public boolean busca(int chave) {
-        return this.chaves.contains(chave);
+        if (Arrays.binarySearch(this.chaves, 0, this.quantidade, chave) >= 0) {
+            return true;
+        }
+        return this.overflow != null && this.overflow.busca(chave);
     }
 
     public boolean remove(int chave) {
+        int posicao = Arrays.binarySearch(this.chaves, 0, this.quantidade, chave);
+        if (posicao < 0) {
+            return removeDoOverflow(chave);
+        }
+        System.arraycopy(this.chaves, posicao + 1, this.chaves, posicao, this.quantidade - posicao - 1);
+        this.quantidade--;
+        return true;
+    }
 
-        return this.chaves.remove(Integer.valueOf(chave));
+    // Página de overflow que esvazia sai da cadeia
+    private boolean removeDoOverflow(int chave) {
+        if (this.overflow == null || !this.overflow.remove(chave)) {
+            return false;
+        }
+        if (this.overflow.quantidade == 0) {
+            this.overflow = this.overflow.overflow;
+        }
+        return true;
     }
 
+    // Só a página principal: com ela cheia, insere devolve false
     public boolean estaCheio() {
-        return this.chaves.size() >= this.tamanhoMaximo;
+        return this.quantidade >= this.tamanhoMaximo;
+    }
+
+    public boolean estaVazio() {
+        return this.quantidade == 0 && this.overflow == null;
+    }
+
+    // Chaves da página principal e das de overflow
+    public int getQuantidade() {
+        return this.overflow == null ? quantidade : quantidade + this.overflow.getQuantidade();
+    }
+
+    public int getPaginasOverflow() {
+        return this.overflow == null ? 0 : 1 + this.overflow.getPaginasOverflow();
     }
 
     public int getProfundidadeLocal() {
@@ -51,19 +112,136 @@ public class Bucket {
 
     public void setProfundidadeLocal(int profundidadeLocal) {
         this.profundidadeLocal = profundidadeLocal;
+        if (this.overflow != null) {
+            this.overflow.setProfundidadeLocal(profundidadeLocal);
+        }
+    }
+
+    /**
+     * Retorna uma cópia das chaves válidas (incluindo as do overflow), em ordem crescente.
+     */
+    public int[] copiaChaves() {
+        if (this.overflow == null) {
+            return Arrays.copyOf(this.chaves, this.quantidade);
+        }
+        int[] todas = new int[getQuantidade()];
+        int total = 0;
+        for (Bucket pagina = this; pagina != null; pagina = pagina.overflow) {
+            System.arraycopy(pagina.chaves, 0, todas, total, pagina.quantidade);
+            total += pagina.quantidade;
+        }
+        Arrays.sort(todas);
+        return todas;
     }
 
-    public List<Integer> getChaves() {
-        return chaves;
+    /**
+     * Bucket com as chaves chaves[de..ate), já ordenadas e sem repetição, copiadas direto para as
+     * páginas (as que não cabem vão para o overflow). Usado na leitura de snapshots.
+     */
+    static Bucket comChaves(int profundidadeLocal, int tamanhoMaximo, int[] chaves, int de, int ate) {
+        Bucket bucket = new Bucket(profundidadeLocal, tamanhoMaximo);
+        Bucket pagina = bucket;
+        while (true) {
+            pagina.quantidade = Math.min(tamanhoMaximo, ate - de);
+            System.arraycopy(chaves, de, pagina.chaves, 0, pagina.quantidade);
+            de += pagina.quantidade;
+            if (de == ate) {
+                return bucket;
+            }
+            pagina.overflow = new Bucket(profundidadeLocal, tamanhoMaximo);
+            pagina = pagina.overflow;
+        }
+    }
+
+    // Usado no 'split' para limpar o bucket antigo (as páginas de overflow são descartadas)
+    public void limpa() {
+        this.quantidade = 0;
+        this.overflow = null;
+    }
+
+    // Próxima página da cadeia (null no fim); usado para montar e gravar a cadeia em disco
+    Bucket getOverflow() {
+        return this.overflow;
+    }
+
+    void setOverflow(Bucket overflow) {
+        this.overflow = overflow;
+    }
+
+    // --- FORMATO EM PÁGINA (usado pelo ExtendibleHashPersistente) ---
+    // Uma página por Bucket da cadeia; 'proximaPagina' é o id da página de overflow seguinte
+    // [profundidadeLocal:int][quantidade:int][proximaPagina:int][chaves:int * tamanhoMaximo]
+
+    public static int tamanhoPagina(int tamanhoMaximo) {
+        return 12 + 4 * tamanhoMaximo;
+    }
+
+    /**
+     * Grava só esta página da cadeia, a partir da posição atual do buffer (a posição não é
+     * alterada), apontando para 'proximaPagina'.
+     */
+    public void escreve(ByteBuffer pagina, int proximaPagina) {
+        int base = pagina.position();
+        pagina.putInt(base, this.profundidadeLocal);
+        pagina.putInt(base + 4, this.quantidade);
+        pagina.putInt(base + 8, proximaPagina);
+        for (int i = 0; i < this.quantidade; i++) {
+            pagina.putInt(base + 12 + 4 * i, this.chaves[i]);
+        }
+    }
+
+    // Só a página lida, sem overflow: quem lê segue proximaPagina
+    public static Bucket le(ByteBuffer pagina, int tamanhoMaximo) {
+        int base = pagina.position();
+        Bucket bucket = new Bucket(pagina.getInt(base), tamanhoMaximo);
+        bucket.quantidade = pagina.getInt(base + 4);
+        for (int i = 0; i < bucket.quantidade; i++) {
+            bucket.chaves[i] = pagina.getInt(base + 12 + 4 * i);
+        }
+        return bucket;
     }
-    
-    // Usado no 'split' para limpar o bucket antigo
-    public void setChaves(List<Integer> novasChaves) {
-        this.chaves = novasChaves;
+
+    public static int proximaPagina(ByteBuffer pagina) {
+        return pagina.getInt(pagina.position() + 8);
     }
-    
+
+    /**
+     * Busca binária direto sobre a página (só ela, sem a cadeia), sem materializar o bucket.
+     */
+    public static boolean buscaNaPagina(ByteBuffer pagina, int chave) {
+        int base = pagina.position();
+        int baixo = 0;
+        int alto = pagina.getInt(base + 4) - 1;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            int valor = pagina.getInt(base + 12 + 4 * meio);
+            if (valor < chave) {
+                baixo = meio + 1;
+            } else if (valor > chave) {
+                alto = meio - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
-        return "Bucket [profundidadeLocal=" + profundidadeLocal + ", chaves=" + chaves + "]";
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < quantidade; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(chaves[i]);
+        }
+        sb.append("]");
+        String texto = "Bucket [profundidadeLocal=" + profundidadeLocal + ", chaves=" + sb + "]";
+        return this.overflow == null ? texto : texto + " -> overflow " + this.overflow.chavesComoTexto();
+    }
+
+    private String chavesComoTexto() {
+        String texto = Arrays.toString(Arrays.copyOf(this.chaves, this.quantidade));
+        return this.overflow == null ? texto : texto + " -> overflow " + this.overflow.chavesComoTexto();
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,43 @@
 package hash;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import metrics.IndexEvent;
+import metrics.IndexListener;
+import metrics.IndexMetrics;
+import metrics.IndexOperation;
+
 public class ExtendibleHash {
 
+    /*
+     * Acima disso o diretório não dobra mais. Um bucket cheio cujas chaves têm todas os mesmos
+     * PROFUNDIDADE_MAXIMA bits baixos de hash não pode ser separado por split e recebe páginas de
+     * overflow; sem isso, o diretório dobraria até estourar o deslocamento de 32 bits.
+     */
+    public static final int PROFUNDIDADE_MAXIMA = 24;
+
     private int profundidadeGlobal;
     private int tamanhoBucket;
+    private final FuncaoHash funcaoHash;
     private List<Bucket> diretorio;
+    private IndexListener listener = IndexListener.NOOP;
+    private boolean temporizado;
 
     public ExtendibleHash(int tamanhoBucket) {
+        this(tamanhoBucket, FuncaoHash.IDENTIDADE);
+    }
+
+    /*
+     * 'funcaoHash' espalha as chaves antes de o diretório usar os bits baixos. Com chaves de bits
+     * baixos repetidos (múltiplos de uma potência de 2), use FuncaoHash.MURMUR3.
+     */
+    public ExtendibleHash(int tamanhoBucket, FuncaoHash funcaoHash) {
         this.tamanhoBucket = tamanhoBucket;
+        this.funcaoHash = funcaoHash;
         this.profundidadeGlobal = 1;
         this.diretorio = new ArrayList<>();
         Bucket b1 = new Bucket(1, tamanhoBucket);
@@ -21,25 +46,93 @@ public class ExtendibleHash {
         diretorio.add(b2);
     }
 
+    /*
+     * Hash já montado, com o diretório lido de um snapshot (ver SnapshotHash).
+     */
+    ExtendibleHash(int tamanhoBucket, FuncaoHash funcaoHash, int profundidadeGlobal, List<Bucket> diretorio) {
+        this.tamanhoBucket = tamanhoBucket;
+        this.funcaoHash = funcaoHash;
+        this.profundidadeGlobal = profundidadeGlobal;
+        this.diretorio = diretorio;
+    }
+
+    /*
+     * Instala o listener dos eventos estruturais (split, fusão, duplicação e encolhimento do
+     * diretório) e, se ele pedir, da latência das operações. Sem listener nada é impresso.
+     */
+    public void setListener(IndexListener listener) {
+        this.listener = listener == null ? IndexListener.NOOP : listener;
+        this.temporizado = this.listener.recordsLatency();
+    }
+
+    /*
+     * Registra em 'metrics' os gauges do hash: profundidade global, número de buckets e de
+     * chaves, ocupação média dos buckets e o histograma das profundidades locais.
+     */
+    public void registraGauges(IndexMetrics metrics) {
+        metrics.gauge("profundidadeGlobal", () -> profundidadeGlobal);
+        metrics.gauge("buckets", () -> bucketsDistintos().size());
+        metrics.gauge("chaves", this::totalChaves);
+        metrics.gauge("ocupacao", () -> (double) totalChaves() / (bucketsDistintos().size() * tamanhoBucket));
+        metrics.gauge("paginasOverflow", () -> {
+            long total = 0;
+            for (Bucket bucket : bucketsDistintos()) {
+                total += bucket.getPaginasOverflow();
+            }
+            return total;
+        });
+        metrics.histogram("profundidadeLocal", () -> {
+            int[] histograma = new int[profundidadeGlobal + 1];
+            for (Bucket bucket : bucketsDistintos()) {
+                histograma[bucket.getProfundidadeLocal()]++;
+            }
+            return histograma;
+        });
+    }
+
     private int calcularIndice(int chave) {
         int mascara = (1 << profundidadeGlobal) - 1;
-        return chave & mascara;
+        return funcaoHash.aplica(chave) & mascara;
     }
 
     public boolean busca(int chave) {
+        if (!temporizado) {
+            return buscaSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        boolean encontrada = buscaSemMedicao(chave);
+        listener.onOperation(IndexOperation.SEARCH, System.nanoTime() - inicio);
+        return encontrada;
+    }
+
+    private boolean buscaSemMedicao(int chave) {
         int indice = calcularIndice(chave);
         Bucket bucketAlvo = diretorio.get(indice);
         return bucketAlvo.busca(chave);
     }
 
     public void insere(int chave) {
+        if (!temporizado) {
+            insereSemMedicao(chave);
+            return;
+        }
+        long inicio = System.nanoTime();
+        insereSemMedicao(chave);
+        listener.onOperation(IndexOperation.INSERT, System.nanoTime() - inicio);
+    }
+
+    private void insereSemMedicao(int chave) {
         int indice = calcularIndice(chave);
         Bucket bucketAlvo = diretorio.get(indice);
         
         boolean conseguiuInserir = bucketAlvo.insere(chave);
         
         while (!conseguiuInserir) {
-            System.out.println("Bucket cheio! Acionando split para a chave: " + chave);
+            if (!splitSepara(bucketAlvo, chave)) {
+                bucketAlvo.insereNoOverflow(chave);
+                return;
+            }
+            listener.onEvent(IndexEvent.BUCKET_SPLIT, chave, 0);
             splitBucket(indice, bucketAlvo);
             indice = calcularIndice(chave);
             bucketAlvo = diretorio.get(indice);
@@ -47,11 +140,89 @@ public class ExtendibleHash {
         }
     }
 
+    /*
+     * Insere um lote de chaves. O lote é ordenado uma vez pelos bits invertidos do hash, o que
+     * deixa juntas as chaves que caem no mesmo índice do diretório, em qualquer profundidade:
+     * cada bucket é localizado uma vez por grupo e recebe o grupo inteiro de uma vez, e um split
+     * no meio do grupo só reparte o que sobrou dele entre os dois buckets novos.
+     */
+    public void insereTodos(int[] chaves) {
+        long[] ordem = ordenaPorIndice(chaves);
+        int i = 0;
+        while (i < ordem.length) {
+            int chave = chaves[(int) ordem[i]];
+            Bucket bucketAlvo = diretorio.get(calcularIndice(chave));
+            int mascaraLocal = (1 << bucketAlvo.getProfundidadeLocal()) - 1;
+            int bitsDoGrupo = funcaoHash.aplica(chave) & mascaraLocal;
+            while (i < ordem.length) {
+                chave = chaves[(int) ordem[i]];
+                if ((funcaoHash.aplica(chave) & mascaraLocal) != bitsDoGrupo) {
+                    break;
+                }
+                if (!bucketAlvo.insere(chave)) {
+                    if (!splitSepara(bucketAlvo, chave)) {
+                        bucketAlvo.insereNoOverflow(chave);
+                        i++;
+                        continue;
+                    }
+                    listener.onEvent(IndexEvent.BUCKET_SPLIT, chave, 0);
+                    splitBucket(calcularIndice(chave), bucketAlvo);
+                    break;
+                }
+                i++;
+            }
+        }
+    }
+
+    /*
+     * Busca um lote de chaves; a posição i da resposta diz se chaves[i] está no índice.
+     * As chaves são agrupadas por índice do diretório antes de tocar nos buckets.
+     */
+    public boolean[] buscaTodos(int[] chaves) {
+        long[] ordem = ordenaPorIndice(chaves);
+        boolean[] encontradas = new boolean[chaves.length];
+        Bucket bucketAlvo = null;
+        int indiceAtual = -1;
+        for (long item : ordem) {
+            int posicao = (int) item;
+            int indice = calcularIndice(chaves[posicao]);
+            if (indice != indiceAtual) {
+                bucketAlvo = diretorio.get(indice);
+                indiceAtual = indice;
+            }
+            encontradas[posicao] = bucketAlvo.busca(chaves[posicao]);
+        }
+        return encontradas;
+    }
+
+    /*
+     * [bits invertidos do hash][posição no lote], ordenado: chaves com os mesmos bits baixos de
+     * hash (mesmo índice) ficam vizinhas, sem perder a posição original.
+     */
+    private long[] ordenaPorIndice(int[] chaves) {
+        long[] ordem = new long[chaves.length];
+        for (int i = 0; i < chaves.length; i++) {
+            ordem[i] = ((long) Integer.reverse(funcaoHash.aplica(chaves[i])) << 32) | i;
+        }
+        Arrays.sort(ordem);
+        return ordem;
+    }
+
     /*
      * Remove uma chave da estrutura.
      * Contém a lógica de 'merge' (fusão).
      */
     public boolean remove(int chave) {
+        if (!temporizado) {
+            return removeSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        boolean removido = removeSemMedicao(chave);
+        listener.onOperation(IndexOperation.DELETE, System.nanoTime() - inicio);
+        return removido;
+    }
+
+    private boolean removeSemMedicao(int chave) {
         int indice = calcularIndice(chave);
         Bucket bucketAlvo = diretorio.get(indice);
         
@@ -64,7 +235,7 @@ public class ExtendibleHash {
         // --- INÍCIO DA LÓGICA DE FUSÃO (MERGE) ---
         // A fusão não é um método separado, ela acontece aqui.
         
-        if (bucketAlvo.getChaves().isEmpty() && bucketAlvo.getProfundidadeLocal() > 1) {
+        if (bucketAlvo.estaVazio() && bucketAlvo.getProfundidadeLocal() > 1) {
             
             int profundidadeLocal = bucketAlvo.getProfundidadeLocal();
             int indiceIrmao = indice ^ (1 << (profundidadeLocal - 1));
@@ -72,7 +243,7 @@ public class ExtendibleHash {
 
             // Verifica se o irmão pode ser fundido
             if (bucketIrmao.getProfundidadeLocal() == profundidadeLocal) {
-                System.out.println("### FUSÃO DE BUCKET (Bucket " + indice + " com " + indiceIrmao + ") ###");
+                listener.onEvent(IndexEvent.BUCKET_MERGE, indice, indiceIrmao);
                 
                 // 1. A FUSÃO: Aponta todos os ponteiros do bucket vazio para o irmão
                 for (int i = 0; i < diretorio.size(); i++) {
@@ -111,10 +282,40 @@ public class ExtendibleHash {
         System.out.println("---------------------------------");
     }
 
+    // --- ACESSO PARA O SNAPSHOT ---
+
+    int getProfundidadeGlobal() {
+        return profundidadeGlobal;
+    }
+
+    int getTamanhoBucket() {
+        return tamanhoBucket;
+    }
+
+    FuncaoHash getFuncaoHash() {
+        return funcaoHash;
+    }
+
+    Bucket getBucket(int indice) {
+        return diretorio.get(indice);
+    }
+
+    private Set<Bucket> bucketsDistintos() {
+        return new HashSet<>(this.diretorio);
+    }
+
+    private long totalChaves() {
+        long total = 0;
+        for (Bucket bucket : bucketsDistintos()) {
+            total += bucket.getQuantidade();
+        }
+        return total;
+    }
+
     private void duplicarDiretorio() {
         List<Bucket> diretorioAntigo = this.diretorio;
         int tamanhoAntigo = diretorioAntigo.size();
-        System.out.println("### DUPLICANDO DIRETÓRIO (PG de " + profundidadeGlobal + " para " + (profundidadeGlobal + 1) + ") ###");
+        listener.onEvent(IndexEvent.DIRECTORY_DOUBLING, profundidadeGlobal, profundidadeGlobal + 1);
         this.profundidadeGlobal++;
         int novoTamanho = 1 << this.profundidadeGlobal;
         this.diretorio = new ArrayList<>(novoTamanho);
@@ -123,6 +324,22 @@ public class ExtendibleHash {
         }
     }
 
+    /*
+     * Algum split até PROFUNDIDADE_MAXIMA separa as chaves do bucket cheio e a nova? Só se os
+     * hashes diferirem em algum bit abaixo dela; senão, dobrar o diretório não adianta.
+     */
+    private boolean splitSepara(Bucket bucketCheio, int chave) {
+        if (bucketCheio.getProfundidadeLocal() == PROFUNDIDADE_MAXIMA) {
+            return false;
+        }
+        int hash = funcaoHash.aplica(chave);
+        int diferenca = 0;
+        for (int outra : bucketCheio.copiaChaves()) {
+            diferenca |= funcaoHash.aplica(outra) ^ hash;
+        }
+        return (diferenca & ((1 << PROFUNDIDADE_MAXIMA) - 1)) != 0;
+    }
+
     private void splitBucket(int indiceBucketCheio, Bucket bucketCheio) {
         if (bucketCheio.getProfundidadeLocal() == this.profundidadeGlobal) {
             duplicarDiretorio();
@@ -130,8 +347,8 @@ public class ExtendibleHash {
         int novaProfundidadeLocal = bucketCheio.getProfundidadeLocal() + 1;
         Bucket novoBucket = new Bucket(novaProfundidadeLocal, this.tamanhoBucket);
         bucketCheio.setProfundidadeLocal(novaProfundidadeLocal);
-        List<Integer> chavesAntigas = new ArrayList<>(bucketCheio.getChaves());
-        bucketCheio.setChaves(new ArrayList<>());
+        int[] chavesAntigas = bucketCheio.copiaChaves();
+        bucketCheio.limpa();
         int bitDiferenciador = 1 << (novaProfundidadeLocal - 1);
         for (int i = 0; i < this.diretorio.size(); i++) {
             if (this.diretorio.get(i) == bucketCheio) {
@@ -143,7 +360,10 @@ public class ExtendibleHash {
         for (int chave : chavesAntigas) {
             int indice = calcularIndice(chave);
             Bucket bucketAlvo = this.diretorio.get(indice);
-            bucketAlvo.insere(chave);
+            // Só falha se o bucket tinha overflow (voltou da profundidade máxima por uma fusão)
+            if (!bucketAlvo.insere(chave)) {
+                bucketAlvo.insereNoOverflow(chave);
+            }
         }
     }
     
@@ -168,7 +388,7 @@ public class ExtendibleHash {
         }
         
         if (podeEncolher) {
-            System.out.println("### ENCOLHENDO DIRETÓRIO (PG de " + profundidadeGlobal + " para " + (profundidadeGlobal - 1) + ") ###");
+            listener.onEvent(IndexEvent.DIRECTORY_SHRINK, profundidadeGlobal, profundidadeGlobal - 1);
             
             this.profundidadeGlobal--;
             int novoTamanho = 1 << this.profundidadeGlobal;
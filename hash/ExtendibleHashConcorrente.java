@@ -0,0 +1,294 @@
+package hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Hash Extensível thread-safe, com o mesmo contrato de insere/busca/remove do ExtendibleHash.
+ *
+ * - Cada bucket guarda suas chaves em um int[] imutável, trocado inteiro a cada escrita
+ *   (copy-on-write) e publicado por um campo volatile.
+ * - O diretório também é imutável: cada split ou fusão monta um novo e o publica com uma
+ *   única escrita volatile (troca atômica de referência).
+ * - Escritores travam só o bucket que vão alterar; a trava do diretório só é tomada quando a
+ *   estrutura muda (split, duplicação, fusão, encolhimento).
+ * - busca não trava nada: lê o diretório atual, o vetor do bucket e confere se o bucket não
+ *   foi substituído por um split/fusão nesse meio tempo (se foi, tenta de novo).
+ * - Como no ExtendibleHash, o diretório usa os bits baixos de funcaoHash.aplica(chave) e não
+ *   passa de ExtendibleHash.PROFUNDIDADE_MAXIMA: um bucket cheio que nenhum split separaria
+ *   cresce além de tamanhoBucket (o excedente faz o papel das páginas de overflow).
+ */
+public class ExtendibleHashConcorrente {
+
+    private static final class BucketConcorrente {
+        final ReentrantLock trava = new ReentrantLock();
+        final int profundidadeLocal;
+        volatile int[] chaves;
+        // Marcado (antes da publicação do novo diretório) quando o bucket sai da estrutura
+        volatile boolean substituido;
+
+        BucketConcorrente(int profundidadeLocal, int[] chaves) {
+            this.profundidadeLocal = profundidadeLocal;
+            this.chaves = chaves;
+        }
+    }
+
+    private static final class Diretorio {
+        final int profundidadeGlobal;
+        final BucketConcorrente[] buckets;
+
+        Diretorio(int profundidadeGlobal, BucketConcorrente[] buckets) {
+            this.profundidadeGlobal = profundidadeGlobal;
+            this.buckets = buckets;
+        }
+
+        BucketConcorrente bucketDe(int hash) {
+            return buckets[hash & ((1 << profundidadeGlobal) - 1)];
+        }
+    }
+
+    private static final int[] VAZIO = new int[0];
+
+    private final int tamanhoBucket;
+    private final FuncaoHash funcaoHash;
+    private final ReentrantLock travaDiretorio = new ReentrantLock();
+    private volatile Diretorio diretorio;
+
+    public ExtendibleHashConcorrente(int tamanhoBucket) {
+        this(tamanhoBucket, FuncaoHash.IDENTIDADE);
+    }
+
+    // 'funcaoHash' como no ExtendibleHash: espalha as chaves antes de o diretório usar os bits baixos
+    public ExtendibleHashConcorrente(int tamanhoBucket, FuncaoHash funcaoHash) {
+        if (tamanhoBucket < 1) {
+            throw new IllegalArgumentException("tamanhoBucket deve ser >= 1");
+        }
+        this.tamanhoBucket = tamanhoBucket;
+        this.funcaoHash = funcaoHash;
+        BucketConcorrente[] iniciais = {
+            new BucketConcorrente(1, VAZIO),
+            new BucketConcorrente(1, VAZIO)
+        };
+        this.diretorio = new Diretorio(1, iniciais);
+    }
+
+    public boolean busca(int chave) {
+        int hash = funcaoHash.aplica(chave);
+        while (true) {
+            BucketConcorrente bucket = diretorio.bucketDe(hash);
+            boolean encontrado = Arrays.binarySearch(bucket.chaves, chave) >= 0;
+            // Um bucket substituído não recebe mais escritas: a resposta só vale se ele ainda estava ativo
+            if (!bucket.substituido) {
+                return encontrado;
+            }
+        }
+    }
+
+    public void insere(int chave) {
+        int hash = funcaoHash.aplica(chave);
+        while (true) {
+            BucketConcorrente bucket = diretorio.bucketDe(hash);
+            bucket.trava.lock();
+            try {
+                if (bucket.substituido) {
+                    continue;
+                }
+                int[] chaves = bucket.chaves;
+                int posicao = Arrays.binarySearch(chaves, chave);
+                if (posicao >= 0) {
+                    return;
+                }
+                if (chaves.length < tamanhoBucket || !splitSepara(bucket, chaves, hash)) {
+                    bucket.chaves = comChave(chaves, -(posicao + 1), chave);
+                    return;
+                }
+                splitBucket(bucket);
+            } finally {
+                bucket.trava.unlock();
+            }
+        }
+    }
+
+    public boolean remove(int chave) {
+        int hash = funcaoHash.aplica(chave);
+        while (true) {
+            BucketConcorrente bucket = diretorio.bucketDe(hash);
+            bucket.trava.lock();
+            try {
+                if (bucket.substituido) {
+                    continue;
+                }
+                int[] chaves = bucket.chaves;
+                int posicao = Arrays.binarySearch(chaves, chave);
+                if (posicao < 0) {
+                    return false;
+                }
+                int[] restantes = semChave(chaves, posicao);
+                bucket.chaves = restantes;
+                if (restantes.length == 0 && bucket.profundidadeLocal > 1) {
+                    tentarFundir(bucket, hash);
+                }
+                return true;
+            } finally {
+                bucket.trava.unlock();
+            }
+        }
+    }
+
+    public int getProfundidadeGlobal() {
+        return diretorio.profundidadeGlobal;
+    }
+
+    public void exibe() {
+        Diretorio atual = diretorio;
+        System.out.println("--- Estado do Hash Extensível (concorrente) ---");
+        System.out.println("Profundidade Global: " + atual.profundidadeGlobal);
+        List<BucketConcorrente> bucketsImpressos = new ArrayList<>();
+        for (int i = 0; i < atual.buckets.length; i++) {
+            BucketConcorrente bucket = atual.buckets[i];
+            String indiceBinario = String.format("%" + atual.profundidadeGlobal + "s",
+                                    Integer.toBinaryString(i)).replace(' ', '0');
+            System.out.print("Diretório [" + indiceBinario + "] (idx " + i + ") -> ");
+            if (!bucketsImpressos.contains(bucket)) {
+                System.out.println("Bucket [profundidadeLocal=" + bucket.profundidadeLocal
+                        + ", chaves=" + Arrays.toString(bucket.chaves) + "]");
+                bucketsImpressos.add(bucket);
+            } else {
+                System.out.println("(Aponta para bucket já mostrado)");
+            }
+        }
+        System.out.println("---------------------------------");
+    }
+
+    // Chamado com a trava do bucket cheio. Troca o bucket por dois novos, com profundidade local + 1.
+    private void splitBucket(BucketConcorrente cheio) {
+        travaDiretorio.lock();
+        try {
+            Diretorio atual = diretorio;
+            int profundidadeGlobal = atual.profundidadeGlobal;
+            BucketConcorrente[] buckets;
+            if (cheio.profundidadeLocal == profundidadeGlobal) {
+                // Duplicação: a nova metade começa como cópia da primeira
+                buckets = Arrays.copyOf(atual.buckets, atual.buckets.length * 2);
+                System.arraycopy(atual.buckets, 0, buckets, atual.buckets.length, atual.buckets.length);
+                profundidadeGlobal++;
+            } else {
+                buckets = atual.buckets.clone();
+            }
+
+            int novaProfundidadeLocal = cheio.profundidadeLocal + 1;
+            int bitDiferenciador = 1 << (novaProfundidadeLocal - 1);
+            int[] chaves = cheio.chaves;
+            int[] zeros = new int[chaves.length];
+            int[] uns = new int[chaves.length];
+            int quantidadeZeros = 0;
+            int quantidadeUns = 0;
+            for (int chave : chaves) {
+                if ((funcaoHash.aplica(chave) & bitDiferenciador) != 0) {
+                    uns[quantidadeUns++] = chave;
+                } else {
+                    zeros[quantidadeZeros++] = chave;
+                }
+            }
+            BucketConcorrente bucketZero = new BucketConcorrente(novaProfundidadeLocal, Arrays.copyOf(zeros, quantidadeZeros));
+            BucketConcorrente bucketUm = new BucketConcorrente(novaProfundidadeLocal, Arrays.copyOf(uns, quantidadeUns));
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] == cheio) {
+                    buckets[i] = (i & bitDiferenciador) != 0 ? bucketUm : bucketZero;
+                }
+            }
+            // Marca antes de publicar: quem ainda leu 'false' leu o bucket antes de qualquer
+            // escrita nos buckets novos
+            cheio.substituido = true;
+            diretorio = new Diretorio(profundidadeGlobal, buckets);
+        } finally {
+            travaDiretorio.unlock();
+        }
+    }
+
+    /*
+     * Chamado com a trava do bucket cheio. Algum split até PROFUNDIDADE_MAXIMA separa as chaves
+     * dele e a nova (de hash 'hash')? Só se os hashes diferirem em algum bit abaixo dela.
+     */
+    private boolean splitSepara(BucketConcorrente cheio, int[] chaves, int hash) {
+        if (cheio.profundidadeLocal == ExtendibleHash.PROFUNDIDADE_MAXIMA) {
+            return false;
+        }
+        int diferenca = 0;
+        for (int outra : chaves) {
+            diferenca |= funcaoHash.aplica(outra) ^ hash;
+        }
+        return (diferenca & ((1 << ExtendibleHash.PROFUNDIDADE_MAXIMA) - 1)) != 0;
+    }
+
+    // Chamado com a trava do bucket vazio. Funde com o irmão se ele tiver a mesma profundidade local.
+    private void tentarFundir(BucketConcorrente vazio, int hash) {
+        travaDiretorio.lock();
+        try {
+            Diretorio atual = diretorio;
+            int profundidadeLocal = vazio.profundidadeLocal;
+            int indice = hash & ((1 << atual.profundidadeGlobal) - 1);
+            BucketConcorrente irmao = atual.buckets[indice ^ (1 << (profundidadeLocal - 1))];
+            if (irmao.profundidadeLocal != profundidadeLocal) {
+                return;
+            }
+            // O irmão pode estar travado por um escritor que espera a trava do diretório: não espera por ele
+            if (!irmao.trava.tryLock()) {
+                return;
+            }
+            try {
+                if (irmao.substituido) {
+                    return;
+                }
+                BucketConcorrente fundido = new BucketConcorrente(profundidadeLocal - 1, irmao.chaves);
+                BucketConcorrente[] buckets = atual.buckets.clone();
+                for (int i = 0; i < buckets.length; i++) {
+                    if (buckets[i] == vazio || buckets[i] == irmao) {
+                        buckets[i] = fundido;
+                    }
+                }
+                vazio.substituido = true;
+                irmao.substituido = true;
+                diretorio = encolher(new Diretorio(atual.profundidadeGlobal, buckets));
+            } finally {
+                irmao.trava.unlock();
+            }
+        } finally {
+            travaDiretorio.unlock();
+        }
+    }
+
+    // Encolhe enquanto as duas metades forem iguais (nenhum bucket com profundidade local = global)
+    private static Diretorio encolher(Diretorio diretorio) {
+        BucketConcorrente[] buckets = diretorio.buckets;
+        int profundidadeGlobal = diretorio.profundidadeGlobal;
+        while (profundidadeGlobal > 1) {
+            int metade = buckets.length / 2;
+            for (int i = 0; i < metade; i++) {
+                if (buckets[i] != buckets[i + metade]) {
+                    return new Diretorio(profundidadeGlobal, buckets);
+                }
+            }
+            buckets = Arrays.copyOf(buckets, metade);
+            profundidadeGlobal--;
+        }
+        return new Diretorio(profundidadeGlobal, buckets);
+    }
+
+    private static int[] comChave(int[] chaves, int posicao, int chave) {
+        int[] novas = new int[chaves.length + 1];
+        System.arraycopy(chaves, 0, novas, 0, posicao);
+        novas[posicao] = chave;
+        System.arraycopy(chaves, posicao, novas, posicao + 1, chaves.length - posicao);
+        return novas;
+    }
+
+    private static int[] semChave(int[] chaves, int posicao) {
+        int[] novas = new int[chaves.length - 1];
+        System.arraycopy(chaves, 0, novas, 0, posicao);
+        System.arraycopy(chaves, posicao + 1, novas, posicao, chaves.length - posicao - 1);
+        return novas;
+    }
+}
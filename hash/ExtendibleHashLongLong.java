@@ -0,0 +1,399 @@
+package hash;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+import metrics.IndexEvent;
+import metrics.IndexListener;
+import metrics.IndexMetrics;
+import metrics.IndexOperation;
+
+/*
+ * Hash Extensível especializado para chaves long -> valores long: o mesmo diretório, split,
+ * fusão e encolhimento do ExtendibleHash, mas cada chave carrega um valor (por exemplo, a
+ * posição da linha), sem boxing. Um bucket guarda chaves e valores em dois long[] paralelos,
+ * ordenados pela chave.
+ *
+ * - insere substitui o valor de uma chave existente e devolve o anterior; insereSeAusente não
+ *   substitui e devolve o valor que já estava lá; remove devolve o valor removido.
+ * - O split e a fusão só percorrem as entradas do diretório que apontam para o bucket (de
+ *   2^profundidadeLocal em 2^profundidadeLocal), e o encolhimento é decidido por um contador
+ *   de buckets na profundidade global, sem montar o conjunto de buckets a cada fusão.
+ * - Chaves que nenhum split separa (mesmos bits baixos de hash até PROFUNDIDADE_MAXIMA) vão
+ *   para páginas de overflow, como no ExtendibleHash.
+ */
+public class ExtendibleHashLongLong {
+
+    private static final class BucketLongLong {
+        int profundidadeLocal;
+        final long[] chaves;
+        final long[] valores;
+        int quantidade;
+        BucketLongLong overflow;
+
+        BucketLongLong(int profundidadeLocal, int capacidade) {
+            this.profundidadeLocal = profundidadeLocal;
+            this.chaves = new long[capacidade];
+            this.valores = new long[capacidade];
+        }
+
+        int posicao(long chave) {
+            return Arrays.binarySearch(chaves, 0, quantidade, chave);
+        }
+
+        boolean estaCheio() {
+            return quantidade == chaves.length;
+        }
+
+        // 'posicao' é o resultado negativo de posicao(chave) e a página não está cheia
+        void insereEm(int posicao, long chave, long valor) {
+            int ponto = -(posicao + 1);
+            System.arraycopy(chaves, ponto, chaves, ponto + 1, quantidade - ponto);
+            System.arraycopy(valores, ponto, valores, ponto + 1, quantidade - ponto);
+            chaves[ponto] = chave;
+            valores[ponto] = valor;
+            quantidade++;
+        }
+
+        void removeEm(int posicao) {
+            System.arraycopy(chaves, posicao + 1, chaves, posicao, quantidade - posicao - 1);
+            System.arraycopy(valores, posicao + 1, valores, posicao, quantidade - posicao - 1);
+            quantidade--;
+        }
+
+        boolean estaVazio() {
+            return quantidade == 0 && overflow == null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Bucket [profundidadeLocal=" + profundidadeLocal + ", chaves=");
+            for (BucketLongLong pagina = this; pagina != null; pagina = pagina.overflow) {
+                if (pagina != this) {
+                    sb.append(" -> overflow ");
+                }
+                sb.append("[");
+                for (int i = 0; i < pagina.quantidade; i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(pagina.chaves[i]).append("=").append(pagina.valores[i]);
+                }
+                sb.append("]");
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    private final int tamanhoBucket;
+    private final FuncaoHash funcaoHash;
+    private int profundidadeGlobal;
+    private BucketLongLong[] diretorio;
+    // Buckets com profundidade local igual à global: enquanto houver algum, o diretório não encolhe
+    private int bucketsNaProfundidadeGlobal;
+    private int numeroBuckets;
+    private int tamanho;
+    private IndexListener listener = IndexListener.NOOP;
+    private boolean temporizado;
+
+    public ExtendibleHashLongLong(int tamanhoBucket) {
+        this(tamanhoBucket, FuncaoHash.MURMUR3);
+    }
+
+    public ExtendibleHashLongLong(int tamanhoBucket, FuncaoHash funcaoHash) {
+        if (tamanhoBucket < 1) {
+            throw new IllegalArgumentException("tamanhoBucket deve ser >= 1");
+        }
+        this.tamanhoBucket = tamanhoBucket;
+        this.funcaoHash = funcaoHash;
+        this.profundidadeGlobal = 1;
+        this.diretorio = new BucketLongLong[] {
+            new BucketLongLong(1, tamanhoBucket),
+            new BucketLongLong(1, tamanhoBucket)
+        };
+        this.bucketsNaProfundidadeGlobal = 2;
+        this.numeroBuckets = 2;
+    }
+
+    public void setListener(IndexListener listener) {
+        this.listener = listener == null ? IndexListener.NOOP : listener;
+        this.temporizado = this.listener.recordsLatency();
+    }
+
+    public void registraGauges(IndexMetrics metrics) {
+        metrics.gauge("profundidadeGlobal", () -> profundidadeGlobal);
+        metrics.gauge("buckets", () -> numeroBuckets);
+        metrics.gauge("chaves", () -> tamanho);
+        metrics.gauge("ocupacao", () -> (double) tamanho / ((long) numeroBuckets * tamanhoBucket));
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    // As duas metades da chave entram no hash antes da FuncaoHash espalhar os bits
+    private int hash(long chave) {
+        return funcaoHash.aplica((int) (chave ^ (chave >>> 32)));
+    }
+
+    private int calcularIndice(long chave) {
+        return hash(chave) & ((1 << profundidadeGlobal) - 1);
+    }
+
+    public OptionalLong busca(long chave) {
+        if (!temporizado) {
+            return buscaSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        OptionalLong valor = buscaSemMedicao(chave);
+        listener.onOperation(IndexOperation.SEARCH, System.nanoTime() - inicio);
+        return valor;
+    }
+
+    private OptionalLong buscaSemMedicao(long chave) {
+        for (BucketLongLong pagina = diretorio[calcularIndice(chave)]; pagina != null; pagina = pagina.overflow) {
+            int posicao = pagina.posicao(chave);
+            if (posicao >= 0) {
+                return OptionalLong.of(pagina.valores[posicao]);
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    public boolean contem(long chave) {
+        return busca(chave).isPresent();
+    }
+
+    /*
+     * Associa 'valor' a 'chave' e devolve o valor anterior (vazio se a chave não existia).
+     */
+    public OptionalLong insere(long chave, long valor) {
+        if (!temporizado) {
+            return insereSemMedicao(chave, valor, true);
+        }
+        long inicio = System.nanoTime();
+        OptionalLong anterior = insereSemMedicao(chave, valor, true);
+        listener.onOperation(IndexOperation.INSERT, System.nanoTime() - inicio);
+        return anterior;
+    }
+
+    /*
+     * Só insere se a chave não existir; devolve o valor que já estava associado a ela.
+     */
+    public OptionalLong insereSeAusente(long chave, long valor) {
+        if (!temporizado) {
+            return insereSemMedicao(chave, valor, false);
+        }
+        long inicio = System.nanoTime();
+        OptionalLong atual = insereSemMedicao(chave, valor, false);
+        listener.onOperation(IndexOperation.INSERT, System.nanoTime() - inicio);
+        return atual;
+    }
+
+    private OptionalLong insereSemMedicao(long chave, long valor, boolean substitui) {
+        while (true) {
+            int indice = calcularIndice(chave);
+            BucketLongLong bucketAlvo = diretorio[indice];
+            for (BucketLongLong pagina = bucketAlvo; pagina != null; pagina = pagina.overflow) {
+                int posicao = pagina.posicao(chave);
+                if (posicao >= 0) {
+                    long anterior = pagina.valores[posicao];
+                    if (substitui) {
+                        pagina.valores[posicao] = valor;
+                    }
+                    return OptionalLong.of(anterior);
+                }
+            }
+            if (!bucketAlvo.estaCheio()) {
+                bucketAlvo.insereEm(bucketAlvo.posicao(chave), chave, valor);
+                tamanho++;
+                return OptionalLong.empty();
+            }
+            if (!splitSepara(bucketAlvo, chave)) {
+                insereNoOverflow(bucketAlvo, chave, valor);
+                tamanho++;
+                return OptionalLong.empty();
+            }
+            // O evento só carrega int: vai o hash da chave
+            listener.onEvent(IndexEvent.BUCKET_SPLIT, hash(chave), 0);
+            splitBucket(indice, bucketAlvo);
+        }
+    }
+
+    // A chave não está no bucket e a página principal está cheia
+    private void insereNoOverflow(BucketLongLong bucket, long chave, long valor) {
+        BucketLongLong pagina = bucket;
+        while (pagina.estaCheio()) {
+            if (pagina.overflow == null) {
+                pagina.overflow = new BucketLongLong(bucket.profundidadeLocal, tamanhoBucket);
+            }
+            pagina = pagina.overflow;
+        }
+        pagina.insereEm(pagina.posicao(chave), chave, valor);
+    }
+
+    // Algum split até PROFUNDIDADE_MAXIMA separa as chaves do bucket e a nova?
+    private boolean splitSepara(BucketLongLong bucket, long chave) {
+        if (bucket.profundidadeLocal == ExtendibleHash.PROFUNDIDADE_MAXIMA) {
+            return false;
+        }
+        int hash = hash(chave);
+        int diferenca = 0;
+        for (BucketLongLong pagina = bucket; pagina != null; pagina = pagina.overflow) {
+            for (int i = 0; i < pagina.quantidade; i++) {
+                diferenca |= hash(pagina.chaves[i]) ^ hash;
+            }
+        }
+        return (diferenca & ((1 << ExtendibleHash.PROFUNDIDADE_MAXIMA) - 1)) != 0;
+    }
+
+    private void duplicarDiretorio() {
+        listener.onEvent(IndexEvent.DIRECTORY_DOUBLING, profundidadeGlobal, profundidadeGlobal + 1);
+        int tamanhoAntigo = diretorio.length;
+        diretorio = Arrays.copyOf(diretorio, tamanhoAntigo * 2);
+        System.arraycopy(diretorio, 0, diretorio, tamanhoAntigo, tamanhoAntigo);
+        profundidadeGlobal++;
+        bucketsNaProfundidadeGlobal = 0;
+    }
+
+    private void splitBucket(int indiceBucketCheio, BucketLongLong bucketCheio) {
+        if (bucketCheio.profundidadeLocal == profundidadeGlobal) {
+            duplicarDiretorio();
+        }
+        int profundidadeAntiga = bucketCheio.profundidadeLocal;
+        int novaProfundidadeLocal = profundidadeAntiga + 1;
+        BucketLongLong novoBucket = new BucketLongLong(novaProfundidadeLocal, tamanhoBucket);
+        BucketLongLong antigas = copiaPaginas(bucketCheio);
+        bucketCheio.quantidade = 0;
+        bucketCheio.overflow = null;
+        bucketCheio.profundidadeLocal = novaProfundidadeLocal;
+        numeroBuckets++;
+        if (novaProfundidadeLocal == profundidadeGlobal) {
+            bucketsNaProfundidadeGlobal += 2;
+        }
+
+        // Entradas que apontavam para o bucket cheio: as com o bit novo ligado passam para o novo
+        int passo = 1 << profundidadeAntiga;
+        int bitDiferenciador = passo;
+        for (int i = indiceBucketCheio & (passo - 1); i < diretorio.length; i += passo) {
+            if ((i & bitDiferenciador) != 0) {
+                diretorio[i] = novoBucket;
+            }
+        }
+        for (BucketLongLong pagina = antigas; pagina != null; pagina = pagina.overflow) {
+            for (int i = 0; i < pagina.quantidade; i++) {
+                BucketLongLong destino = diretorio[calcularIndice(pagina.chaves[i])];
+                if (destino.estaCheio()) {
+                    insereNoOverflow(destino, pagina.chaves[i], pagina.valores[i]);
+                } else {
+                    destino.insereEm(destino.posicao(pagina.chaves[i]), pagina.chaves[i], pagina.valores[i]);
+                }
+            }
+        }
+    }
+
+    // Cópia das páginas (principal e overflow) antes de o bucket ser esvaziado pelo split
+    private BucketLongLong copiaPaginas(BucketLongLong bucket) {
+        BucketLongLong copia = new BucketLongLong(bucket.profundidadeLocal, tamanhoBucket);
+        System.arraycopy(bucket.chaves, 0, copia.chaves, 0, bucket.quantidade);
+        System.arraycopy(bucket.valores, 0, copia.valores, 0, bucket.quantidade);
+        copia.quantidade = bucket.quantidade;
+        copia.overflow = bucket.overflow;
+        return copia;
+    }
+
+    /*
+     * Remove a chave e devolve o valor que estava associado a ela. Se o bucket esvaziar, ele é
+     * fundido com o irmão (quando o irmão tem a mesma profundidade local) e o diretório encolhe
+     * se nenhum bucket usar mais a profundidade global.
+     */
+    public OptionalLong remove(long chave) {
+        if (!temporizado) {
+            return removeSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        OptionalLong removido = removeSemMedicao(chave);
+        listener.onOperation(IndexOperation.DELETE, System.nanoTime() - inicio);
+        return removido;
+    }
+
+    private OptionalLong removeSemMedicao(long chave) {
+        int indice = calcularIndice(chave);
+        BucketLongLong bucketAlvo = diretorio[indice];
+        BucketLongLong anterior = null;
+        for (BucketLongLong pagina = bucketAlvo; pagina != null; anterior = pagina, pagina = pagina.overflow) {
+            int posicao = pagina.posicao(chave);
+            if (posicao < 0) {
+                continue;
+            }
+            long valor = pagina.valores[posicao];
+            pagina.removeEm(posicao);
+            tamanho--;
+            if (anterior != null && pagina.quantidade == 0) {
+                anterior.overflow = pagina.overflow;
+            }
+            if (bucketAlvo.estaVazio()) {
+                fundeComIrmao(indice, bucketAlvo);
+            }
+            return OptionalLong.of(valor);
+        }
+        return OptionalLong.empty();
+    }
+
+    private void fundeComIrmao(int indice, BucketLongLong bucketVazio) {
+        int profundidadeLocal = bucketVazio.profundidadeLocal;
+        if (profundidadeLocal <= 1) {
+            return;
+        }
+        int indiceIrmao = indice ^ (1 << (profundidadeLocal - 1));
+        BucketLongLong bucketIrmao = diretorio[indiceIrmao];
+        if (bucketIrmao.profundidadeLocal != profundidadeLocal) {
+            return;
+        }
+        listener.onEvent(IndexEvent.BUCKET_MERGE, indice, indiceIrmao);
+        int passo = 1 << (profundidadeLocal - 1);
+        for (int i = indice & (passo - 1); i < diretorio.length; i += passo) {
+            diretorio[i] = bucketIrmao;
+        }
+        for (BucketLongLong pagina = bucketIrmao; pagina != null; pagina = pagina.overflow) {
+            pagina.profundidadeLocal = profundidadeLocal - 1;
+        }
+        numeroBuckets--;
+        if (profundidadeLocal == profundidadeGlobal) {
+            bucketsNaProfundidadeGlobal -= 2;
+        }
+        tentarEncolherDiretorio();
+    }
+
+    private void tentarEncolherDiretorio() {
+        while (profundidadeGlobal > 1 && bucketsNaProfundidadeGlobal == 0) {
+            listener.onEvent(IndexEvent.DIRECTORY_SHRINK, profundidadeGlobal, profundidadeGlobal - 1);
+            profundidadeGlobal--;
+            diretorio = Arrays.copyOf(diretorio, 1 << profundidadeGlobal);
+            // Um bucket na nova profundidade global aparece uma única vez no diretório
+            for (BucketLongLong bucket : diretorio) {
+                if (bucket.profundidadeLocal == profundidadeGlobal) {
+                    bucketsNaProfundidadeGlobal++;
+                }
+            }
+        }
+    }
+
+    public void exibe() {
+        System.out.println("--- Estado do Hash Extensível (long -> long) ---");
+        System.out.println("Profundidade Global: " + profundidadeGlobal);
+        for (int i = 0; i < diretorio.length; i++) {
+            BucketLongLong bucket = diretorio[i];
+            String indiceBinario = String.format("%" + profundidadeGlobal + "s",
+                                    Integer.toBinaryString(i)).replace(' ', '0');
+            System.out.print("Diretório [" + indiceBinario + "] (idx " + i + ") -> ");
+            // O bucket aparece primeiro no menor índice que aponta para ele
+            if ((i >>> bucket.profundidadeLocal) == 0) {
+                System.out.println(bucket);
+            } else {
+                System.out.println("(Aponta para bucket já mostrado)");
+            }
+        }
+        System.out.println("---------------------------------");
+    }
+}
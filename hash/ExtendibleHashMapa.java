@@ -0,0 +1,436 @@
+package hash;
+
+import java.util.Arrays;
+
+import metrics.IndexEvent;
+import metrics.IndexListener;
+import metrics.IndexMetrics;
+import metrics.IndexOperation;
+
+/*
+ * Hash Extensível genérico, chave -> valor: o mesmo diretório, split, fusão e encolhimento do
+ * ExtendibleHash, mas com qualquer tipo de chave (hashCode/equals) e um valor por chave, para
+ * servir de índice de verdade (chave -> posição da linha) sem um HashMap ao lado. Para chaves
+ * e valores primitivos há ExtendibleHashIntInt e ExtendibleHashLongLong, sem boxing.
+ *
+ * Um bucket guarda, em vetores paralelos, o hash de cada chave (comparado antes do equals), a
+ * chave e o valor; o hash também é o que o split usa, sem chamar hashCode de novo.
+ *
+ * - insere substitui o valor de uma chave existente e devolve o anterior; insereSeAusente não
+ *   substitui e devolve o valor que já estava lá; remove devolve o valor removido. Em todos,
+ *   null quer dizer que a chave não existia (valores null não são aceitos).
+ * - O split e a fusão só percorrem as entradas do diretório que apontam para o bucket (de
+ *   2^profundidadeLocal em 2^profundidadeLocal), e o encolhimento é decidido por um contador
+ *   de buckets na profundidade global, sem montar o conjunto de buckets a cada fusão.
+ * - Chaves que nenhum split separa (mesmos bits baixos de hash até PROFUNDIDADE_MAXIMA) vão
+ *   para páginas de overflow, como no ExtendibleHash.
+ */
+public class ExtendibleHashMapa<K, V> {
+
+    private static final class BucketMapa {
+        int profundidadeLocal;
+        final int[] hashes;
+        final Object[] chaves;
+        final Object[] valores;
+        int quantidade;
+        BucketMapa overflow;
+
+        BucketMapa(int profundidadeLocal, int capacidade) {
+            this.profundidadeLocal = profundidadeLocal;
+            this.hashes = new int[capacidade];
+            this.chaves = new Object[capacidade];
+            this.valores = new Object[capacidade];
+        }
+
+        int posicao(int hash, Object chave) {
+            for (int i = 0; i < quantidade; i++) {
+                if (hashes[i] == hash && chaves[i].equals(chave)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        boolean estaCheio() {
+            return quantidade == chaves.length;
+        }
+
+        // Sem ordem dentro do bucket: entra no fim
+        void insere(int hash, Object chave, Object valor) {
+            hashes[quantidade] = hash;
+            chaves[quantidade] = chave;
+            valores[quantidade] = valor;
+            quantidade++;
+        }
+
+        // O último ocupa o lugar do removido
+        void removeEm(int posicao) {
+            quantidade--;
+            hashes[posicao] = hashes[quantidade];
+            chaves[posicao] = chaves[quantidade];
+            valores[posicao] = valores[quantidade];
+            chaves[quantidade] = null;
+            valores[quantidade] = null;
+        }
+
+        boolean estaVazio() {
+            return quantidade == 0 && overflow == null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Bucket [profundidadeLocal=" + profundidadeLocal + ", chaves=");
+            for (BucketMapa pagina = this; pagina != null; pagina = pagina.overflow) {
+                if (pagina != this) {
+                    sb.append(" -> overflow ");
+                }
+                sb.append("[");
+                for (int i = 0; i < pagina.quantidade; i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(pagina.chaves[i]).append("=").append(pagina.valores[i]);
+                }
+                sb.append("]");
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    private final int tamanhoBucket;
+    private final FuncaoHash funcaoHash;
+    private int profundidadeGlobal;
+    private BucketMapa[] diretorio;
+    // Buckets com profundidade local igual à global: enquanto houver algum, o diretório não encolhe
+    private int bucketsNaProfundidadeGlobal;
+    private int numeroBuckets;
+    private int tamanho;
+    private IndexListener listener = IndexListener.NOOP;
+    private boolean temporizado;
+
+    public ExtendibleHashMapa(int tamanhoBucket) {
+        this(tamanhoBucket, FuncaoHash.MURMUR3);
+    }
+
+    public ExtendibleHashMapa(int tamanhoBucket, FuncaoHash funcaoHash) {
+        if (tamanhoBucket < 1) {
+            throw new IllegalArgumentException("tamanhoBucket deve ser >= 1");
+        }
+        this.tamanhoBucket = tamanhoBucket;
+        this.funcaoHash = funcaoHash;
+        this.profundidadeGlobal = 1;
+        this.diretorio = new BucketMapa[] {
+            new BucketMapa(1, tamanhoBucket),
+            new BucketMapa(1, tamanhoBucket)
+        };
+        this.bucketsNaProfundidadeGlobal = 2;
+        this.numeroBuckets = 2;
+    }
+
+    public void setListener(IndexListener listener) {
+        this.listener = listener == null ? IndexListener.NOOP : listener;
+        this.temporizado = this.listener.recordsLatency();
+    }
+
+    public void registraGauges(IndexMetrics metrics) {
+        metrics.gauge("profundidadeGlobal", () -> profundidadeGlobal);
+        metrics.gauge("buckets", () -> numeroBuckets);
+        metrics.gauge("chaves", () -> tamanho);
+        metrics.gauge("ocupacao", () -> (double) tamanho / ((long) numeroBuckets * tamanhoBucket));
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    private int hash(Object chave) {
+        return funcaoHash.aplica(chave.hashCode());
+    }
+
+    private int indiceDoHash(int hash) {
+        return hash & ((1 << profundidadeGlobal) - 1);
+    }
+
+    private static void validaChave(Object chave) {
+        if (chave == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+    }
+
+    public V busca(K chave) {
+        validaChave(chave);
+        if (!temporizado) {
+            return buscaSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        V valor = buscaSemMedicao(chave);
+        listener.onOperation(IndexOperation.SEARCH, System.nanoTime() - inicio);
+        return valor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V buscaSemMedicao(K chave) {
+        int hash = hash(chave);
+        for (BucketMapa pagina = diretorio[indiceDoHash(hash)]; pagina != null; pagina = pagina.overflow) {
+            int posicao = pagina.posicao(hash, chave);
+            if (posicao >= 0) {
+                return (V) pagina.valores[posicao];
+            }
+        }
+        return null;
+    }
+
+    public boolean contem(K chave) {
+        return busca(chave) != null;
+    }
+
+    /*
+     * Associa 'valor' a 'chave' e devolve o valor anterior (null se a chave não existia).
+     */
+    public V insere(K chave, V valor) {
+        validaChave(chave);
+        validaValor(valor);
+        if (!temporizado) {
+            return insereSemMedicao(chave, valor, true);
+        }
+        long inicio = System.nanoTime();
+        V anterior = insereSemMedicao(chave, valor, true);
+        listener.onOperation(IndexOperation.INSERT, System.nanoTime() - inicio);
+        return anterior;
+    }
+
+    /*
+     * Só insere se a chave não existir; devolve o valor que já estava associado a ela.
+     */
+    public V insereSeAusente(K chave, V valor) {
+        validaChave(chave);
+        validaValor(valor);
+        if (!temporizado) {
+            return insereSemMedicao(chave, valor, false);
+        }
+        long inicio = System.nanoTime();
+        V atual = insereSemMedicao(chave, valor, false);
+        listener.onOperation(IndexOperation.INSERT, System.nanoTime() - inicio);
+        return atual;
+    }
+
+    private static void validaValor(Object valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("Valor não pode ser nulo.");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insereSemMedicao(K chave, V valor, boolean substitui) {
+        int hash = hash(chave);
+        while (true) {
+            int indice = indiceDoHash(hash);
+            BucketMapa bucketAlvo = diretorio[indice];
+            for (BucketMapa pagina = bucketAlvo; pagina != null; pagina = pagina.overflow) {
+                int posicao = pagina.posicao(hash, chave);
+                if (posicao >= 0) {
+                    V anterior = (V) pagina.valores[posicao];
+                    if (substitui) {
+                        pagina.valores[posicao] = valor;
+                    }
+                    return anterior;
+                }
+            }
+            if (!bucketAlvo.estaCheio()) {
+                bucketAlvo.insere(hash, chave, valor);
+                tamanho++;
+                return null;
+            }
+            if (!splitSepara(bucketAlvo, hash)) {
+                insereNoOverflow(bucketAlvo, hash, chave, valor);
+                tamanho++;
+                return null;
+            }
+            // O evento só carrega int: vai o hash da chave
+            listener.onEvent(IndexEvent.BUCKET_SPLIT, hash, 0);
+            splitBucket(indice, bucketAlvo);
+        }
+    }
+
+    // A chave não está no bucket e a página principal está cheia
+    private void insereNoOverflow(BucketMapa bucket, int hash, Object chave, Object valor) {
+        BucketMapa pagina = bucket;
+        while (pagina.estaCheio()) {
+            if (pagina.overflow == null) {
+                pagina.overflow = new BucketMapa(bucket.profundidadeLocal, tamanhoBucket);
+            }
+            pagina = pagina.overflow;
+        }
+        pagina.insere(hash, chave, valor);
+    }
+
+    // Algum split até PROFUNDIDADE_MAXIMA separa as chaves do bucket e a nova?
+    private boolean splitSepara(BucketMapa bucket, int hash) {
+        if (bucket.profundidadeLocal == ExtendibleHash.PROFUNDIDADE_MAXIMA) {
+            return false;
+        }
+        int diferenca = 0;
+        for (BucketMapa pagina = bucket; pagina != null; pagina = pagina.overflow) {
+            for (int i = 0; i < pagina.quantidade; i++) {
+                diferenca |= pagina.hashes[i] ^ hash;
+            }
+        }
+        return (diferenca & ((1 << ExtendibleHash.PROFUNDIDADE_MAXIMA) - 1)) != 0;
+    }
+
+    private void duplicarDiretorio() {
+        listener.onEvent(IndexEvent.DIRECTORY_DOUBLING, profundidadeGlobal, profundidadeGlobal + 1);
+        int tamanhoAntigo = diretorio.length;
+        diretorio = Arrays.copyOf(diretorio, tamanhoAntigo * 2);
+        System.arraycopy(diretorio, 0, diretorio, tamanhoAntigo, tamanhoAntigo);
+        profundidadeGlobal++;
+        bucketsNaProfundidadeGlobal = 0;
+    }
+
+    private void splitBucket(int indiceBucketCheio, BucketMapa bucketCheio) {
+        if (bucketCheio.profundidadeLocal == profundidadeGlobal) {
+            duplicarDiretorio();
+        }
+        int profundidadeAntiga = bucketCheio.profundidadeLocal;
+        int novaProfundidadeLocal = profundidadeAntiga + 1;
+        BucketMapa novoBucket = new BucketMapa(novaProfundidadeLocal, tamanhoBucket);
+        BucketMapa antigas = copiaPaginas(bucketCheio);
+        Arrays.fill(bucketCheio.chaves, 0, bucketCheio.quantidade, null);
+        Arrays.fill(bucketCheio.valores, 0, bucketCheio.quantidade, null);
+        bucketCheio.quantidade = 0;
+        bucketCheio.overflow = null;
+        bucketCheio.profundidadeLocal = novaProfundidadeLocal;
+        numeroBuckets++;
+        if (novaProfundidadeLocal == profundidadeGlobal) {
+            bucketsNaProfundidadeGlobal += 2;
+        }
+
+        // Entradas que apontavam para o bucket cheio: as com o bit novo ligado passam para o novo
+        int passo = 1 << profundidadeAntiga;
+        int bitDiferenciador = passo;
+        for (int i = indiceBucketCheio & (passo - 1); i < diretorio.length; i += passo) {
+            if ((i & bitDiferenciador) != 0) {
+                diretorio[i] = novoBucket;
+            }
+        }
+        for (BucketMapa pagina = antigas; pagina != null; pagina = pagina.overflow) {
+            for (int i = 0; i < pagina.quantidade; i++) {
+                BucketMapa destino = diretorio[indiceDoHash(pagina.hashes[i])];
+                if (destino.estaCheio()) {
+                    insereNoOverflow(destino, pagina.hashes[i], pagina.chaves[i], pagina.valores[i]);
+                } else {
+                    destino.insere(pagina.hashes[i], pagina.chaves[i], pagina.valores[i]);
+                }
+            }
+        }
+    }
+
+    // Cópia das páginas (principal e overflow) antes de o bucket ser esvaziado pelo split
+    private BucketMapa copiaPaginas(BucketMapa bucket) {
+        BucketMapa copia = new BucketMapa(bucket.profundidadeLocal, tamanhoBucket);
+        System.arraycopy(bucket.hashes, 0, copia.hashes, 0, bucket.quantidade);
+        System.arraycopy(bucket.chaves, 0, copia.chaves, 0, bucket.quantidade);
+        System.arraycopy(bucket.valores, 0, copia.valores, 0, bucket.quantidade);
+        copia.quantidade = bucket.quantidade;
+        copia.overflow = bucket.overflow;
+        return copia;
+    }
+
+    /*
+     * Remove a chave e devolve o valor que estava associado a ela (null se não existia). Se o
+     * bucket esvaziar, ele é fundido com o irmão (quando o irmão tem a mesma profundidade local)
+     * e o diretório encolhe se nenhum bucket usar mais a profundidade global.
+     */
+    public V remove(K chave) {
+        validaChave(chave);
+        if (!temporizado) {
+            return removeSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        V removido = removeSemMedicao(chave);
+        listener.onOperation(IndexOperation.DELETE, System.nanoTime() - inicio);
+        return removido;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeSemMedicao(K chave) {
+        int hash = hash(chave);
+        int indice = indiceDoHash(hash);
+        BucketMapa bucketAlvo = diretorio[indice];
+        BucketMapa anterior = null;
+        for (BucketMapa pagina = bucketAlvo; pagina != null; anterior = pagina, pagina = pagina.overflow) {
+            int posicao = pagina.posicao(hash, chave);
+            if (posicao < 0) {
+                continue;
+            }
+            V valor = (V) pagina.valores[posicao];
+            pagina.removeEm(posicao);
+            tamanho--;
+            if (anterior != null && pagina.quantidade == 0) {
+                anterior.overflow = pagina.overflow;
+            }
+            if (bucketAlvo.estaVazio()) {
+                fundeComIrmao(indice, bucketAlvo);
+            }
+            return valor;
+        }
+        return null;
+    }
+
+    private void fundeComIrmao(int indice, BucketMapa bucketVazio) {
+        int profundidadeLocal = bucketVazio.profundidadeLocal;
+        if (profundidadeLocal <= 1) {
+            return;
+        }
+        int indiceIrmao = indice ^ (1 << (profundidadeLocal - 1));
+        BucketMapa bucketIrmao = diretorio[indiceIrmao];
+        if (bucketIrmao.profundidadeLocal != profundidadeLocal) {
+            return;
+        }
+        listener.onEvent(IndexEvent.BUCKET_MERGE, indice, indiceIrmao);
+        int passo = 1 << (profundidadeLocal - 1);
+        for (int i = indice & (passo - 1); i < diretorio.length; i += passo) {
+            diretorio[i] = bucketIrmao;
+        }
+        for (BucketMapa pagina = bucketIrmao; pagina != null; pagina = pagina.overflow) {
+            pagina.profundidadeLocal = profundidadeLocal - 1;
+        }
+        numeroBuckets--;
+        if (profundidadeLocal == profundidadeGlobal) {
+            bucketsNaProfundidadeGlobal -= 2;
+        }
+        tentarEncolherDiretorio();
+    }
+
+    private void tentarEncolherDiretorio() {
+        while (profundidadeGlobal > 1 && bucketsNaProfundidadeGlobal == 0) {
+            listener.onEvent(IndexEvent.DIRECTORY_SHRINK, profundidadeGlobal, profundidadeGlobal - 1);
+            profundidadeGlobal--;
+            diretorio = Arrays.copyOf(diretorio, 1 << profundidadeGlobal);
+            // Um bucket na nova profundidade global aparece uma única vez no diretório
+            for (BucketMapa bucket : diretorio) {
+                if (bucket.profundidadeLocal == profundidadeGlobal) {
+                    bucketsNaProfundidadeGlobal++;
+                }
+            }
+        }
+    }
+
+    public void exibe() {
+        System.out.println("--- Estado do Hash Extensível (genérico) ---");
+        System.out.println("Profundidade Global: " + profundidadeGlobal);
+        for (int i = 0; i < diretorio.length; i++) {
+            BucketMapa bucket = diretorio[i];
+            String indiceBinario = String.format("%" + profundidadeGlobal + "s",
+                                    Integer.toBinaryString(i)).replace(' ', '0');
+            System.out.print("Diretório [" + indiceBinario + "] (idx " + i + ") -> ");
+            // O bucket aparece primeiro no menor índice que aponta para ele
+            if ((i >>> bucket.profundidadeLocal) == 0) {
+                System.out.println(bucket);
+            } else {
+                System.out.println("(Aponta para bucket já mostrado)");
+            }
+        }
+        System.out.println("---------------------------------");
+    }
+}
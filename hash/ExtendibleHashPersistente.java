@@ -0,0 +1,581 @@
+package hash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import storage.BufferPool;
+import storage.EvictionPolicy;
+import storage.LruPolicy;
+import storage.PageFile;
+
+/*
+ * Versão em disco do Hash Extensível.
+ * Cada bucket é uma página de tamanho fixo no arquivo de dados (buckets.dat) e o
+ * diretório (profundidade global + vetor de ids de página, seguido da lista de páginas livres)
+ * fica em um arquivo próprio (diretorio.dat). Só as páginas alteradas são regravadas; o
+ * diretório, quando muda, é regravado inteiro em sincroniza(). Reabrir o índice lê apenas o
+ * diretório.
+ * As páginas de bucket passam por um BufferPool de tamanho fixo, que limita a memória usada
+ * e adia as escritas até o despejo da página ou a sincronização.
+ *
+ * Ordem das escritas: o diretório só vai para o disco em sincroniza(), depois de as páginas de
+ * bucket serem gravadas e forçadas, num arquivo temporário que substitui o anterior por um
+ * rename atômico. Assim o diretório em disco nunca aponta para uma página que ainda não foi
+ * escrita, e uma queda no meio da sincroniza() deixa o diretório anterior ou o novo.
+ * Splits, fusões e mudanças numa cadeia com overflow não reescrevem páginas alcançáveis pelo
+ * diretório em disco: o bucket novo vai para páginas novas e as antigas só voltam à lista de
+ * páginas livres quando um diretório que não aponta mais para elas estiver gravado. No lugar,
+ * só a inserção ou remoção de uma chave num bucket de uma página só. Páginas livres nunca são
+ * reescritas para formar a lista: ela vai no arquivo de diretório. O que sobrevive a uma queda:
+ * - o estado da última sincroniza() (ou close()) retornada, inteiro;
+ * - entre duas sincronizações, o diretório em disco continua o da última, mas o BufferPool
+ *   pode ter despejado páginas mais novas: o índice reaberto tem todas as chaves sincronizadas
+ *   que não foram removidas depois e pode ou não ver as alterações posteriores (páginas
+ *   acrescentadas ao arquivo nesse intervalo ficam sem uso).
+ * Para durabilidade por operação, registre as operações num WAL (ver wal.DurableExtendibleHash).
+ *
+ * Como no ExtendibleHash, o diretório usa os bits baixos de funcaoHash.aplica(chave) e não
+ * passa de ExtendibleHash.PROFUNDIDADE_MAXIMA: um bucket cheio que nenhum split separaria ganha
+ * páginas de overflow, encadeadas pelo campo proximaPagina do cabeçalho de cada página. A
+ * FuncaoHash não vai para o disco; o cabeçalho guarda a impressão dela e abre() recusa outra.
+ */
+public class ExtendibleHashPersistente implements Closeable {
+
+    private static final String ARQUIVO_DADOS = "buckets.dat";
+    private static final String ARQUIVO_DIRETORIO = "diretorio.dat";
+    private static final int MAGICO = 0x45584833; // "EXH3"
+    // [magico][profundidadeGlobal][tamanhoBucket][paginasLivres][impressao da FuncaoHash],
+    // seguido das entradas do diretório e dos ids das páginas livres
+    private static final int TAMANHO_CABECALHO = 20;
+    private static final int SEM_PAGINA = -1;
+    public static final int QUADROS_PADRAO = 1024;
+
+    private final BufferPool paginas;
+    private final Path arquivoDiretorio;
+    private final int tamanhoBucket;
+    private final FuncaoHash funcaoHash;
+    private int profundidadeGlobal;
+    private int[] diretorio;
+    // Páginas que novaPagina() pode reaproveitar; a lista vai para o arquivo de diretório, então
+    // uma página livre nunca é reescrita só para entrar nela
+    private final List<Integer> paginasLivres = new ArrayList<>();
+    // Diretório ou lista de páginas livres alterados desde a última sincroniza()
+    private boolean diretorioAlterado;
+    // Páginas liberadas desde a última sincroniza(): o diretório em disco ainda pode apontar
+    // para elas, então só entram na lista de páginas livres na próxima
+    private final List<Integer> paginasLiberadas = new ArrayList<>();
+    // Páginas entregues por novaPagina() desde a última sincroniza(): o diretório em disco não
+    // alcança nenhuma delas, então podem ser reescritas à vontade
+    private final BitSet paginasNovas = new BitSet();
+
+    private ExtendibleHashPersistente(BufferPool paginas, Path arquivoDiretorio, int tamanhoBucket,
+            FuncaoHash funcaoHash) {
+        this.paginas = paginas;
+        this.arquivoDiretorio = arquivoDiretorio;
+        this.tamanhoBucket = tamanhoBucket;
+        this.funcaoHash = funcaoHash;
+    }
+
+    /**
+     * Cria um índice vazio na pasta informada (arquivos existentes são sobrescritos).
+     */
+    public static ExtendibleHashPersistente cria(Path pasta, int tamanhoBucket) throws IOException {
+        return cria(pasta, tamanhoBucket, FuncaoHash.IDENTIDADE, QUADROS_PADRAO, LruPolicy::new);
+    }
+
+    public static ExtendibleHashPersistente cria(Path pasta, int tamanhoBucket, FuncaoHash funcaoHash)
+            throws IOException {
+        return cria(pasta, tamanhoBucket, funcaoHash, QUADROS_PADRAO, LruPolicy::new);
+    }
+
+    public static ExtendibleHashPersistente cria(Path pasta, int tamanhoBucket, int quadros,
+            IntFunction<EvictionPolicy> politica) throws IOException {
+        return cria(pasta, tamanhoBucket, FuncaoHash.IDENTIDADE, quadros, politica);
+    }
+
+    /**
+     * @param funcaoHash função aplicada às chaves antes do diretório (ver ExtendibleHash); abre()
+     *                   precisa receber a mesma
+     * @param quadros    número máximo de páginas de bucket mantidas em memória
+     * @param politica   política de substituição do buffer pool (ex.: {@code ClockPolicy::new})
+     */
+    public static ExtendibleHashPersistente cria(Path pasta, int tamanhoBucket, FuncaoHash funcaoHash, int quadros,
+            IntFunction<EvictionPolicy> politica) throws IOException {
+        Files.createDirectories(pasta);
+        PageFile arquivo = PageFile.create(pasta.resolve(ARQUIVO_DADOS), Bucket.tamanhoPagina(tamanhoBucket));
+        BufferPool paginas = new BufferPool(arquivo, quadros, politica);
+
+        ExtendibleHashPersistente hash = new ExtendibleHashPersistente(paginas, pasta.resolve(ARQUIVO_DIRETORIO),
+                tamanhoBucket, funcaoHash);
+        hash.profundidadeGlobal = 1;
+        hash.diretorio = new int[2];
+        hash.diretorio[0] = hash.novaPagina();
+        hash.diretorio[1] = hash.novaPagina();
+        hash.escreveCadeia(hash.diretorio[0], new Bucket(1, tamanhoBucket));
+        hash.escreveCadeia(hash.diretorio[1], new Bucket(1, tamanhoBucket));
+        hash.diretorioAlterado = true;
+        hash.sincroniza();
+        return hash;
+    }
+
+    /**
+     * Reabre um índice existente. Custa uma leitura sequencial do diretório.
+     */
+    public static ExtendibleHashPersistente abre(Path pasta) throws IOException {
+        return abre(pasta, FuncaoHash.IDENTIDADE, QUADROS_PADRAO, LruPolicy::new);
+    }
+
+    public static ExtendibleHashPersistente abre(Path pasta, FuncaoHash funcaoHash) throws IOException {
+        return abre(pasta, funcaoHash, QUADROS_PADRAO, LruPolicy::new);
+    }
+
+    public static ExtendibleHashPersistente abre(Path pasta, int quadros, IntFunction<EvictionPolicy> politica)
+            throws IOException {
+        return abre(pasta, FuncaoHash.IDENTIDADE, quadros, politica);
+    }
+
+    /**
+     * 'funcaoHash' precisa ser a função com que o índice foi criado.
+     */
+    public static ExtendibleHashPersistente abre(Path pasta, FuncaoHash funcaoHash, int quadros,
+            IntFunction<EvictionPolicy> politica) throws IOException {
+        Path arquivoDiretorio = pasta.resolve(ARQUIVO_DIRETORIO);
+        int profundidadeGlobal;
+        int tamanhoBucket;
+        int[] diretorio;
+        int[] livres;
+        try (FileChannel canal = FileChannel.open(arquivoDiretorio, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            leCompleto(canal, cabecalho, 0);
+            cabecalho.flip();
+            if (cabecalho.getInt() != MAGICO) {
+                throw new IOException("Arquivo de diretório inválido: " + arquivoDiretorio);
+            }
+            profundidadeGlobal = cabecalho.getInt();
+            tamanhoBucket = cabecalho.getInt();
+            int quantidadeLivres = cabecalho.getInt();
+            if (cabecalho.getInt() != SnapshotHash.impressao(funcaoHash)) {
+                throw new IllegalArgumentException("FuncaoHash diferente da usada na criação do índice.");
+            }
+
+            ByteBuffer entradas = ByteBuffer.allocate(4 * ((1 << profundidadeGlobal) + quantidadeLivres));
+            leCompleto(canal, entradas, TAMANHO_CABECALHO);
+            entradas.flip();
+            IntBuffer ids = entradas.asIntBuffer();
+            diretorio = new int[1 << profundidadeGlobal];
+            ids.get(diretorio);
+            livres = new int[quantidadeLivres];
+            ids.get(livres);
+        }
+
+        PageFile arquivo = PageFile.open(pasta.resolve(ARQUIVO_DADOS), Bucket.tamanhoPagina(tamanhoBucket));
+        BufferPool paginas = new BufferPool(arquivo, quadros, politica);
+        ExtendibleHashPersistente hash = new ExtendibleHashPersistente(paginas, arquivoDiretorio, tamanhoBucket,
+                funcaoHash);
+        hash.profundidadeGlobal = profundidadeGlobal;
+        hash.diretorio = diretorio;
+        for (int pagina : livres) {
+            hash.paginasLivres.add(pagina);
+        }
+        return hash;
+    }
+
+    private int calcularIndice(int chave) {
+        int mascara = (1 << profundidadeGlobal) - 1;
+        return funcaoHash.aplica(chave) & mascara;
+    }
+
+    public boolean busca(int chave) {
+        int pagina = diretorio[calcularIndice(chave)];
+        while (pagina != SEM_PAGINA) {
+            ByteBuffer conteudo = paginas.pin(pagina);
+            boolean encontrado = Bucket.buscaNaPagina(conteudo, chave);
+            int proxima = Bucket.proximaPagina(conteudo);
+            paginas.unpin(pagina, false);
+            if (encontrado) {
+                return true;
+            }
+            pagina = proxima;
+        }
+        return false;
+    }
+
+    public void insere(int chave) {
+        int indice = calcularIndice(chave);
+        int paginaAlvo = diretorio[indice];
+        Bucket bucketAlvo = leBucket(paginaAlvo);
+        if (bucketAlvo.busca(chave)) {
+            return;
+        }
+
+        boolean conseguiuInserir = bucketAlvo.insere(chave);
+
+        while (!conseguiuInserir) {
+            if (!splitSepara(bucketAlvo, chave)) {
+                bucketAlvo.insereNoOverflow(chave);
+                break;
+            }
+            splitBucket(paginaAlvo, bucketAlvo);
+            indice = calcularIndice(chave);
+            paginaAlvo = diretorio[indice];
+            bucketAlvo = leBucket(paginaAlvo);
+            conseguiuInserir = bucketAlvo.insere(chave);
+        }
+        gravaBucket(paginaAlvo, bucketAlvo);
+    }
+
+    /*
+     * Remove uma chave, com a mesma lógica de fusão (merge) do ExtendibleHash em memória.
+     */
+    public boolean remove(int chave) {
+        int indice = calcularIndice(chave);
+        int paginaAlvo = diretorio[indice];
+        Bucket bucketAlvo = leBucket(paginaAlvo);
+
+        if (!bucketAlvo.remove(chave)) {
+            return false;
+        }
+
+        if (bucketAlvo.estaVazio() && bucketAlvo.getProfundidadeLocal() > 1) {
+            int profundidadeLocal = bucketAlvo.getProfundidadeLocal();
+            int indiceIrmao = indice ^ (1 << (profundidadeLocal - 1));
+            int paginaIrmao = diretorio[indiceIrmao];
+            Bucket bucketIrmao = leBucket(paginaIrmao);
+
+            if (bucketIrmao.getProfundidadeLocal() == profundidadeLocal) {
+                bucketIrmao.setProfundidadeLocal(profundidadeLocal - 1);
+                int paginaUnida = realocaBucket(paginaIrmao, bucketIrmao);
+                for (int i = 0; i < diretorio.length; i++) {
+                    if (diretorio[i] == paginaAlvo || (diretorio[i] == paginaIrmao && paginaUnida != paginaIrmao)) {
+                        diretorio[i] = paginaUnida;
+                        diretorioAlterado = true;
+                    }
+                }
+                // As páginas de overflow que esvaziaram ainda estão encadeadas em disco
+                liberaCadeia(paginaAlvo);
+                tentarEncolherDiretorio();
+                return true;
+            }
+        }
+
+        gravaBucket(paginaAlvo, bucketAlvo);
+        return true;
+    }
+
+    public int getProfundidadeGlobal() {
+        return profundidadeGlobal;
+    }
+
+    /**
+     * Buffer pool das páginas de bucket, para consultar acertos, faltas e despejos.
+     */
+    public BufferPool getBufferPool() {
+        return paginas;
+    }
+
+    public void exibe() {
+        System.out.println("--- Estado do Hash Extensível (em disco) ---");
+        System.out.println("Profundidade Global: " + profundidadeGlobal);
+        List<Integer> paginasImpressas = new ArrayList<>();
+        for (int i = 0; i < diretorio.length; i++) {
+            String indiceBinario = String.format("%" + profundidadeGlobal + "s",
+                                    Integer.toBinaryString(i)).replace(' ', '0');
+            System.out.print("Diretório [" + indiceBinario + "] (idx " + i + ") -> ");
+            if (!paginasImpressas.contains(diretorio[i])) {
+                System.out.println("Página " + diretorio[i] + ": " + leBucket(diretorio[i]));
+                paginasImpressas.add(diretorio[i]);
+            } else {
+                System.out.println("(Aponta para bucket já mostrado)");
+            }
+        }
+        System.out.println("---------------------------------");
+    }
+
+    /**
+     * Grava e força as páginas de bucket e só depois, se o diretório mudou, o regrava inteiro
+     * (ver gravaDiretorio). As páginas liberadas desde a última sincronização já entram como
+     * livres no diretório novo, que não aponta mais para elas.
+     */
+    public void sincroniza() {
+        paginas.flush();
+        if (diretorioAlterado || !paginasLiberadas.isEmpty()) {
+            gravaDiretorio();
+            diretorioAlterado = false;
+        }
+        paginasLivres.addAll(paginasLiberadas);
+        paginasLiberadas.clear();
+        paginasNovas.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sincroniza();
+        paginas.close();
+    }
+
+    private void duplicarDiretorio() {
+        int tamanhoAntigo = diretorio.length;
+        this.profundidadeGlobal++;
+        this.diretorio = Arrays.copyOf(diretorio, tamanhoAntigo * 2);
+        System.arraycopy(diretorio, 0, diretorio, tamanhoAntigo, tamanhoAntigo);
+        diretorioAlterado = true;
+    }
+
+    /*
+     * As chaves do bucket cheio (com as do overflow) são divididas pelo novo bit do hash; um lado
+     * que ainda não couber numa página fica com overflow até o próximo split.
+     * As duas metades vão para páginas fora do alcance do diretório em disco (ver realocaBucket).
+     */
+    private void splitBucket(int paginaCheia, Bucket bucketCheio) {
+        if (bucketCheio.getProfundidadeLocal() == this.profundidadeGlobal) {
+            duplicarDiretorio();
+        }
+        int novaProfundidadeLocal = bucketCheio.getProfundidadeLocal() + 1;
+        int[] chavesAntigas = bucketCheio.copiaChaves();
+        int bitDiferenciador = 1 << (novaProfundidadeLocal - 1);
+        int[] zeros = new int[chavesAntigas.length];
+        int[] uns = new int[chavesAntigas.length];
+        int quantidadeZeros = 0;
+        int quantidadeUns = 0;
+        for (int chave : chavesAntigas) {
+            if ((funcaoHash.aplica(chave) & bitDiferenciador) != 0) {
+                uns[quantidadeUns++] = chave;
+            } else {
+                zeros[quantidadeZeros++] = chave;
+            }
+        }
+        int paginaUns = novaPagina();
+        escreveCadeia(paginaUns, Bucket.comChaves(novaProfundidadeLocal, tamanhoBucket, uns, 0, quantidadeUns));
+        int paginaZeros = realocaBucket(paginaCheia,
+                Bucket.comChaves(novaProfundidadeLocal, tamanhoBucket, zeros, 0, quantidadeZeros));
+        for (int i = 0; i < this.diretorio.length; i++) {
+            if (this.diretorio[i] == paginaCheia) {
+                int destino = (i & bitDiferenciador) != 0 ? paginaUns : paginaZeros;
+                if (destino != paginaCheia) {
+                    this.diretorio[i] = destino;
+                    diretorioAlterado = true;
+                }
+            }
+        }
+    }
+
+    /*
+     * Algum split até PROFUNDIDADE_MAXIMA separa as chaves do bucket cheio e a nova? Só se os
+     * hashes diferirem em algum bit abaixo dela; senão, dobrar o diretório não adianta.
+     */
+    private boolean splitSepara(Bucket bucketCheio, int chave) {
+        if (bucketCheio.getProfundidadeLocal() == ExtendibleHash.PROFUNDIDADE_MAXIMA) {
+            return false;
+        }
+        int hash = funcaoHash.aplica(chave);
+        int diferenca = 0;
+        for (int outra : bucketCheio.copiaChaves()) {
+            diferenca |= funcaoHash.aplica(outra) ^ hash;
+        }
+        return (diferenca & ((1 << ExtendibleHash.PROFUNDIDADE_MAXIMA) - 1)) != 0;
+    }
+
+    /**
+     * Encolhe o diretório enquanto as duas metades forem idênticas, o que equivale a
+     * nenhum bucket ter profundidade local igual à global. Assim a verificação usa
+     * apenas o diretório, sem ler páginas de bucket.
+     */
+    private void tentarEncolherDiretorio() {
+        while (profundidadeGlobal > 1) {
+            int metade = diretorio.length / 2;
+            for (int i = 0; i < metade; i++) {
+                if (diretorio[i] != diretorio[i + metade]) {
+                    return;
+                }
+            }
+            this.profundidadeGlobal--;
+            this.diretorio = Arrays.copyOf(diretorio, metade);
+            diretorioAlterado = true;
+        }
+    }
+
+    // --- ACESSO ÀS PÁGINAS ---
+
+    // Lê a cadeia inteira que começa em 'pagina': cada página de overflow vira um Bucket encadeado
+    private Bucket leBucket(int pagina) {
+        Bucket bucket = null;
+        Bucket ultima = null;
+        while (pagina != SEM_PAGINA) {
+            ByteBuffer conteudo = paginas.pin(pagina);
+            Bucket atual = Bucket.le(conteudo, tamanhoBucket);
+            int proxima = Bucket.proximaPagina(conteudo);
+            paginas.unpin(pagina, false);
+            if (ultima == null) {
+                bucket = atual;
+            } else {
+                ultima.setOverflow(atual);
+            }
+            ultima = atual;
+            pagina = proxima;
+        }
+        return bucket;
+    }
+
+    /*
+     * Grava o bucket da cadeia 'pagina' depois da inserção ou remoção de uma chave. Uma página
+     * alcançável pelo diretório em disco só é reescrita no lugar se a cadeia tiver só ela antes e
+     * depois: despejada antes da sincronização, ela continua com todas as chaves sincronizadas
+     * que não foram removidas. Uma cadeia com overflow mudaria em várias páginas, despejadas em
+     * momentos diferentes, e vai para páginas novas (as entradas do diretório passam a elas).
+     */
+    private void gravaBucket(int pagina, Bucket bucket) {
+        if (bucket.getOverflow() == null && proximaPagina(pagina) == SEM_PAGINA) {
+            escrevePagina(pagina, bucket, SEM_PAGINA);
+            return;
+        }
+        int nova = realocaBucket(pagina, bucket);
+        if (nova != pagina) {
+            for (int i = 0; i < diretorio.length; i++) {
+                if (diretorio[i] == pagina) {
+                    diretorio[i] = nova;
+                    diretorioAlterado = true;
+                }
+            }
+        }
+    }
+
+    /*
+     * Grava 'bucket' no lugar da cadeia 'pagina' e devolve onde ele ficou: na própria cadeia se
+     * todas as páginas dela são novas desde a última sincronização, senão numa cadeia nova, e a
+     * antiga só é liberada depois da próxima (até lá o diretório em disco ainda aponta para ela).
+     * Quem chama atualiza o diretório.
+     */
+    private int realocaBucket(int pagina, Bucket bucket) {
+        for (int atual = pagina; atual != SEM_PAGINA; atual = proximaPagina(atual)) {
+            if (!paginasNovas.get(atual)) {
+                int nova = novaPagina();
+                escreveCadeia(nova, bucket);
+                liberaCadeia(pagina);
+                return nova;
+            }
+        }
+        escreveCadeia(pagina, bucket);
+        return pagina;
+    }
+
+    /*
+     * Grava a cadeia do bucket a partir de 'pagina', reaproveitando as páginas de overflow que já
+     * estavam encadeadas nela; as que sobrarem voltam para a lista de páginas livres.
+     */
+    private void escreveCadeia(int pagina, Bucket bucket) {
+        for (Bucket atual = bucket; ; atual = atual.getOverflow()) {
+            ByteBuffer conteudo = paginas.pin(pagina);
+            int proximaAntiga = Bucket.proximaPagina(conteudo);
+            paginas.unpin(pagina, false);
+            if (atual.getOverflow() == null) {
+                escrevePagina(pagina, atual, SEM_PAGINA);
+                liberaCadeia(proximaAntiga);
+                return;
+            }
+            int proxima = proximaAntiga == SEM_PAGINA ? novaPagina() : proximaAntiga;
+            escrevePagina(pagina, atual, proxima);
+            pagina = proxima;
+        }
+    }
+
+    private int proximaPagina(int pagina) {
+        ByteBuffer conteudo = paginas.pin(pagina);
+        int proxima = Bucket.proximaPagina(conteudo);
+        paginas.unpin(pagina, false);
+        return proxima;
+    }
+
+    private void escrevePagina(int pagina, Bucket bucket, int proximaPagina) {
+        ByteBuffer conteudo = paginas.pin(pagina);
+        bucket.escreve(conteudo, proximaPagina);
+        paginas.unpin(pagina, true);
+    }
+
+    // A página devolvida ainda não tem conteúdo, mas já não aponta para nenhuma outra
+    private int novaPagina() {
+        int pagina;
+        if (paginasLivres.isEmpty()) {
+            pagina = paginas.allocate();
+        } else {
+            pagina = paginasLivres.remove(paginasLivres.size() - 1);
+            diretorioAlterado = true;
+        }
+        ByteBuffer conteudo = paginas.pin(pagina);
+        new Bucket(0, tamanhoBucket).escreve(conteudo, SEM_PAGINA);
+        paginas.unpin(pagina, true);
+        paginasNovas.set(pagina);
+        return pagina;
+    }
+
+    // Libera a página e o overflow encadeado a ela (ver paginasLiberadas)
+    private void liberaCadeia(int pagina) {
+        while (pagina != SEM_PAGINA) {
+            ByteBuffer conteudo = paginas.pin(pagina);
+            int proxima = Bucket.proximaPagina(conteudo);
+            paginas.unpin(pagina, false);
+            paginasLiberadas.add(pagina);
+            pagina = proxima;
+        }
+    }
+
+    // --- ACESSO AO ARQUIVO DE DIRETÓRIO ---
+
+    /*
+     * Grava cabeçalho, entradas e lista de páginas livres (com as liberadas desde a última
+     * sincronização) num arquivo temporário, força e o troca pelo diretório atual com um rename
+     * atômico: uma queda deixa o diretório anterior ou o novo, nunca uma mistura dos dois.
+     */
+    private void gravaDiretorio() {
+        int livres = paginasLivres.size() + paginasLiberadas.size();
+        ByteBuffer conteudo = ByteBuffer.allocate(TAMANHO_CABECALHO + 4 * (diretorio.length + livres));
+        conteudo.putInt(MAGICO).putInt(profundidadeGlobal).putInt(tamanhoBucket).putInt(livres)
+                .putInt(SnapshotHash.impressao(funcaoHash));
+        IntBuffer ids = conteudo.asIntBuffer();
+        ids.put(diretorio);
+        for (int pagina : paginasLivres) {
+            ids.put(pagina);
+        }
+        for (int pagina : paginasLiberadas) {
+            ids.put(pagina);
+        }
+        conteudo.rewind();
+
+        Path temporario = arquivoDiretorio.resolveSibling(ARQUIVO_DIRETORIO + ".tmp");
+        try {
+            try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (conteudo.hasRemaining()) {
+                    canal.write(conteudo);
+                }
+                canal.force(false);
+            }
+            Files.move(temporario, arquivoDiretorio, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void leCompleto(FileChannel canal, ByteBuffer destino, long posicao) throws IOException {
+        while (destino.hasRemaining()) {
+            int lidos = canal.read(destino, posicao);
+            if (lidos < 0) {
+                throw new IOException("Arquivo de diretório truncado");
+            }
+            posicao += lidos;
+        }
+    }
+}
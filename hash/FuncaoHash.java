@@ -0,0 +1,44 @@
+package hash;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Função que espalha as chaves antes de o hash usar os bits baixos para achar o bucket.
+ *
+ * IDENTIDADE usa a própria chave (o comportamento original): ids sequenciais se espalham bem,
+ * mas chaves com os mesmos bits baixos (múltiplos de 1024, por exemplo) caem todas no mesmo
+ * bucket e forçam splits até a profundidade máxima. MURMUR3 passa a chave pelo finalizador do
+ * MurmurHash3 (fmix32), em que cada bit da entrada afeta todos os bits da saída. Para entrada
+ * adversária, comSemente/aleatoria misturam uma semente antes do fmix32.
+ *
+ * Todas são bijeções em int: chaves diferentes nunca têm o mesmo hash inteiro, só os mesmos
+ * bits baixos.
+ */
+@FunctionalInterface
+public interface FuncaoHash {
+
+    int aplica(int chave);
+
+    FuncaoHash IDENTIDADE = chave -> chave;
+
+    FuncaoHash MURMUR3 = FuncaoHash::fmix32;
+
+    static FuncaoHash comSemente(int semente) {
+        // A semente também passa pelo fmix32 para que sementes próximas deem funções sem relação
+        int mistura = fmix32(semente ^ 0x9E3779B9);
+        return chave -> fmix32(chave ^ mistura);
+    }
+
+    static FuncaoHash aleatoria() {
+        return comSemente(ThreadLocalRandom.current().nextInt());
+    }
+
+    static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
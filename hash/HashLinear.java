@@ -0,0 +1,272 @@
+package hash;
+
+import java.util.Arrays;
+
+import metrics.IndexEvent;
+import metrics.IndexListener;
+import metrics.IndexMetrics;
+import metrics.IndexOperation;
+
+/*
+ * Hash Linear (Litwin), com o mesmo contrato de insere/busca/remove do ExtendibleHash.
+ *
+ * - Não há diretório de ponteiros: o endereço do bucket sai direto do hash da chave. Com 'nivel' e
+ *   o ponteiro de split 'proximoSplit', a chave vai para hash mod 2^nivel ou, se esse bucket já
+ *   foi dividido nesta rodada, para hash mod 2^(nivel+1).
+ * - O crescimento é incremental: quando a ocupação passa de 'fatorCargaMaximo', só o bucket
+ *   apontado por 'proximoSplit' é dividido (mesmo que não seja o que encheu) e o ponteiro anda
+ *   uma posição. Nunca há cópia do diretório inteiro como em duplicarDiretorio.
+ * - Um bucket cheio que ainda não chegou a vez de dividir ganha páginas de overflow
+ *   encadeadas; elas somem quando o split o alcança ou quando esvaziam.
+ * - Na remoção, abaixo de 'fatorCargaMinimo' os últimos splits são desfeitos (fusão dos dois buckets).
+ *
+ * Os buckets ficam em segmentos de tamanho fixo: crescer só aloca um segmento novo de vez em
+ * quando, e o vetor de segmentos é pequeno (TAMANHO_SEGMENTO vezes menor que o número de buckets).
+ * A profundidade local de cada bucket guarda quantos bits do hash da chave o endereçam.
+ */
+public class HashLinear {
+
+    private static final int BITS_SEGMENTO = 8;
+    private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+
+    private final int tamanhoBucket;
+    private final double fatorCargaMaximo;
+    private final double fatorCargaMinimo;
+    private final FuncaoHash funcaoHash;
+    private Bucket[][] segmentos;
+    private int nivel;
+    private int proximoSplit;
+    private int numeroBuckets;
+    private long totalChaves;
+    private IndexListener listener = IndexListener.NOOP;
+    private boolean temporizado;
+
+    public HashLinear(int tamanhoBucket) {
+        this(tamanhoBucket, 0.8);
+    }
+
+    public HashLinear(int tamanhoBucket, double fatorCargaMaximo) {
+        this(tamanhoBucket, fatorCargaMaximo, FuncaoHash.IDENTIDADE);
+    }
+
+    /*
+     * 'fatorCargaMaximo' é a ocupação média (chaves / capacidade das páginas principais) acima da
+     * qual um bucket é dividido; a fusão acontece abaixo de metade dele.
+     */
+    public HashLinear(int tamanhoBucket, double fatorCargaMaximo, FuncaoHash funcaoHash) {
+        if (tamanhoBucket < 1) {
+            throw new IllegalArgumentException("tamanhoBucket deve ser >= 1");
+        }
+        if (fatorCargaMaximo <= 0) {
+            throw new IllegalArgumentException("fatorCargaMaximo deve ser > 0");
+        }
+        this.tamanhoBucket = tamanhoBucket;
+        this.fatorCargaMaximo = fatorCargaMaximo;
+        this.fatorCargaMinimo = fatorCargaMaximo / 2;
+        this.funcaoHash = funcaoHash;
+        this.nivel = 1;
+        this.segmentos = new Bucket[1][];
+        this.segmentos[0] = new Bucket[TAMANHO_SEGMENTO];
+        adicionaBucket(new Bucket(1, tamanhoBucket));
+        adicionaBucket(new Bucket(1, tamanhoBucket));
+    }
+
+    public void setListener(IndexListener listener) {
+        this.listener = listener == null ? IndexListener.NOOP : listener;
+        this.temporizado = this.listener.recordsLatency();
+    }
+
+    /*
+     * Registra em 'metrics' os gauges do hash: nível, ponteiro de split, número de buckets, de
+     * páginas de overflow e de chaves, e a ocupação média das páginas principais.
+     */
+    public void registraGauges(IndexMetrics metrics) {
+        metrics.gauge("nivel", () -> nivel);
+        metrics.gauge("proximoSplit", () -> proximoSplit);
+        metrics.gauge("buckets", () -> numeroBuckets);
+        metrics.gauge("paginasOverflow", this::paginasOverflow);
+        metrics.gauge("chaves", () -> totalChaves);
+        metrics.gauge("ocupacao", this::fatorCarga);
+    }
+
+    private int calcularIndice(int chave) {
+        int hash = funcaoHash.aplica(chave);
+        int indice = hash & ((1 << nivel) - 1);
+        if (indice < proximoSplit) {
+            indice = hash & ((1 << (nivel + 1)) - 1);
+        }
+        return indice;
+    }
+
+    private Bucket bucketEm(int indice) {
+        return segmentos[indice >>> BITS_SEGMENTO][indice & (TAMANHO_SEGMENTO - 1)];
+    }
+
+    private void defineBucket(int indice, Bucket bucket) {
+        segmentos[indice >>> BITS_SEGMENTO][indice & (TAMANHO_SEGMENTO - 1)] = bucket;
+    }
+
+    private void adicionaBucket(Bucket bucket) {
+        int segmento = numeroBuckets >>> BITS_SEGMENTO;
+        if (segmento == segmentos.length) {
+            segmentos = Arrays.copyOf(segmentos, segmentos.length * 2);
+        }
+        if (segmentos[segmento] == null) {
+            segmentos[segmento] = new Bucket[TAMANHO_SEGMENTO];
+        }
+        defineBucket(numeroBuckets, bucket);
+        numeroBuckets++;
+    }
+
+    private Bucket removeUltimoBucket() {
+        numeroBuckets--;
+        Bucket bucket = bucketEm(numeroBuckets);
+        defineBucket(numeroBuckets, null);
+        return bucket;
+    }
+
+    private double fatorCarga() {
+        return (double) totalChaves / ((long) numeroBuckets * tamanhoBucket);
+    }
+
+    private long paginasOverflow() {
+        long total = 0;
+        for (int i = 0; i < numeroBuckets; i++) {
+            total += bucketEm(i).getPaginasOverflow();
+        }
+        return total;
+    }
+
+    public boolean busca(int chave) {
+        if (!temporizado) {
+            return buscaSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        boolean encontrada = buscaSemMedicao(chave);
+        listener.onOperation(IndexOperation.SEARCH, System.nanoTime() - inicio);
+        return encontrada;
+    }
+
+    private boolean buscaSemMedicao(int chave) {
+        return bucketEm(calcularIndice(chave)).busca(chave);
+    }
+
+    public void insere(int chave) {
+        if (!temporizado) {
+            insereSemMedicao(chave);
+            return;
+        }
+        long inicio = System.nanoTime();
+        insereSemMedicao(chave);
+        listener.onOperation(IndexOperation.INSERT, System.nanoTime() - inicio);
+    }
+
+    private void insereSemMedicao(int chave) {
+        Bucket bucketAlvo = bucketEm(calcularIndice(chave));
+        if (bucketAlvo.busca(chave)) {
+            return;
+        }
+        insereNoBucket(bucketAlvo, chave);
+        totalChaves++;
+        if (fatorCarga() > fatorCargaMaximo) {
+            listener.onEvent(IndexEvent.BUCKET_SPLIT, chave, 0);
+            splitBucket();
+        }
+    }
+
+    // A chave ainda não está no bucket: com a página principal cheia, vai para o overflow
+    private static void insereNoBucket(Bucket bucket, int chave) {
+        if (!bucket.insere(chave)) {
+            bucket.insereNoOverflow(chave);
+        }
+    }
+
+    /*
+     * Divide o bucket 'proximoSplit': as chaves dele são repartidas entre ele e o novo bucket
+     * proximoSplit + 2^nivel pelo bit 'nivel' do hash. As páginas de overflow do bucket antigo
+     * são descartadas e os dois são montados de novo, já compactos.
+     */
+    private void splitBucket() {
+        int indiceAntigo = proximoSplit;
+        Bucket antigo = bucketEm(indiceAntigo);
+        int[] chavesAntigas = antigo.copiaChaves();
+        antigo.limpa();
+        antigo.setProfundidadeLocal(nivel + 1);
+        Bucket novo = new Bucket(nivel + 1, tamanhoBucket);
+        int bitDiferenciador = 1 << nivel;
+        for (int chave : chavesAntigas) {
+            insereNoBucket((funcaoHash.aplica(chave) & bitDiferenciador) == 0 ? antigo : novo, chave);
+        }
+        adicionaBucket(novo);
+
+        proximoSplit++;
+        if (proximoSplit == 1 << nivel) {
+            nivel++;
+            proximoSplit = 0;
+        }
+    }
+
+    /*
+     * Remove uma chave. Páginas de overflow que esvaziam saem da cadeia; se a ocupação média cair
+     * abaixo de 'fatorCargaMinimo', os últimos splits são desfeitos.
+     */
+    public boolean remove(int chave) {
+        if (!temporizado) {
+            return removeSemMedicao(chave);
+        }
+        long inicio = System.nanoTime();
+        boolean removido = removeSemMedicao(chave);
+        listener.onOperation(IndexOperation.DELETE, System.nanoTime() - inicio);
+        return removido;
+    }
+
+    private boolean removeSemMedicao(int chave) {
+        if (!bucketEm(calcularIndice(chave)).remove(chave)) {
+            return false;
+        }
+        totalChaves--;
+        // Com buckets pequenos uma fusão por remoção não acompanha a queda da ocupação
+        while (numeroBuckets > 2 && fatorCarga() < fatorCargaMinimo) {
+            fundeUltimoSplit();
+        }
+        return true;
+    }
+
+    // Desfaz o último split: o bucket mais alto volta para o irmão de que saiu
+    private void fundeUltimoSplit() {
+        if (proximoSplit == 0) {
+            nivel--;
+            proximoSplit = 1 << nivel;
+        }
+        proximoSplit--;
+        int indiceIrmao = proximoSplit;
+        listener.onEvent(IndexEvent.BUCKET_MERGE, numeroBuckets - 1, indiceIrmao);
+        Bucket removido = removeUltimoBucket();
+        Bucket irmao = bucketEm(indiceIrmao);
+        irmao.setProfundidadeLocal(nivel);
+        for (int chave : removido.copiaChaves()) {
+            insereNoBucket(irmao, chave);
+        }
+    }
+
+    public int getNumeroBuckets() {
+        return numeroBuckets;
+    }
+
+    public long getTotalChaves() {
+        return totalChaves;
+    }
+
+    public void exibe() {
+        System.out.println("--- Estado do Hash Linear ---");
+        System.out.println("Nível: " + nivel + ", próximo split: " + proximoSplit
+                + ", ocupação: " + String.format("%.2f", fatorCarga()));
+        for (int i = 0; i < numeroBuckets; i++) {
+            Bucket bucket = bucketEm(i);
+            int bits = bucket.getProfundidadeLocal();
+            String indiceBinario = String.format("%" + bits + "s", Integer.toBinaryString(i)).replace(' ', '0');
+            System.out.println("Bucket [" + indiceBinario + "] (idx " + i + ") -> " + bucket);
+        }
+        System.out.println("-----------------------------");
+    }
+}
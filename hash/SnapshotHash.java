@@ -0,0 +1,217 @@
+package hash;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+
+import storage.SnapshotFile;
+
+/*
+ * Snapshot binário de um ExtendibleHash: o diretório e o conteúdo de cada bucket, gravados num
+ * SnapshotFile (versionado, com CRC por bloco e compressão opcional).
+ *
+ * Cada bucket aparece uma vez, como [indice][profundidadeLocal][quantidade][chaves...], em que
+ * 'indice' é a menor entrada do diretório que aponta para ele (o único índice < 2^profundidadeLocal
+ * entre elas). A leitura refaz o diretório a partir disso: o bucket de profundidade local d ocupa
+ * as entradas indice, indice + 2^d, indice + 2 * 2^d... Nenhuma chave é reinserida e nenhum split
+ * é refeito; os blocos de buckets são descomprimidos e decodificados em paralelo.
+ *
+ * A FuncaoHash não tem como ir para o arquivo: quem carrega informa a mesma função usada na
+ * gravação. O snapshot guarda uma impressão dela e recusa a carga com uma função diferente.
+ *
+ * O cabeçalho termina com o LSN do log que o snapshot cobre (0 fora de um checkpoint), lido por lsn.
+ */
+public final class SnapshotHash {
+
+    private static final byte TIPO = 2;
+    // Chaves (contando as de overflow) por bloco do arquivo
+    private static final int CHAVES_POR_BLOCO = 64 * 1024;
+
+    private SnapshotHash() {
+    }
+
+    public static void salva(ExtendibleHash hash, Path arquivo, boolean comprime) throws IOException {
+        salva(hash, arquivo, comprime, ForkJoinPool.commonPool());
+    }
+
+    public static void salva(ExtendibleHash hash, Path arquivo, boolean comprime, ForkJoinPool pool) throws IOException {
+        salva(hash, arquivo, comprime, 0, pool);
+    }
+
+    /*
+     * Grava o hash em 'arquivo' (o snapshot anterior só é substituído no fim), registrando que ele
+     * contém todos os registros do log até 'lsn'. O hash não pode ser alterado durante a gravação.
+     */
+    public static void salva(ExtendibleHash hash, Path arquivo, boolean comprime, long lsn, ForkJoinPool pool)
+            throws IOException {
+        int profundidadeGlobal = hash.getProfundidadeGlobal();
+        int tamanhoDiretorio = 1 << profundidadeGlobal;
+        int buckets = 0;
+        long chaves = 0;
+        for (int i = 0; i < tamanhoDiretorio; i++) {
+            Bucket bucket = hash.getBucket(i);
+            if (i < 1 << bucket.getProfundidadeLocal()) {
+                buckets++;
+                chaves += bucket.getQuantidade();
+            }
+        }
+
+        // [tamanhoBucket:int][profundidadeGlobal:int][buckets:int][chaves:long][impressao da FuncaoHash:int][lsn:long]
+        ByteBuffer cabecalho = ByteBuffer.allocate(32).putInt(hash.getTamanhoBucket()).putInt(profundidadeGlobal)
+                .putInt(buckets).putLong(chaves).putInt(impressao(hash.getFuncaoHash())).putLong(lsn).flip();
+        try (SnapshotFile.Writer escritor = SnapshotFile.create(arquivo, TIPO, cabecalho, comprime, pool)) {
+            ByteBuffer bloco = null;
+            for (int i = 0; i < tamanhoDiretorio; i++) {
+                Bucket bucket = hash.getBucket(i);
+                if (i >= 1 << bucket.getProfundidadeLocal()) {
+                    continue;
+                }
+                int[] conteudo = bucket.copiaChaves();
+                int tamanho = 12 + 4 * conteudo.length;
+                if (bloco != null && bloco.remaining() < tamanho) {
+                    escritor.writeBlock(bloco.array(), bloco.position());
+                    bloco = null;
+                }
+                if (bloco == null) {
+                    bloco = ByteBuffer.allocate(Math.max(tamanho, 4 * CHAVES_POR_BLOCO));
+                }
+                bloco.putInt(i).putInt(bucket.getProfundidadeLocal()).putInt(conteudo.length);
+                for (int chave : conteudo) {
+                    bloco.putInt(chave);
+                }
+            }
+            if (bloco != null) {
+                escritor.writeBlock(bloco.array(), bloco.position());
+            }
+        }
+    }
+
+    public static ExtendibleHash carrega(Path arquivo, FuncaoHash funcaoHash) throws IOException {
+        return carrega(arquivo, funcaoHash, ForkJoinPool.commonPool());
+    }
+
+    /*
+     * Lê o snapshot num hash novo, com o mesmo tamanho de bucket e a mesma forma do diretório.
+     * 'funcaoHash' precisa ser a função do hash gravado (FuncaoHash.IDENTIDADE no construtor padrão).
+     */
+    public static ExtendibleHash carrega(Path arquivo, FuncaoHash funcaoHash, ForkJoinPool pool) throws IOException {
+        try (SnapshotFile.Reader leitor = SnapshotFile.open(arquivo, TIPO, pool)) {
+            ByteBuffer cabecalho = leitor.header();
+            int tamanhoBucket = cabecalho.getInt();
+            int profundidadeGlobal = cabecalho.getInt();
+            int buckets = cabecalho.getInt();
+            long chaves = cabecalho.getLong();
+            if (cabecalho.getInt() != impressao(funcaoHash)) {
+                throw new IllegalArgumentException("FuncaoHash diferente da usada na gravação do snapshot.");
+            }
+            if (tamanhoBucket < 1 || profundidadeGlobal < 1 || profundidadeGlobal > ExtendibleHash.PROFUNDIDADE_MAXIMA) {
+                throw new IOException("Snapshot corrompido: tamanhoBucket " + tamanhoBucket
+                        + ", profundidadeGlobal " + profundidadeGlobal);
+            }
+
+            Bucket[] diretorio = new Bucket[1 << profundidadeGlobal];
+            int bucketsLidos = 0;
+            long chavesLidas = 0;
+            Iterator<BlocoDeBuckets> blocos = leitor.blocks(bloco -> decodifica(bloco, tamanhoBucket, profundidadeGlobal));
+            try {
+                while (blocos.hasNext()) {
+                    BlocoDeBuckets bloco = blocos.next();
+                    for (int b = 0; b < bloco.quantidade; b++) {
+                        Bucket bucket = bloco.buckets[b];
+                        int passo = 1 << bucket.getProfundidadeLocal();
+                        for (int i = bloco.indices[b]; i < diretorio.length; i += passo) {
+                            if (diretorio[i] != null) {
+                                throw new IOException("Snapshot corrompido: entrada " + i + " do diretório repetida");
+                            }
+                            diretorio[i] = bucket;
+                        }
+                        chavesLidas += bucket.getQuantidade();
+                    }
+                    bucketsLidos += bloco.quantidade;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (bucketsLidos != buckets || chavesLidas != chaves) {
+                throw new IOException("Snapshot corrompido: " + bucketsLidos + " buckets e " + chavesLidas
+                        + " chaves, esperados " + buckets + " e " + chaves);
+            }
+            for (int i = 0; i < diretorio.length; i++) {
+                if (diretorio[i] == null) {
+                    throw new IOException("Snapshot corrompido: entrada " + i + " do diretório sem bucket");
+                }
+            }
+            return new ExtendibleHash(tamanhoBucket, funcaoHash, profundidadeGlobal,
+                    new ArrayList<>(Arrays.asList(diretorio)));
+        }
+    }
+
+    /*
+     * LSN do log coberto pelo snapshot em 'arquivo' (0 se foi gravado sem LSN).
+     */
+    public static long lsn(Path arquivo) throws IOException {
+        try (SnapshotFile.Reader leitor = SnapshotFile.open(arquivo, TIPO, ForkJoinPool.commonPool())) {
+            ByteBuffer cabecalho = leitor.header();
+            cabecalho.position(24);
+            // Snapshots antigos terminam na impressão
+            return cabecalho.remaining() >= 8 ? cabecalho.getLong() : 0;
+        }
+    }
+
+    // Buckets de um bloco, com o menor índice do diretório de cada um
+    private static final class BlocoDeBuckets {
+        int[] indices = new int[16];
+        Bucket[] buckets = new Bucket[16];
+        int quantidade;
+
+        void adiciona(int indice, Bucket bucket) {
+            if (quantidade == indices.length) {
+                indices = Arrays.copyOf(indices, quantidade * 2);
+                buckets = Arrays.copyOf(buckets, quantidade * 2);
+            }
+            indices[quantidade] = indice;
+            buckets[quantidade] = bucket;
+            quantidade++;
+        }
+    }
+
+    private static BlocoDeBuckets decodifica(ByteBuffer bloco, int tamanhoBucket, int profundidadeGlobal)
+            throws IOException {
+        BlocoDeBuckets resultado = new BlocoDeBuckets();
+        while (bloco.hasRemaining()) {
+            if (bloco.remaining() < 12) {
+                throw new IOException("Snapshot corrompido: bucket incompleto");
+            }
+            int indice = bloco.getInt();
+            int profundidadeLocal = bloco.getInt();
+            int quantidade = bloco.getInt();
+            if (profundidadeLocal < 0 || profundidadeLocal > profundidadeGlobal || indice < 0
+                    || indice >= 1 << profundidadeLocal || quantidade < 0 || quantidade > bloco.remaining() / 4) {
+                throw new IOException("Snapshot corrompido: bucket " + indice + " inválido");
+            }
+            int[] chaves = new int[quantidade];
+            bloco.asIntBuffer().get(chaves);
+            bloco.position(bloco.position() + 4 * quantidade);
+            resultado.adiciona(indice, Bucket.comChaves(profundidadeLocal, tamanhoBucket, chaves, 0, quantidade));
+        }
+        return resultado;
+    }
+
+    /*
+     * Resumo de como a função espalha algumas chaves fixas: funções diferentes quase sempre dão
+     * resumos diferentes. Também vai para o cabeçalho do ExtendibleHashPersistente.
+     */
+    static int impressao(FuncaoHash funcaoHash) {
+        int resumo = 0;
+        for (int i = 0; i < 32; i++) {
+            int chave = i < 16 ? i : (1 << i) ^ -i;
+            resumo = FuncaoHash.fmix32(resumo ^ funcaoHash.aplica(chave)) + i;
+        }
+        return resumo;
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+/**
+ * Imprime os eventos estruturais no console, com as mesmas mensagens que as estruturas
+ * imprimiam antes de terem listener. Usado pelos drivers interativos.
+ */
+public class ConsoleListener implements IndexListener {
+
+    @Override
+    public void onEvent(IndexEvent event, int first, int second) {
+        switch (event) {
+            case LEAF_SPLIT -> System.out.println("### SPLIT DE NÓ FOLHA ###");
+            case INTERNAL_SPLIT -> System.out.println("### SPLIT DE NÓ INTERNO ###");
+            case ROOT_SPLIT -> System.out.println("### AUMENTANDO ALTURA DA ÁRVORE (RAIZ DIVIDIU) ###");
+            case ROOT_SHRINK -> System.out.println("### DIMINUINDO ALTURA DA ÁRVORE (RAIZ ENCOLHEU) ###");
+            case LEAF_MERGE -> System.out.println("### FUSÃO DE NÓ FOLHA ###");
+            case INTERNAL_MERGE -> System.out.println("### FUSÃO DE NÓ INTERNO ###");
+            case INTERNAL_REDISTRIBUTION -> System.out.println("### REDISTRIBUIÇÃO DE NÓ INTERNO ###");
+            case BUCKET_SPLIT -> System.out.println("Bucket cheio! Acionando split para a chave: " + first);
+            case BUCKET_MERGE -> System.out.println("### FUSÃO DE BUCKET (Bucket " + first + " com " + second + ") ###");
+            case DIRECTORY_DOUBLING -> System.out.println("### DUPLICANDO DIRETÓRIO (PG de " + first + " para " + second + ") ###");
+            case DIRECTORY_SHRINK -> System.out.println("### ENCOLHENDO DIRETÓRIO (PG de " + first + " para " + second + ") ###");
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+/**
+ * Eventos estruturais das estruturas de indexação.
+ * Os dois inteiros que acompanham cada evento em {@link IndexListener#onEvent} são:
+ * <ul>
+ *   <li>BUCKET_SPLIT: a chave que encontrou o bucket cheio (o segundo é 0);</li>
+ *   <li>BUCKET_MERGE: o índice do bucket vazio e o do irmão (no HashLinear, o do bucket desfeito e
+ *   o do que recebe suas chaves);</li>
+ *   <li>DIRECTORY_DOUBLING / DIRECTORY_SHRINK: a profundidade global antes e depois;</li>
+ *   <li>eventos da Árvore B+: 0 e 0.</li>
+ * </ul>
+ */
+public enum IndexEvent {
+    LEAF_SPLIT,
+    INTERNAL_SPLIT,
+    ROOT_SPLIT,
+    ROOT_SHRINK,
+    LEAF_MERGE,
+    INTERNAL_MERGE,
+    LEAF_REDISTRIBUTION,
+    INTERNAL_REDISTRIBUTION,
+    BUCKET_SPLIT,
+    BUCKET_MERGE,
+    DIRECTORY_DOUBLING,
+    DIRECTORY_SHRINK
+}
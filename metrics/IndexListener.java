@@ -0,0 +1,27 @@
+package metrics;
+
+/**
+ * Recebe os eventos estruturais (split, fusão, redistribuição, duplicação/encolhimento do
+ * diretório) e, opcionalmente, a latência de cada operação de uma estrutura de indexação.
+ *
+ * As estruturas começam com {@link #NOOP}. Eventos estruturais são raros, então o custo
+ * sem listener é uma chamada vazia por split/fusão; a latência só é medida (System.nanoTime)
+ * quando o listener instalado devolve true em {@link #recordsLatency()}.
+ */
+public interface IndexListener {
+    IndexListener NOOP = new IndexListener() {
+    };
+
+    default void onEvent(IndexEvent event, int first, int second) {
+    }
+
+    default void onOperation(IndexOperation operation, long nanos) {
+    }
+
+    /**
+     * Lido uma vez, quando o listener é instalado na estrutura.
+     */
+    default boolean recordsLatency() {
+        return false;
+    }
+}
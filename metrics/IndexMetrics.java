@@ -0,0 +1,203 @@
+package metrics;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Listener que agrega os eventos em contadores e as latências em histogramas, e expõe tudo
+ * (mais os gauges registrados pela estrutura) como MXBean.
+ *
+ * Uso típico:
+ * <pre>
+ *   IndexMetrics metrics = new IndexMetrics();
+ *   arvore.setListener(metrics);
+ *   arvore.registerGauges(metrics);
+ *   metrics.registerMBean("clientes");
+ * </pre>
+ *
+ * Contadores e histogramas podem ser atualizados de qualquer thread. Os gauges percorrem a
+ * estrutura quando são lidos: em estruturas que não são thread-safe, uma leitura feita
+ * durante uma escrita pode vir inconsistente (nesse caso o gauge vale NaN).
+ */
+public class IndexMetrics implements IndexListener, IndexMetricsMXBean {
+    private static final IndexEvent[] EVENTS = IndexEvent.values();
+    private static final IndexOperation[] OPERATIONS = IndexOperation.values();
+
+    private final LongAdder[] events = new LongAdder[EVENTS.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final boolean recordsLatency;
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, Supplier<int[]>> histograms = new ConcurrentSkipListMap<>();
+    private ObjectName objectName;
+
+    public IndexMetrics() {
+        this(true);
+    }
+
+    /**
+     * @param recordsLatency false para contar só os eventos, sem medir cada operação
+     */
+    public IndexMetrics(boolean recordsLatency) {
+        this.recordsLatency = recordsLatency;
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onEvent(IndexEvent event, int first, int second) {
+        events[event.ordinal()].increment();
+    }
+
+    @Override
+    public void onOperation(IndexOperation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    @Override
+    public boolean recordsLatency() {
+        return recordsLatency;
+    }
+
+    public long count(IndexEvent event) {
+        return events[event.ordinal()].sum();
+    }
+
+    public LatencyHistogram latency(IndexOperation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Gauge em forma de histograma: a posição i do vetor vira o valor de "name.i"
+     * (posições zeradas são omitidas).
+     */
+    public void histogram(String name, Supplier<int[]> counts) {
+        histograms.put(name, counts);
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for (IndexEvent event : EVENTS) {
+            result.put(event.name(), count(event));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getLatencies() {
+        Map<String, Double> result = new TreeMap<>();
+        for (IndexOperation operation : OPERATIONS) {
+            LatencyHistogram histogram = latency(operation);
+            String prefix = operation.name() + ".";
+            result.put(prefix + "count", (double) histogram.count());
+            result.put(prefix + "mean", histogram.mean());
+            result.put(prefix + "p50", (double) histogram.percentile(0.5));
+            result.put(prefix + "p99", (double) histogram.percentile(0.99));
+            result.put(prefix + "p999", (double) histogram.percentile(0.999));
+            result.put(prefix + "max", (double) histogram.max());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getGauges() {
+        Map<String, Double> result = new TreeMap<>();
+        for (Map.Entry<String, DoubleSupplier> gauge : gauges.entrySet()) {
+            double value;
+            try {
+                value = gauge.getValue().getAsDouble();
+            } catch (RuntimeException e) {
+                value = Double.NaN;
+            }
+            result.put(gauge.getKey(), value);
+        }
+        for (Map.Entry<String, Supplier<int[]>> histogram : histograms.entrySet()) {
+            int[] counts;
+            try {
+                counts = histogram.getValue().get();
+            } catch (RuntimeException e) {
+                continue;
+            }
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    result.put(histogram.getKey() + "." + i, (double) counts[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : events) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Registra no MBeanServer da plataforma como "indexacao:type=IndexMetrics,name=&lt;name&gt;".
+     */
+    public synchronized void registerMBean(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName("indexacao:type=IndexMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Não foi possível registrar as métricas no JMX: " + name, e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Não foi possível remover as métricas do JMX: " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("--- Métricas ---\n");
+        getEventCounts().forEach((name, value) -> {
+            if (value != 0) {
+                sb.append(name).append(": ").append(value).append("\n");
+            }
+        });
+        for (IndexOperation operation : OPERATIONS) {
+            LatencyHistogram histogram = latency(operation);
+            if (histogram.count() > 0) {
+                sb.append(operation).append(": count=").append(histogram.count())
+                        .append(" p50<=").append(histogram.percentile(0.5)).append("ns")
+                        .append(" p99<=").append(histogram.percentile(0.99)).append("ns")
+                        .append(" max=").append(histogram.max()).append("ns\n");
+            }
+        }
+        getGauges().forEach((name, value) -> sb.append(name).append(" = ").append(value).append("\n"));
+        return sb.toString();
+    }
+}
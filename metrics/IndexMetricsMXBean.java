@@ -0,0 +1,16 @@
+package metrics;
+import java.util.Map;
+
+public interface IndexMetricsMXBean {
+
+    /** Total de cada {@link IndexEvent} desde a criação ou o último reset. */
+    Map<String, Long> getEventCounts();
+
+    /** Por operação: count, mean, p50, p99, p999 e max, em nanossegundos. */
+    Map<String, Double> getLatencies();
+
+    /** Valores atuais dos gauges (altura, ocupação, histogramas de profundidade...). */
+    Map<String, Double> getGauges();
+
+    void reset();
+}
@@ -0,0 +1,8 @@
+package metrics;
+
+public enum IndexOperation {
+    INSERT,
+    SEARCH,
+    SEARCH_RANGE,
+    DELETE
+}
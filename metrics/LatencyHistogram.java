@@ -0,0 +1,79 @@
+package metrics;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em faixas de potência de 2 (a faixa i guarda [2^i, 2^(i+1)) ns).
+ * Gravar é um incremento de LongAdder, sem alocação e sem trava; os percentis são
+ * aproximados pelo limite superior da faixa, o que basta para acompanhar tendências.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(1, nanos);
+        buckets[63 - Long.numberOfLeadingZeros(value)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Limite superior (em ns) da faixa que contém o percentil 'quantile' (entre 0 e 1),
+     * limitado ao maior valor gravado.
+     */
+    public long percentile(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, target)) {
+                long upperBound = i == 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                return Math.min(upperBound, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+}
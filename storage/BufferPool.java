@@ -0,0 +1,182 @@
+package storage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Cache limitado de páginas entre as estruturas de índice e um {@link PageFile}.
+ * Mantém 'frames' quadros de pageSize bytes; páginas fixadas (pin) não são despejadas,
+ * páginas modificadas só são gravadas no arquivo ao serem despejadas ou em {@link #flush()}.
+ * A política de substituição é escolhida na construção (LRU, CLOCK, LRU-K...).
+ * Não é thread-safe, assim como as estruturas que o usam.
+ */
+public class BufferPool implements PageStore {
+    private static final int EMPTY = -1;
+
+    private final PageFile file;
+    private final ByteBuffer[] frames;
+    private final int[] framePage;
+    private final int[] pinCount;
+    private final boolean[] dirty;
+    private final Map<Integer, Integer> pageTable;
+    private final EvictionPolicy policy;
+    // Quadros são ocupados em ordem e só voltam a ficar vazios dentro de um despejo
+    private int usedFrames;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long writeBacks;
+
+    /**
+     * @param policyFactory recebe o número de quadros, ex.: {@code LruPolicy::new},
+     *                      {@code ClockPolicy::new} ou {@code n -> new LruKPolicy(n, 2)}
+     */
+    public BufferPool(PageFile file, int frames, IntFunction<EvictionPolicy> policyFactory) {
+        if (frames < 1) {
+            throw new IllegalArgumentException("frames must be >= 1");
+        }
+        this.file = file;
+        this.frames = new ByteBuffer[frames];
+        this.framePage = new int[frames];
+        this.pinCount = new int[frames];
+        this.dirty = new boolean[frames];
+        this.pageTable = new HashMap<>(frames * 2);
+        this.policy = policyFactory.apply(frames);
+        Arrays.fill(framePage, EMPTY);
+    }
+
+    @Override
+    public int pageSize() {
+        return file.pageSize();
+    }
+
+    /**
+     * Reserva uma nova página no fim do arquivo.
+     */
+    public int allocate() {
+        return file.allocate();
+    }
+
+    @Override
+    public ByteBuffer pin(int pageId) {
+        Integer cached = pageTable.get(pageId);
+        if (cached != null) {
+            int frame = cached;
+            hits++;
+            pinCount[frame]++;
+            policy.onAccess(frame);
+            return frames[frame].duplicate();
+        }
+
+        misses++;
+        int frame = freeFrame();
+        while (file.pageCount() <= pageId) {
+            file.allocate();
+        }
+        if (frames[frame] == null) {
+            frames[frame] = ByteBuffer.allocateDirect(file.pageSize());
+        }
+        ByteBuffer buffer = frames[frame];
+        buffer.clear();
+        file.read(pageId, buffer);
+        framePage[frame] = pageId;
+        pinCount[frame] = 1;
+        dirty[frame] = false;
+        pageTable.put(pageId, frame);
+        policy.onLoad(frame);
+        return buffer.duplicate();
+    }
+
+    @Override
+    public void unpin(int pageId, boolean modified) {
+        Integer frame = pageTable.get(pageId);
+        if (frame == null || pinCount[frame] == 0) {
+            throw new IllegalStateException("Página não está fixada: " + pageId);
+        }
+        pinCount[frame]--;
+        dirty[frame] |= modified;
+    }
+
+    @Override
+    public void flush() {
+        for (int frame = 0; frame < frames.length; frame++) {
+            if (framePage[frame] != EMPTY && dirty[frame]) {
+                writeBack(frame);
+            }
+        }
+        file.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        file.close();
+    }
+
+    public int frameCount() {
+        return frames.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getWriteBacks() {
+        return writeBacks;
+    }
+
+    public double hitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        writeBacks = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool [quadros=" + frames.length + ", paginas=" + pageTable.size() + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + ", writeBacks=" + writeBacks + "]";
+    }
+
+    private int freeFrame() {
+        if (usedFrames < frames.length) {
+            return usedFrames++;
+        }
+        int victim = policy.victim(frame -> pinCount[frame] == 0);
+        if (victim == EMPTY) {
+            throw new IllegalStateException("Buffer pool sem quadros livres: todas as páginas estão fixadas");
+        }
+        if (dirty[victim]) {
+            writeBack(victim);
+        }
+        pageTable.remove(framePage[victim]);
+        framePage[victim] = EMPTY;
+        evictions++;
+        return victim;
+    }
+
+    private void writeBack(int frame) {
+        ByteBuffer buffer = frames[frame].duplicate();
+        buffer.clear();
+        file.write(framePage[frame], buffer);
+        dirty[frame] = false;
+        writeBacks++;
+    }
+}
@@ -0,0 +1,48 @@
+package storage;
+import java.util.function.IntPredicate;
+
+/**
+ * CLOCK (segunda chance): um ponteiro percorre os quadros em círculo, limpando o bit de
+ * referência dos quadros acessados e despejando o primeiro que encontra com o bit zerado.
+ */
+public class ClockPolicy implements EvictionPolicy {
+    private final boolean[] referenced;
+    private final boolean[] loaded;
+    private int hand;
+
+    public ClockPolicy(int frames) {
+        this.referenced = new boolean[frames];
+        this.loaded = new boolean[frames];
+        this.hand = 0;
+    }
+
+    @Override
+    public void onLoad(int frame) {
+        loaded[frame] = true;
+        referenced[frame] = true;
+    }
+
+    @Override
+    public void onAccess(int frame) {
+        referenced[frame] = true;
+    }
+
+    @Override
+    public int victim(IntPredicate evictable) {
+        // Duas voltas bastam: na primeira os bits são limpos, na segunda algum quadro livre é achado
+        for (int step = 0; step < 2 * referenced.length; step++) {
+            int frame = hand;
+            hand = (hand + 1) % referenced.length;
+            if (!loaded[frame] || !evictable.test(frame)) {
+                continue;
+            }
+            if (referenced[frame]) {
+                referenced[frame] = false;
+            } else {
+                loaded[frame] = false;
+                return frame;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,57 @@
+package storage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converte chaves e valores de/para bytes, para as estruturas que gravam em disco
+ * estruturas genéricas (log, snapshots).
+ */
+public interface Codec<T> {
+
+    void write(DataOutput out, T value) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    Codec<Integer> INT = new Codec<>() {
+        @Override
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    Codec<Long> LONG = new Codec<>() {
+        @Override
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    // [tamanho em bytes][UTF-8]; sem o limite de 64 KB do writeUTF
+    Codec<String> STRING = new Codec<>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+}
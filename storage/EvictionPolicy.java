@@ -0,0 +1,25 @@
+package storage;
+import java.util.function.IntPredicate;
+
+/**
+ * Política de substituição usada pelo {@link BufferPool}.
+ * A política enxerga apenas índices de quadro (0 .. quadros - 1); quem decide se um quadro
+ * pode ser despejado (não está fixado) é o pool, através do predicado passado a {@link #victim}.
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Uma página acabou de ser carregada no quadro.
+     */
+    void onLoad(int frame);
+
+    /**
+     * A página do quadro foi acessada novamente (acerto no pool).
+     */
+    void onAccess(int frame);
+
+    /**
+     * Escolhe um quadro a despejar entre os que satisfazem 'evictable', ou -1 se nenhum serve.
+     */
+    int victim(IntPredicate evictable);
+}
@@ -0,0 +1,70 @@
+package storage;
+import java.util.function.IntPredicate;
+
+/**
+ * LRU-K: despeja o quadro cuja K-ésima referência mais recente é a mais antiga.
+ * Quadros com menos de K referências têm distância infinita e saem primeiro (entre eles,
+ * vale o LRU comum). Resiste melhor que o LRU a varreduras sequenciais, que tocam cada
+ * página uma única vez e por isso não expulsam as páginas quentes de pontos de busca.
+ * O histórico é mantido por quadro e recomeça quando uma nova página é carregada nele.
+ */
+public class LruKPolicy implements EvictionPolicy {
+    private final int k;
+    // history[frame][0] é o acesso mais recente, history[frame][k - 1] o K-ésimo
+    private final long[][] history;
+    private final int[] accesses;
+    private final boolean[] loaded;
+    private long clock;
+
+    public LruKPolicy(int frames, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be >= 1");
+        }
+        this.k = k;
+        this.history = new long[frames][k];
+        this.accesses = new int[frames];
+        this.loaded = new boolean[frames];
+        this.clock = 0;
+    }
+
+    @Override
+    public void onLoad(int frame) {
+        loaded[frame] = true;
+        accesses[frame] = 0;
+        onAccess(frame);
+    }
+
+    @Override
+    public void onAccess(int frame) {
+        long[] times = history[frame];
+        System.arraycopy(times, 0, times, 1, k - 1);
+        times[0] = ++clock;
+        if (accesses[frame] < k) {
+            accesses[frame]++;
+        }
+    }
+
+    @Override
+    public int victim(IntPredicate evictable) {
+        int best = -1;
+        boolean bestInfinite = false;
+        long bestTime = Long.MAX_VALUE;
+        for (int frame = 0; frame < history.length; frame++) {
+            if (!loaded[frame] || !evictable.test(frame)) {
+                continue;
+            }
+            boolean infinite = accesses[frame] < k;
+            // Distância infinita: desempata pelo acesso mais recente; senão pelo K-ésimo
+            long time = infinite ? history[frame][0] : history[frame][k - 1];
+            if (best == -1 || (infinite && !bestInfinite) || (infinite == bestInfinite && time < bestTime)) {
+                best = frame;
+                bestInfinite = infinite;
+                bestTime = time;
+            }
+        }
+        if (best != -1) {
+            loaded[best] = false;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,39 @@
+package storage;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.function.IntPredicate;
+
+/**
+ * LRU: despeja o quadro acessado há mais tempo.
+ */
+public class LruPolicy implements EvictionPolicy {
+    // Ordem de inserção = ordem de acesso (o mais antigo primeiro)
+    private final LinkedHashSet<Integer> order = new LinkedHashSet<>();
+
+    public LruPolicy(int frames) {
+    }
+
+    @Override
+    public void onLoad(int frame) {
+        onAccess(frame);
+    }
+
+    @Override
+    public void onAccess(int frame) {
+        order.remove(frame);
+        order.add(frame);
+    }
+
+    @Override
+    public int victim(IntPredicate evictable) {
+        Iterator<Integer> iterator = order.iterator();
+        while (iterator.hasNext()) {
+            int frame = iterator.next();
+            if (evictable.test(frame)) {
+                iterator.remove();
+                return frame;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,115 @@
+package storage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arquivo de páginas de tamanho fixo acessado por mapeamento em memória (MappedByteBuffer).
+ * O arquivo é mapeado em segmentos de 'pagesPerSegment' páginas; novos segmentos são mapeados
+ * (e o arquivo cresce) sob demanda. As páginas devolvidas por {@link #page(int)} são fatias
+ * do mapeamento: ler e escrever nelas não copia dados, e o cache de páginas do sistema
+ * operacional decide o que fica em memória. Como {@link PageStore}, pin devolve a própria
+ * fatia e unpin não faz nada: escritas já vão para o mapeamento.
+ */
+public class MappedPageFile implements PageStore {
+    private static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    private final int pagesPerSegment;
+    private final List<MappedByteBuffer> segments;
+
+    private MappedPageFile(FileChannel channel, int pageSize) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be > 0");
+        }
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.pagesPerSegment = Math.max(1, DEFAULT_SEGMENT_BYTES / pageSize);
+        this.segments = new ArrayList<>();
+        long existingPages = channel.size() / pageSize;
+        ensureCapacity((int) Math.max(existingPages, 1));
+    }
+
+    public static MappedPageFile create(Path file, int pageSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new MappedPageFile(channel, pageSize);
+    }
+
+    public static MappedPageFile open(Path file, int pageSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MappedPageFile(channel, pageSize);
+    }
+
+    @Override
+    public int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Número de páginas atualmente mapeadas (não necessariamente em uso).
+     */
+    public int capacity() {
+        return segments.size() * pagesPerSegment;
+    }
+
+    /**
+     * Devolve a página 'pageId' como uma fatia do mapeamento (posição 0, limite pageSize),
+     * mapeando novos segmentos se necessário.
+     */
+    public ByteBuffer page(int pageId) {
+        if (pageId < 0) {
+            throw new IllegalArgumentException("Página inexistente: " + pageId);
+        }
+        if (pageId >= capacity()) {
+            ensureCapacity(pageId + 1);
+        }
+        MappedByteBuffer segment = segments.get(pageId / pagesPerSegment);
+        return segment.slice((pageId % pagesPerSegment) * pageSize, pageSize);
+    }
+
+    @Override
+    public ByteBuffer pin(int pageId) {
+        return page(pageId);
+    }
+
+    @Override
+    public void unpin(int pageId, boolean dirty) {
+    }
+
+    @Override
+    public void flush() {
+        force();
+    }
+
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        segments.clear();
+        channel.close();
+    }
+
+    private void ensureCapacity(int pages) {
+        try {
+            while (capacity() < pages) {
+                long offset = (long) segments.size() * pagesPerSegment * pageSize;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) pagesPerSegment * pageSize));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package storage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Arquivo dividido em páginas de tamanho fixo, endereçadas por id (0, 1, 2...).
+ * A página 'id' ocupa os bytes [id * pageSize, (id + 1) * pageSize) do arquivo.
+ * Não há cache: cada leitura e escrita vai direto ao FileChannel.
+ */
+public class PageFile implements Closeable {
+    private final FileChannel channel;
+    private final int pageSize;
+    private int pageCount;
+
+    private PageFile(FileChannel channel, int pageSize) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be > 0");
+        }
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.pageCount = (int) (channel.size() / pageSize);
+    }
+
+    public static PageFile create(Path file, int pageSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new PageFile(channel, pageSize);
+    }
+
+    public static PageFile open(Path file, int pageSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new PageFile(channel, pageSize);
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Reserva uma nova página no fim do arquivo. O conteúdo só é gravado no primeiro write.
+     */
+    public int allocate() {
+        return pageCount++;
+    }
+
+    /**
+     * Lê a página inteira para 'buffer' (que deve ter ao menos pageSize bytes restantes).
+     * Páginas alocadas mas ainda não gravadas são lidas como zeros.
+     */
+    public void read(int pageId, ByteBuffer buffer) {
+        checkPageId(pageId);
+        int start = buffer.position();
+        buffer.limit(start + pageSize);
+        try {
+            long offset = (long) pageId * pageSize;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, offset + (buffer.position() - start));
+                if (read < 0) {
+                    while (buffer.hasRemaining()) {
+                        buffer.put((byte) 0);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.position(start);
+    }
+
+    /**
+     * Grava os pageSize bytes a partir da posição atual de 'buffer' na página indicada.
+     */
+    public void write(int pageId, ByteBuffer buffer) {
+        checkPageId(pageId);
+        ByteBuffer source = buffer.duplicate();
+        source.limit(source.position() + pageSize);
+        try {
+            long offset = (long) pageId * pageSize;
+            while (source.hasRemaining()) {
+                offset += channel.write(source, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void force() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void checkPageId(int pageId) {
+        if (pageId < 0 || pageId >= pageCount) {
+            throw new IllegalArgumentException("Página inexistente: " + pageId);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package storage;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Acesso a páginas de tamanho fixo por pin/unpin.
+ * Toda página obtida com {@link #pin(int)} deve ser liberada com {@link #unpin(int, boolean)},
+ * informando se foi modificada. O buffer devolvido deve ser lido e escrito apenas com
+ * acessos absolutos (getInt(indice), putLong(indice, ...)), pois pode ser compartilhado.
+ */
+public interface PageStore extends Closeable {
+
+    int pageSize();
+
+    /**
+     * Fixa a página em memória e devolve seu conteúdo (posição 0, limite pageSize).
+     * Páginas além do fim do arquivo são criadas zeradas.
+     */
+    ByteBuffer pin(int pageId);
+
+    void unpin(int pageId, boolean dirty);
+
+    /**
+     * Grava no arquivo todas as páginas modificadas.
+     */
+    void flush();
+}
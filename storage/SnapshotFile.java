@@ -0,0 +1,402 @@
+package storage;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Arquivo de snapshot binário e versionado, gravado e lido em blocos independentes. Usado pelos
+ * snapshots da BPlusTree e do ExtendibleHash, que definem o cabeçalho e o conteúdo dos blocos.
+ *
+ * <pre>
+ * [magico:int][versao:short][tipo:byte][flags:byte][tamanho:int][cabeçalho][crc32 do cabeçalho:int]
+ * [tamanho original:int][tamanho gravado:int][crc32 do original:int][bytes]   (um por bloco)
+ * [-1][número de blocos:int][número de blocos ^ magico:int]                    (fim)
+ * </pre>
+ *
+ * Cada bloco é comprimido (Deflater, se pedido) e verificado (CRC32) sozinho, então compressão,
+ * descompressão e verificação rodam em paralelo num ForkJoinPool e só a E/S é sequencial, por
+ * FileChannel. A gravação vai para um arquivo temporário que só substitui o destino depois do
+ * fsync: uma queda no meio nunca destrói o snapshot anterior. Um arquivo truncado ou com qualquer
+ * CRC inválido é rejeitado com IOException.
+ */
+public final class SnapshotFile {
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x49445853; // "IDXS"
+    private static final byte COMPRESSED = 1;
+    private static final int FRAME = 12;
+    private static final int MAX_BLOCK = 64 * 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Decodifica o conteúdo de um bloco já descomprimido e verificado.
+     */
+    @FunctionalInterface
+    public interface BlockDecoder<T> {
+        T decode(ByteBuffer block) throws IOException;
+    }
+
+    public static Writer create(Path file, byte kind, ByteBuffer header, boolean compress, ForkJoinPool pool)
+            throws IOException {
+        return new Writer(file, kind, header, compress, pool);
+    }
+
+    public static Reader open(Path file, byte kind, ForkJoinPool pool) throws IOException {
+        return new Reader(file, kind, pool);
+    }
+
+    // --- GRAVAÇÃO ---
+
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final boolean compress;
+        private final ForkJoinPool pool;
+        // Blocos sendo comprimidos, na ordem em que serão gravados
+        private final ArrayDeque<CompletableFuture<ByteBuffer[]>> pending = new ArrayDeque<>();
+        private final int maxPending;
+        private int blocks;
+        private boolean closed;
+
+        private Writer(Path file, byte kind, ByteBuffer header, boolean compress, ForkJoinPool pool)
+                throws IOException {
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.compress = compress;
+            this.pool = pool;
+            this.maxPending = 2 * pool.getParallelism();
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                ByteBuffer content = header.duplicate();
+                ByteBuffer start = ByteBuffer.allocate(12);
+                start.putInt(MAGIC).putShort((short) VERSION).put(kind).put(compress ? COMPRESSED : 0)
+                        .putInt(content.remaining()).flip();
+                ByteBuffer checksum = ByteBuffer.allocate(4).putInt(crc(content.duplicate())).flip();
+                writeFully(new ByteBuffer[] { start, content, checksum });
+            } catch (IOException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        /**
+         * Acrescenta um bloco com os 'length' primeiros bytes de 'data'. O vetor passa a ser do
+         * snapshot: quem chama não pode reutilizá-lo.
+         */
+        public void writeBlock(byte[] data, int length) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("Snapshot já fechado.");
+            }
+            if (length > MAX_BLOCK) {
+                throw new IllegalArgumentException("Bloco grande demais para o snapshot: " + length + " bytes");
+            }
+            if (pending.size() == maxPending) {
+                writeFully(await(pending.removeFirst()));
+            }
+            pending.addLast(CompletableFuture.supplyAsync(() -> encode(data, length), pool));
+            blocks++;
+        }
+
+        /**
+         * Grava os blocos pendentes e o fim do arquivo, faz fsync e só então troca o destino.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                while (!pending.isEmpty()) {
+                    writeFully(await(pending.removeFirst()));
+                }
+                ByteBuffer end = ByteBuffer.allocate(FRAME).putInt(-1).putInt(blocks).putInt(blocks ^ MAGIC).flip();
+                writeFully(new ByteBuffer[] { end });
+                channel.force(true);
+                channel.close();
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        private ByteBuffer[] encode(byte[] data, int length) {
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            byte[] stored = data;
+            int storedLength = length;
+            if (compress) {
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try {
+                    deflater.setInput(data, 0, length);
+                    deflater.finish();
+                    stored = new byte[Math.max(64, length + length / 16 + 64)];
+                    storedLength = 0;
+                    while (!deflater.finished()) {
+                        if (storedLength == stored.length) {
+                            stored = Arrays.copyOf(stored, stored.length * 2);
+                        }
+                        storedLength += deflater.deflate(stored, storedLength, stored.length - storedLength);
+                    }
+                } finally {
+                    deflater.end();
+                }
+            }
+            ByteBuffer frame = ByteBuffer.allocate(FRAME).putInt(length).putInt(storedLength)
+                    .putInt((int) crc.getValue()).flip();
+            return new ByteBuffer[] { frame, ByteBuffer.wrap(stored, 0, storedLength) };
+        }
+
+        private void writeFully(ByteBuffer[] buffers) throws IOException {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+
+        private void abort() {
+            for (CompletableFuture<ByteBuffer[]> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+            try {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                // O erro original é o que interessa
+            }
+        }
+    }
+
+    // --- LEITURA ---
+
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final ForkJoinPool pool;
+        private final boolean compressed;
+        private final int version;
+        private final ByteBuffer header;
+        private final ByteBuffer frame = ByteBuffer.allocate(FRAME);
+        private int blocks;
+        private boolean finished;
+
+        private Reader(Path file, byte kind, ForkJoinPool pool) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.pool = pool;
+            try {
+                ByteBuffer start = readFully(ByteBuffer.allocate(12));
+                if (start.getInt() != MAGIC) {
+                    throw new IOException("Arquivo não é um snapshot: " + file);
+                }
+                this.version = start.getShort();
+                if (version < 1 || version > VERSION) {
+                    throw new IOException("Versão de snapshot não suportada: " + version);
+                }
+                byte storedKind = start.get();
+                if (storedKind != kind) {
+                    throw new IOException("Snapshot de outro tipo de índice: " + storedKind);
+                }
+                this.compressed = (start.get() & COMPRESSED) != 0;
+                int length = start.getInt();
+                if (length < 0 || length > MAX_BLOCK) {
+                    throw new IOException("Snapshot corrompido: cabeçalho de " + length + " bytes");
+                }
+                ByteBuffer content = readFully(ByteBuffer.allocate(length + 4));
+                int checksum = content.getInt(length);
+                content.limit(length);
+                if (crc(content.duplicate()) != checksum) {
+                    throw new IOException("Snapshot corrompido: CRC do cabeçalho não confere");
+                }
+                this.header = content.asReadOnlyBuffer();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public int version() {
+            return version;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        // Cabeçalho gravado pelo índice (uma visão só de leitura, na posição 0)
+        public ByteBuffer header() {
+            return header.duplicate();
+        }
+
+        /**
+         * Conteúdo dos blocos, na ordem em que foram gravados. A leitura do arquivo acontece na
+         * thread que consome o iterador, sempre alguns blocos à frente; a descompressão, a
+         * verificação do CRC e 'decoder' rodam no pool. Erros de leitura ou de verificação saem
+         * do iterador como UncheckedIOException.
+         */
+        public <T> Iterator<T> blocks(BlockDecoder<T> decoder) {
+            int window = 2 * pool.getParallelism();
+            return new Iterator<T>() {
+                private final ArrayDeque<CompletableFuture<T>> ahead = new ArrayDeque<>();
+
+                @Override
+                public boolean hasNext() {
+                    fill();
+                    return !ahead.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        return await(ahead.removeFirst());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                private void fill() {
+                    try {
+                        while (ahead.size() < window && !finished) {
+                            ByteBuffer[] block = nextBlock();
+                            if (block == null) {
+                                break;
+                            }
+                            ahead.addLast(CompletableFuture.supplyAsync(() -> {
+                                try {
+                                    return decoder.decode(decode(block));
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }, pool));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+
+        // [frame, bytes gravados] do próximo bloco, ou null no fim do arquivo
+        private ByteBuffer[] nextBlock() throws IOException {
+            frame.clear();
+            readFully(frame);
+            int length = frame.getInt();
+            int storedLength = frame.getInt();
+            int check = frame.getInt();
+            if (length == -1) {
+                if (storedLength != blocks || check != (blocks ^ MAGIC)) {
+                    throw new IOException("Snapshot corrompido: fim com " + storedLength + " blocos, lidos " + blocks);
+                }
+                finished = true;
+                return null;
+            }
+            if (length < 0 || length > MAX_BLOCK || storedLength < 0 || storedLength > MAX_BLOCK + MAX_BLOCK / 16 + 64) {
+                throw new IOException("Snapshot corrompido: bloco " + blocks + " com tamanho inválido");
+            }
+            ByteBuffer stored = readFully(ByteBuffer.allocate(storedLength));
+            blocks++;
+            ByteBuffer blockFrame = ByteBuffer.allocate(8).putInt(length).putInt(check).flip();
+            return new ByteBuffer[] { blockFrame, stored };
+        }
+
+        private ByteBuffer decode(ByteBuffer[] block) throws IOException {
+            int length = block[0].getInt(0);
+            int checksum = block[0].getInt(4);
+            ByteBuffer stored = block[1];
+            ByteBuffer data = stored;
+            if (compressed) {
+                byte[] raw = new byte[length];
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(stored.array(), 0, stored.limit());
+                    int total = 0;
+                    while (total < length && !inflater.finished()) {
+                        int inflated = inflater.inflate(raw, total, length - total);
+                        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        total += inflated;
+                    }
+                    if (total != length) {
+                        throw new IOException("Snapshot corrompido: bloco com " + total + " de " + length + " bytes");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Snapshot corrompido: " + e.getMessage(), e);
+                } finally {
+                    inflater.end();
+                }
+                data = ByteBuffer.wrap(raw);
+            } else if (stored.limit() != length) {
+                throw new IOException("Snapshot corrompido: bloco com " + stored.limit() + " de " + length + " bytes");
+            }
+            if (crc(data.duplicate()) != checksum) {
+                throw new IOException("Snapshot corrompido: CRC de bloco não confere");
+            }
+            return data;
+        }
+
+        private ByteBuffer readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Snapshot truncado");
+                }
+            }
+            return buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // --- AUXILIARES ---
+
+    private static int crc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    // Resultado da tarefa, com a IOException original se ela falhou por E/S
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package wal;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import bplus.BPlusTree;
+import bplus.BackgroundCompactor;
+import bplus.TreeSnapshot;
+import storage.Codec;
+
+/**
+ * BPlusTree em memória tornada durável por um {@link WriteAheadLog}.
+ *
+ * Cada insert/delete grava um registro lógico ([tipo][chave][valor]) antes de ser aplicado à
+ * árvore, e a árvore é reconstruída na abertura reaplicando o log. Splits, fusões e
+ * redistribuições não são registrados: como a árvore é reconstruída do zero, reaplicar as
+ * mesmas operações na mesma ordem refaz exatamente os mesmos splits e fusões, e um split pela
+ * metade nunca chega ao disco.
+ *
+ * A classe é thread-safe. insert e delete só retornam quando o registro está no disco, mas o
+ * fsync é feito por group commit: várias threads escrevendo ao mesmo tempo dividem o mesmo
+ * fsync. Uma única thread que precise de vazão pode usar insertAsync/deleteAsync e chamar
+ * {@link #sync()} (ou {@link #awaitDurable(long)}) no fim do lote.
+ *
+ * {@link #checkpoint()} grava a árvore num {@link TreeSnapshot} ao lado do log (arquivo do log
+ * + ".checkpoint"), com o LSN que ele cobre, e esvazia o log: a abertura carrega o snapshot e
+ * só reaplica os registros posteriores a ele. Sem checkpoints o log cresce sem limite e cada
+ * abertura reaplica todo o histórico.
+ */
+public class DurableBPlusTree<K extends Comparable<K>, V> implements Closeable {
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+
+    private final BPlusTree<K, V> tree;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Path checkpointFile;
+    private WriteAheadLog log;
+    private BackgroundCompactor compactor;
+
+    private DurableBPlusTree(int order, Codec<K> keyCodec, Codec<V> valueCodec) {
+        this.tree = new BPlusTree<>(order);
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+    }
+
+    public static <K extends Comparable<K>, V> DurableBPlusTree<K, V> open(Path logFile, int order,
+            Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        return open(logFile, order, keyCodec, valueCodec, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Abre a árvore, carregando o último checkpoint e reaplicando o log se eles já existirem.
+     *
+     * @param commitDelay espera extra antes de cada fsync para juntar mais escritores (0 = nenhuma)
+     */
+    public static <K extends Comparable<K>, V> DurableBPlusTree<K, V> open(Path logFile, int order,
+            Codec<K> keyCodec, Codec<V> valueCodec, long commitDelay, TimeUnit unit) throws IOException {
+        DurableBPlusTree<K, V> durable = new DurableBPlusTree<>(order, keyCodec, valueCodec);
+        durable.checkpointFile = logFile.resolveSibling(logFile.getFileName() + ".checkpoint");
+        long checkpointLsn = 0;
+        if (Files.exists(durable.checkpointFile)) {
+            checkpointLsn = TreeSnapshot.lsn(durable.checkpointFile);
+            TreeSnapshot.loadInto(durable.checkpointFile, durable.tree, keyCodec, valueCodec,
+                    BPlusTree.DEFAULT_FILL_FACTOR, ForkJoinPool.commonPool());
+        }
+        durable.log = WriteAheadLog.open(logFile, checkpointLsn, commitDelay, unit, durable::redo);
+        return durable;
+    }
+
+    public void insert(K key, V value) {
+        log.awaitDurable(insertAsync(key, value));
+    }
+
+    public void delete(K key) {
+        log.awaitDurable(deleteAsync(key));
+    }
+
+    /**
+     * Aplica o insert e devolve o LSN do registro, sem esperar o fsync.
+     */
+    public long insertAsync(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        byte[] record = encode(INSERT, key, value);
+        lock.writeLock().lock();
+        try {
+            long lsn = log.append(record);
+            tree.insert(key, value);
+            return lsn;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aplica o delete e devolve o LSN do registro, sem esperar o fsync
+     * (0 se a chave não existia: nada é registrado).
+     */
+    public long deleteAsync(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Chave não pode ser nula.");
+        }
+        byte[] record = encode(DELETE, key, null);
+        lock.writeLock().lock();
+        try {
+            if (tree.search(key) == null) {
+                return 0;
+            }
+            long lsn = log.append(record);
+            tree.delete(key);
+            return lsn;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public V search(K key) {
+        lock.readLock().lock();
+        try {
+            return tree.search(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<V> searchRange(K startKey, K endKey) {
+        lock.readLock().lock();
+        try {
+            return tree.searchRange(startKey, endKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void awaitDurable(long lsn) {
+        log.awaitDurable(lsn);
+    }
+
+    public void sync() {
+        log.sync();
+    }
+
+    /**
+     * Número de fsyncs feitos no log desde a abertura.
+     */
+    public long syncCount() {
+        return log.syncCount();
+    }
+
+    /**
+     * Grava um snapshot da árvore com o LSN que ele cobre e esvazia o log. Escritores ficam
+     * bloqueados durante o checkpoint. Uma queda no meio deixa o checkpoint anterior ou o novo
+     * (os dois arquivos são trocados por rename) e nenhum registro é reaplicado duas vezes.
+     */
+    public void checkpoint() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.sync();
+            long lsn = log.durableLsn();
+            TreeSnapshot.save(tree, checkpointFile, keyCodec, valueCodec, false, lsn, ForkJoinPool.commonPool());
+            log.truncate(lsn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Passa a adiar o rebalanceamento dos deletes: eles só tiram a chave da folha (com a trava de
+     * escrita por menos tempo) e um {@link BackgroundCompactor} rebalanceia a árvore a cada
+     * 'period'. O log não muda: a reconstrução na abertura produz a árvore já balanceada.
+     */
+    public void deferRebalance(double fillThreshold, long period, TimeUnit unit) {
+        lock.writeLock().lock();
+        try {
+            if (compactor != null) {
+                throw new IllegalStateException("Rebalanceamento já está adiado.");
+            }
+            tree.setDeferredRebalance(true);
+            compactor = new BackgroundCompactor(tree, lock.writeLock(), fillThreshold, period, unit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.close();
+        }
+        log.close();
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return tree.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private byte[] encode(byte type, K key, V value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(type);
+            keyCodec.write(out, key);
+            if (type == INSERT) {
+                valueCodec.write(out, value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void redo(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            byte type = in.readByte();
+            K key = keyCodec.read(in);
+            if (type == INSERT) {
+                tree.insert(key, valueCodec.read(in));
+            } else if (type == DELETE) {
+                tree.delete(key);
+            } else {
+                throw new IllegalStateException("Tipo de registro desconhecido no log: " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
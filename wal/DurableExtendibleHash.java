@@ -0,0 +1,152 @@
+package wal;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import hash.ExtendibleHash;
+import hash.FuncaoHash;
+import hash.SnapshotHash;
+
+/**
+ * ExtendibleHash em memória tornado durável por um {@link WriteAheadLog}.
+ *
+ * Cada insere/remove grava um registro lógico de 5 bytes ([tipo][chave]) antes de ser
+ * aplicado, e o hash é reconstruído na abertura reaplicando o log. Splits de bucket,
+ * duplicações e encolhimentos do diretório não são registrados: reaplicar as mesmas operações
+ * na mesma ordem em um hash vazio refaz a mesma sequência de mudanças estruturais.
+ *
+ * Thread-safe; insere e remove só retornam com o registro no disco, com fsync compartilhado
+ * entre as threads (group commit). insereAssincrono + sincroniza servem para lotes de uma
+ * thread só.
+ *
+ * {@link #checkpoint()} grava o hash num {@link SnapshotHash} ao lado do log (arquivo do log +
+ * ".checkpoint"), com o LSN que ele cobre, e esvazia o log; a abertura carrega o snapshot e só
+ * reaplica os registros posteriores. Sem checkpoints o log cresce sem limite.
+ */
+public class DurableExtendibleHash implements Closeable {
+    private static final byte INSERE = 1;
+    private static final byte REMOVE = 2;
+
+    private ExtendibleHash hash;
+    private Path arquivoCheckpoint;
+    private WriteAheadLog log;
+
+    private DurableExtendibleHash(int tamanhoBucket) {
+        this.hash = new ExtendibleHash(tamanhoBucket);
+    }
+
+    public static DurableExtendibleHash abre(Path arquivoLog, int tamanhoBucket) throws IOException {
+        return abre(arquivoLog, tamanhoBucket, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Abre o hash, carregando o último checkpoint e reaplicando o log se eles já existirem
+     * (com checkpoint, o tamanho de bucket é o gravado nele).
+     *
+     * @param esperaCommit espera extra antes de cada fsync para juntar mais escritores (0 = nenhuma)
+     */
+    public static DurableExtendibleHash abre(Path arquivoLog, int tamanhoBucket, long esperaCommit, TimeUnit unidade)
+            throws IOException {
+        DurableExtendibleHash duravel = new DurableExtendibleHash(tamanhoBucket);
+        duravel.arquivoCheckpoint = arquivoLog.resolveSibling(arquivoLog.getFileName() + ".checkpoint");
+        long lsnCheckpoint = 0;
+        if (Files.exists(duravel.arquivoCheckpoint)) {
+            lsnCheckpoint = SnapshotHash.lsn(duravel.arquivoCheckpoint);
+            duravel.hash = SnapshotHash.carrega(duravel.arquivoCheckpoint, FuncaoHash.IDENTIDADE);
+        }
+        duravel.log = WriteAheadLog.open(arquivoLog, lsnCheckpoint, esperaCommit, unidade, duravel::refaz);
+        return duravel;
+    }
+
+    public void insere(int chave) {
+        log.awaitDurable(insereAssincrono(chave));
+    }
+
+    public boolean remove(int chave) {
+        long lsn = removeAssincrono(chave);
+        log.awaitDurable(lsn);
+        return lsn != 0;
+    }
+
+    /**
+     * Aplica a inserção e devolve o LSN do registro, sem esperar o fsync.
+     */
+    public synchronized long insereAssincrono(int chave) {
+        long lsn = log.append(registro(INSERE, chave));
+        hash.insere(chave);
+        return lsn;
+    }
+
+    /**
+     * Aplica a remoção e devolve o LSN do registro, sem esperar o fsync
+     * (0 se a chave não existia: nada é registrado).
+     */
+    public synchronized long removeAssincrono(int chave) {
+        if (!hash.busca(chave)) {
+            return 0;
+        }
+        long lsn = log.append(registro(REMOVE, chave));
+        hash.remove(chave);
+        return lsn;
+    }
+
+    public synchronized boolean busca(int chave) {
+        return hash.busca(chave);
+    }
+
+    public synchronized void exibe() {
+        hash.exibe();
+    }
+
+    public void aguardaDuravel(long lsn) {
+        log.awaitDurable(lsn);
+    }
+
+    public void sincroniza() {
+        log.sync();
+    }
+
+    /**
+     * Número de fsyncs feitos no log desde a abertura.
+     */
+    public long quantidadeSincronizacoes() {
+        return log.syncCount();
+    }
+
+    /**
+     * Grava um snapshot do hash com o LSN que ele cobre e esvazia o log, bloqueando os escritores
+     * enquanto isso. Uma queda no meio deixa o checkpoint anterior ou o novo, e nenhum registro
+     * é reaplicado duas vezes.
+     */
+    public synchronized void checkpoint() throws IOException {
+        log.sync();
+        long lsn = log.durableLsn();
+        SnapshotHash.salva(hash, arquivoCheckpoint, false, lsn, ForkJoinPool.commonPool());
+        log.truncate(lsn);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static byte[] registro(byte tipo, int chave) {
+        return new byte[] { tipo, (byte) (chave >>> 24), (byte) (chave >>> 16), (byte) (chave >>> 8), (byte) chave };
+    }
+
+    private void refaz(ByteBuffer registro) {
+        byte tipo = registro.get();
+        int chave = registro.getInt();
+        if (tipo == INSERE) {
+            hash.insere(chave);
+        } else if (tipo == REMOVE) {
+            hash.remove(chave);
+        } else {
+            throw new IllegalStateException("Tipo de registro desconhecido no log: " + tipo);
+        }
+    }
+}
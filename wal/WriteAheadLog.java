@@ -0,0 +1,401 @@
+package wal;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Log de escrita antecipada (WAL) com group commit.
+ *
+ * O arquivo começa com [lsn base:long] e segue com os registros, cada um gravado como
+ * [tamanho][crc32][payload]; o LSN de um registro é o LSN base mais o número de bytes de
+ * registros até o seu fim, então os LSNs continuam crescendo depois de um {@link #truncate}.
+ * append só copia o registro para um buffer em memória; uma
+ * thread de gravação leva o buffer inteiro para o disco com um único write + fsync e então
+ * acorda quem espera em {@link #awaitDurable}. Registros que chegam enquanto um fsync está em
+ * andamento entram juntos no próximo, então o custo do fsync é dividido entre todos os
+ * escritores concorrentes em vez de ser pago por chave.
+ *
+ * Na abertura o log é lido do início: cada registro íntegro é entregue ao tratador de replay e
+ * o arquivo é truncado no primeiro registro incompleto ou com CRC inválido (a cauda de uma
+ * escrita interrompida por queda).
+ *
+ * Checkpoint: quem usa o log grava um snapshot da estrutura junto com o LSN que ele cobre e
+ * chama {@link #truncate}, que troca o arquivo por um log vazio (atomicamente, por rename). Se
+ * houver uma queda entre o snapshot e a troca, a abertura com esse LSN pula os registros já
+ * cobertos.
+ */
+public final class WriteAheadLog implements Closeable {
+    private static final int HEADER = 8;
+    // [lsn base:long] no início do arquivo
+    private static final int FILE_HEADER = 8;
+    private static final int MAX_RECORD = 64 * 1024 * 1024;
+    private static final int INITIAL_BUFFER = 64 * 1024;
+
+    private final Path file;
+    // Só é trocado por truncate, com nada pendente
+    private FileChannel channel;
+    private final long commitDelayNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    private ByteBuffer writing = ByteBuffer.allocate(INITIAL_BUFFER);
+    private long appendedLsn;
+    private long durableLsn;
+    private long syncCount;
+    private boolean closed;
+    // A thread de gravação terminou: nada mais vai ficar durável
+    private boolean stopped;
+    private IOException failure;
+
+    private WriteAheadLog(Path file, FileChannel channel, long endLsn, long commitDelayNanos) {
+        this.file = file;
+        this.channel = channel;
+        this.commitDelayNanos = commitDelayNanos;
+        this.appendedLsn = endLsn;
+        this.durableLsn = endLsn;
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static WriteAheadLog open(Path file, Consumer<ByteBuffer> replay) throws IOException {
+        return open(file, 0, 0, replay);
+    }
+
+    /**
+     * Abre (ou cria) o log, entregando a 'replay', em ordem, o payload de cada registro íntegro.
+     *
+     * @param commitDelay tempo que a thread de gravação espera, depois de acordada, para juntar
+     *                    mais registros no mesmo fsync (0 = grava assim que houver registros)
+     */
+    public static WriteAheadLog open(Path file, long commitDelay, TimeUnit unit, Consumer<ByteBuffer> replay)
+            throws IOException {
+        return open(file, 0, unit.toNanos(commitDelay), replay);
+    }
+
+    /**
+     * Como o anterior, mas só entrega a 'replay' os registros com LSN acima de 'checkpointLsn'
+     * (os anteriores já estão no snapshot do checkpoint). Um log novo começa nesse LSN.
+     */
+    public static WriteAheadLog open(Path file, long checkpointLsn, long commitDelay, TimeUnit unit,
+            Consumer<ByteBuffer> replay) throws IOException {
+        return open(file, checkpointLsn, unit.toNanos(commitDelay), replay);
+    }
+
+    private static WriteAheadLog open(Path file, long checkpointLsn, long commitDelayNanos,
+            Consumer<ByteBuffer> replay) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long baseLsn;
+            if (channel.size() < FILE_HEADER) {
+                // Log novo (ou com o cabeçalho interrompido por uma queda na criação)
+                baseLsn = checkpointLsn;
+                channel.truncate(0);
+                writeFileHeader(channel, baseLsn);
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // lê até completar o cabeçalho
+                }
+                baseLsn = header.getLong(0);
+            }
+            long end = replay(channel, baseLsn, checkpointLsn, replay);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            return new WriteAheadLog(file, channel, baseLsn + end - FILE_HEADER, commitDelayNanos);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void writeFileHeader(FileChannel channel, long baseLsn) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putLong(baseLsn).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    // Devolve a posição logo após o último registro íntegro
+    private static long replay(FileChannel channel, long baseLsn, long checkpointLsn, Consumer<ByteBuffer> handler)
+            throws IOException {
+        long size = channel.size();
+        long position = FILE_HEADER;
+        CRC32 crc = new CRC32();
+        InputStream stream = Channels.newInputStream(channel.position(FILE_HEADER));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, INITIAL_BUFFER));
+        while (size - position >= HEADER) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if (length < 0 || length > MAX_RECORD || length > size - position - HEADER) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            position += HEADER + length;
+            if (baseLsn + position - FILE_HEADER > checkpointLsn) {
+                handler.accept(ByteBuffer.wrap(payload).asReadOnlyBuffer());
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Acrescenta um registro e devolve o seu LSN. O registro só é durável depois de
+     * {@link #awaitDurable(long)} com esse LSN retornar.
+     */
+    public long append(byte[] payload) {
+        return append(payload, 0, payload.length);
+    }
+
+    public long append(byte[] payload, int offset, int length) {
+        if (length > MAX_RECORD) {
+            throw new IllegalArgumentException("Registro grande demais para o log: " + length + " bytes");
+        }
+        lock.lock();
+        try {
+            ensureOpen();
+            if (pending.remaining() < HEADER + length) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + HEADER + length));
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            crc.reset();
+            crc.update(payload, offset, length);
+            pending.putInt(length);
+            pending.putInt((int) crc.getValue());
+            pending.put(payload, offset, length);
+            appendedLsn += HEADER + length;
+            flushNeeded.signal();
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bloqueia até que todos os registros até 'lsn' estejam no disco (fsync concluído).
+     */
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Falha ao gravar o log", failure);
+                }
+                if (stopped) {
+                    throw new IllegalStateException("Log fechado.");
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Torna durável tudo o que já foi acrescentado.
+     */
+    public void sync() {
+        long lsn;
+        lock.lock();
+        try {
+            lsn = appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(lsn);
+    }
+
+    public long durableLsn() {
+        lock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Descarta todos os registros, já cobertos por um checkpoint até 'checkpointLsn': grava um log
+     * vazio com esse LSN base num arquivo temporário, faz fsync e o troca pelo atual com um rename
+     * atômico (uma queda deixa o log antigo inteiro ou o novo vazio). 'checkpointLsn' precisa ser
+     * o último LSN acrescentado, já durável; quem chama impede novos appends durante a troca.
+     */
+    public void truncate(long checkpointLsn) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            if (checkpointLsn != appendedLsn || durableLsn != appendedLsn) {
+                throw new IllegalStateException("O checkpoint precisa cobrir todo o log, já durável: LSN "
+                        + checkpointLsn + ", acrescentado " + appendedLsn + ", durável " + durableLsn);
+            }
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            FileChannel fresh = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                writeFileHeader(fresh, checkpointLsn);
+                fresh.force(true);
+                fresh.position(FILE_HEADER);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                fresh.close();
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            channel.close();
+            channel = fresh;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Número de fsyncs feitos desde a abertura; com group commit fica bem abaixo do número de registros.
+     */
+    public long syncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grava o que estiver pendente, encerra a thread de gravação e fecha o arquivo.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void ensureOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Falha ao gravar o log", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Log fechado.");
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long target;
+            FileChannel output;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    flushNeeded.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    stopped = true;
+                    flushed.signalAll();
+                    return;
+                }
+                if (commitDelayNanos > 0 && !closed) {
+                    // Espera um pouco mais para juntar os registros de outros escritores no mesmo fsync
+                    long remaining = commitDelayNanos;
+                    while (remaining > 0 && !closed) {
+                        try {
+                            remaining = flushNeeded.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                }
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                target = appendedLsn;
+                output = channel;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    output.write(writing);
+                }
+                output.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            writing.clear();
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    closed = true;
+                    stopped = true;
+                } else {
+                    durableLsn = target;
+                    syncCount++;
+                }
+                flushed.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}